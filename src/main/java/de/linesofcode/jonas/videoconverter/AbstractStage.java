@@ -0,0 +1,49 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Base for stages with fixed name, resource and artifacts.
+ */
+public abstract class AbstractStage implements Stage {
+
+	private final String name;
+	private final Resource resource;
+	private final Set<String> inputs;
+	private final Set<String> outputs;
+
+	protected AbstractStage(final String name, final Resource resource, final Set<String> inputs,
+			final Set<String> outputs) {
+		this.name = name;
+		this.resource = resource;
+		this.inputs = ImmutableSet.copyOf(inputs);
+		this.outputs = ImmutableSet.copyOf(outputs);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Set<String> getInputs() {
+		return inputs;
+	}
+
+	@Override
+	public Set<String> getOutputs() {
+		return outputs;
+	}
+
+	@Override
+	public Resource getResource() {
+		return resource;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
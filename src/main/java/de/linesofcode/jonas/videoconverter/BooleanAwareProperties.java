@@ -1,195 +1,612 @@
-package de.linesofcode.jonas.videoconverter;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-
-public class BooleanAwareProperties extends java.util.Properties {
-
-	private static final Logger LOG = LoggerFactory.getLogger(BooleanAwareProperties.class);
-
-	private String profilePrefix;
-
-	public BooleanAwareProperties() {
-
-	}
-
-	public BooleanAwareProperties(final String fileName) {
-		this(fileName, null);
-	}
-
-	public BooleanAwareProperties(final String fileName, final String profileName) {
-		loadProperties(fileName);
-		logCurrentConfiguration();
-
-		convertToProfilePrefix(profileName);
-	}
-
-	private void convertToProfilePrefix(String profileName) {
-		if (profileName == null || profileName.isEmpty()) {
-			LOG.info("No profile name given. Using default values only.");
-			profilePrefix = "";
-		} else {
-			LOG.info("Setting active profile to [{}]", profileName);
-			if (profileName.endsWith(".")) {
-				profilePrefix = profileName;
-			} else {
-				profilePrefix = profileName + ".";
-			}
-		}
-	}
-
-	private void logCurrentConfiguration() {
-		LOG.info("Current configuration is:");
-
-		for (final Object key : keySet()) {
-			LOG.info("[{}] = [{}]", key, getProperty(key.toString()));
-		}
-	}
-
-	private void loadProperties(String fileName) {
-		LOG.debug("Loading properties from file...");
-
-		try (final InputStream inputStream = new FileInputStream(fileName)) {
-			LOG.info("File [{}] found. Reading values.", fileName);
-			load(inputStream);
-		} catch (IOException e) {
-			throw new RuntimeException("Loading the properties failed!", e);
-		}
-
-		LOG.debug("Finished.");
-	}
-
-	public boolean getBooleanProperty(final Properties key) {
-		try {
-			final String stored = getProperty(key);
-			final boolean isNull = stored == null;
-			final boolean isEmpty = isNull || stored.isEmpty();
-			final boolean isTrue = "true".equalsIgnoreCase(stored);
-			return !isNull && !isEmpty && isTrue;
-		} catch (NullPointerException e) {
-			LOG.info("Key [{}] not configured. Defaulting to [{}].", key.keyName(), false);
-			return false;
-		}
-	}
-
-	public String getProperty(Properties key) {
-		//TODO: only fetch with profile if there actually is a profile configured.
-		LOG.debug("Trying to fetch property for key [{}] with profile [{}]", key.keyName(), profilePrefix);
-		String property = getProperty(profilePrefix + key.keyName());
-
-		if (property == null || property.isEmpty()) {
-			LOG.debug("Fetching with profile failed. Resolving value without profile.");
-			property = getProperty(key.keyName());
-		}
-
-		if (property == null || property.isEmpty()) {
-			throw new NullPointerException("Key [" + key.keyName() + "] is not configured.");
-		}
-
-		return property;
-	}
-
-
-	public enum Properties {
-
-		DELETE_INPUT_FILE {
-			@Override
-			public String keyName() {
-				return "input.delete";
-			}
-		},
-		INPUT_DIRECTORY {
-			@Override
-			public String keyName() {
-				return "input.directory";
-			}
-		},
-		FILE_PROJECT_DELIMITER {
-			@Override
-			public String keyName() {
-				return "projectDelimiter";
-			}
-		},
-		OUTPUT_DIRECTORY {
-			@Override
-			public String keyName() {
-				return "output.directory";
-			}
-		},
-		OUTPUT_FILE_SUFFIX {
-			@Override
-			public String keyName() {
-				return "outputFileSuffix";
-			}
-		},
-		ORIGINAL_FILE_SUFFIX {
-			@Override
-			public String keyName() {
-				return "originalFileSuffix";
-			}
-		},
-		DRY_RUN {
-			@Override
-			public String keyName() {
-				return "dryRun";
-			}
-		},
-		FFMPEG {
-			@Override
-			public String keyName() {
-				return "ffmpeg";
-			}
-		},
-		COPY_ONLY {
-			@Override
-			public String keyName() {
-				return "copyOnly";
-			}
-		},
-		USE_FADING {
-			@Override
-			public String keyName() {
-				return "fading.attach";
-			}
-		},
-		FADING_DURATION {
-			@Override
-			public String keyName() {
-				return "fading.duration";
-			}
-		},
-		INTRO_PATH {
-			@Override
-			public String keyName() {
-				return "intro.path";
-			}
-		},
-		USE_INTRO {
-			@Override
-			public String keyName() {
-				return "intro.attach";
-			}
-		},
-		UPLOAD_TO_YOUTUBE {
-			@Override
-			public String keyName() {
-				return "yt.upload";
-			}
-		};
-
-		abstract public String keyName();
-	}
-
-	public String getProfile() {
-		return profilePrefix.substring(0, profilePrefix.length() - 1);
-	}
-
-	public void setProfile(final String profile) {
-		convertToProfilePrefix(profile);
-	}
-}
-
+package de.linesofcode.jonas.videoconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class BooleanAwareProperties extends java.util.Properties {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BooleanAwareProperties.class);
+
+	private String profilePrefix;
+
+	public BooleanAwareProperties() {
+
+	}
+
+	public BooleanAwareProperties(final String fileName) {
+		this(fileName, null);
+	}
+
+	public BooleanAwareProperties(final String fileName, final String profileName) {
+		loadProperties(fileName);
+		logCurrentConfiguration();
+
+		convertToProfilePrefix(profileName);
+	}
+
+	private void convertToProfilePrefix(String profileName) {
+		if (profileName == null || profileName.isEmpty()) {
+			LOG.info("No profile name given. Using default values only.");
+			profilePrefix = "";
+		} else {
+			LOG.info("Setting active profile to [{}]", profileName);
+			if (profileName.endsWith(".")) {
+				profilePrefix = profileName;
+			} else {
+				profilePrefix = profileName + ".";
+			}
+		}
+	}
+
+	private void logCurrentConfiguration() {
+		LOG.info("Current configuration is:");
+
+		for (final Object key : keySet()) {
+			LOG.info("[{}] = [{}]", key, getProperty(key.toString()));
+		}
+	}
+
+	private void loadProperties(String fileName) {
+		LOG.debug("Loading properties from file...");
+
+		try (final InputStream inputStream = new FileInputStream(fileName)) {
+			LOG.info("File [{}] found. Reading values.", fileName);
+			load(inputStream);
+		} catch (IOException e) {
+			throw new RuntimeException("Loading the properties failed!", e);
+		}
+
+		LOG.debug("Finished.");
+	}
+
+	public boolean getBooleanProperty(final Properties key) {
+		try {
+			final String stored = getProperty(key);
+			final boolean isNull = stored == null;
+			final boolean isEmpty = isNull || stored.isEmpty();
+			final boolean isTrue = "true".equalsIgnoreCase(stored);
+			return !isNull && !isEmpty && isTrue;
+		} catch (NullPointerException e) {
+			LOG.info("Key [{}] not configured. Defaulting to [{}].", key.keyName(), false);
+			return false;
+		}
+	}
+
+	public String getProperty(Properties key) {
+		//TODO: only fetch with profile if there actually is a profile configured.
+		LOG.debug("Trying to fetch property for key [{}] with profile [{}]", key.keyName(), profilePrefix);
+		String property = getProperty(profilePrefix + key.keyName());
+
+		if (property == null || property.isEmpty()) {
+			LOG.debug("Fetching with profile failed. Resolving value without profile.");
+			property = getProperty(key.keyName());
+		}
+
+		if (property == null || property.isEmpty()) {
+			throw new NullPointerException("Key [" + key.keyName() + "] is not configured.");
+		}
+
+		return property;
+	}
+
+	public String getProperty(final Properties key, final String defaultValue) {
+		try {
+			return getProperty(key);
+		} catch (NullPointerException e) {
+			LOG.debug("Key [{}] not configured. Defaulting to [{}].", key.keyName(), defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public int getIntegerProperty(final Properties key, final int defaultValue) {
+		return Integer.parseInt(getProperty(key, String.valueOf(defaultValue)).trim());
+	}
+
+	public long getLongProperty(final Properties key, final long defaultValue) {
+		return Long.parseLong(getProperty(key, String.valueOf(defaultValue)).trim());
+	}
+
+	public double getDoubleProperty(final Properties key, final double defaultValue) {
+		return Double.parseDouble(getProperty(key, String.valueOf(defaultValue)).trim());
+	}
+
+
+	public enum Properties {
+
+		DELETE_INPUT_FILE {
+			@Override
+			public String keyName() {
+				return "input.delete";
+			}
+		},
+		INPUT_DIRECTORY {
+			@Override
+			public String keyName() {
+				return "input.directory";
+			}
+		},
+		FILE_PROJECT_DELIMITER {
+			@Override
+			public String keyName() {
+				return "projectDelimiter";
+			}
+		},
+		OUTPUT_DIRECTORY {
+			@Override
+			public String keyName() {
+				return "output.directory";
+			}
+		},
+		OUTPUT_FILE_SUFFIX {
+			@Override
+			public String keyName() {
+				return "outputFileSuffix";
+			}
+		},
+		ORIGINAL_FILE_SUFFIX {
+			@Override
+			public String keyName() {
+				return "originalFileSuffix";
+			}
+		},
+		DRY_RUN {
+			@Override
+			public String keyName() {
+				return "dryRun";
+			}
+		},
+		FFMPEG {
+			@Override
+			public String keyName() {
+				return "ffmpeg";
+			}
+		},
+		COPY_ONLY {
+			@Override
+			public String keyName() {
+				return "copyOnly";
+			}
+		},
+		USE_FADING {
+			@Override
+			public String keyName() {
+				return "fading.attach";
+			}
+		},
+		FADING_DURATION {
+			@Override
+			public String keyName() {
+				return "fading.duration";
+			}
+		},
+		INTRO_PATH {
+			@Override
+			public String keyName() {
+				return "intro.path";
+			}
+		},
+		USE_INTRO {
+			@Override
+			public String keyName() {
+				return "intro.attach";
+			}
+		},
+		UPLOAD_TO_YOUTUBE {
+			@Override
+			public String keyName() {
+				return "yt.upload";
+			}
+		},
+		PERFORMANCE_STORE {
+			@Override
+			public String keyName() {
+				return "performance.store";
+			}
+		},
+		PERFORMANCE_MAX_RECORDS {
+			@Override
+			public String keyName() {
+				return "performance.maxRecords";
+			}
+		},
+		PLANNER_MAX_CONCURRENCY {
+			@Override
+			public String keyName() {
+				return "planner.maxConcurrency";
+			}
+		},
+		PLANNER_CORES {
+			@Override
+			public String keyName() {
+				return "planner.cores";
+			}
+		},
+		PLANNER_DEFAULT_SPEED_FACTOR {
+			@Override
+			public String keyName() {
+				return "planner.defaultSpeedFactor";
+			}
+		},
+		UPLOAD_ENDPOINT {
+			@Override
+			public String keyName() {
+				return "upload.endpoint";
+			}
+		},
+		UPLOAD_PARALLEL {
+			@Override
+			public String keyName() {
+				return "upload.parallel";
+			}
+		},
+		UPLOAD_QUEUE_SIZE {
+			@Override
+			public String keyName() {
+				return "upload.queueSize";
+			}
+		},
+		UPLOAD_CHUNK_SIZE {
+			@Override
+			public String keyName() {
+				return "upload.chunkSize";
+			}
+		},
+		UPLOAD_RETRIES {
+			@Override
+			public String keyName() {
+				return "upload.retries";
+			}
+		},
+		UPLOAD_BACKOFF {
+			@Override
+			public String keyName() {
+				return "upload.backoffMillis";
+			}
+		},
+		UPLOAD_BANDWIDTH {
+			@Override
+			public String keyName() {
+				return "upload.bandwidth";
+			}
+		},
+		RENDITIONS {
+			@Override
+			public String keyName() {
+				return "renditions";
+			}
+		},
+		OUTPUT_MODE {
+			@Override
+			public String keyName() {
+				return "output.mode";
+			}
+		},
+		SEGMENT_DURATION {
+			@Override
+			public String keyName() {
+				return "segments.duration";
+			}
+		},
+		SEGMENT_REMUX {
+			@Override
+			public String keyName() {
+				return "segments.remux";
+			}
+		},
+		TAIL_ENABLED {
+			@Override
+			public String keyName() {
+				return "tail.enabled";
+			}
+		},
+		TAIL_IDLE_SECONDS {
+			@Override
+			public String keyName() {
+				return "tail.idleSeconds";
+			}
+		},
+		TAIL_STABLE_CHECKS {
+			@Override
+			public String keyName() {
+				return "tail.stableChecks";
+			}
+		},
+		TAIL_POLL_MILLIS {
+			@Override
+			public String keyName() {
+				return "tail.pollMillis";
+			}
+		},
+		TAIL_SEGMENT_SECONDS {
+			@Override
+			public String keyName() {
+				return "tail.segmentSeconds";
+			}
+		},
+		INTERMEDIATE_DIRECTORY {
+			@Override
+			public String keyName() {
+				return "intermediate.directory";
+			}
+		},
+		INTERMEDIATE_MIN_FREE {
+			@Override
+			public String keyName() {
+				return "intermediate.minFree";
+			}
+		},
+		TRANSFER_PARALLEL {
+			@Override
+			public String keyName() {
+				return "transfer.parallel";
+			}
+		},
+		PIPELINE_USE_FILES {
+			@Override
+			public String keyName() {
+				return "pipeline.useFiles";
+			}
+		},
+		STAGES {
+			@Override
+			public String keyName() {
+				return "stages";
+			}
+		},
+		STAGES_LIMIT_CPU {
+			@Override
+			public String keyName() {
+				return "stages.limit.cpu";
+			}
+		},
+		STAGES_LIMIT_DISK {
+			@Override
+			public String keyName() {
+				return "stages.limit.disk";
+			}
+		},
+		STAGES_LIMIT_NETWORK {
+			@Override
+			public String keyName() {
+				return "stages.limit.network";
+			}
+		},
+		BATCH_MAX_DURATION {
+			@Override
+			public String keyName() {
+				return "batch.maxDuration";
+			}
+		},
+		BATCH_SIZE {
+			@Override
+			public String keyName() {
+				return "batch.size";
+			}
+		},
+		COMPILATION {
+			@Override
+			public String keyName() {
+				return "compilation.enabled";
+			}
+		},
+		COMPILATION_ORDER {
+			@Override
+			public String keyName() {
+				return "compilation.order";
+			}
+		},
+		THUMBNAILS_ENABLED {
+			@Override
+			public String keyName() {
+				return "thumbnails.enabled";
+			}
+		},
+		THUMBNAILS_INTERVAL {
+			@Override
+			public String keyName() {
+				return "thumbnails.interval";
+			}
+		},
+		THUMBNAILS_WIDTH {
+			@Override
+			public String keyName() {
+				return "thumbnails.width";
+			}
+		},
+		THUMBNAILS_COLUMNS {
+			@Override
+			public String keyName() {
+				return "thumbnails.columns";
+			}
+		},
+		THUMBNAILS_ROWS {
+			@Override
+			public String keyName() {
+				return "thumbnails.rows";
+			}
+		},
+		THUMBNAILS_POSTER {
+			@Override
+			public String keyName() {
+				return "thumbnails.posterSecond";
+			}
+		},
+		PROXY_ENABLED {
+			@Override
+			public String keyName() {
+				return "proxy.enabled";
+			}
+		},
+		PROXY_HEIGHT {
+			@Override
+			public String keyName() {
+				return "proxy.height";
+			}
+		},
+		CROP_ENABLED {
+			@Override
+			public String keyName() {
+				return "crop.enabled";
+			}
+		},
+		CROP_SAMPLES {
+			@Override
+			public String keyName() {
+				return "crop.samples";
+			}
+		},
+		CROP_PARALLEL {
+			@Override
+			public String keyName() {
+				return "crop.parallel";
+			}
+		},
+		LOUDNESS_ENABLED {
+			@Override
+			public String keyName() {
+				return "loudness.enabled";
+			}
+		},
+		LOUDNESS_TARGET {
+			@Override
+			public String keyName() {
+				return "loudness.target";
+			}
+		},
+		LOUDNESS_TRUE_PEAK {
+			@Override
+			public String keyName() {
+				return "loudness.truePeak";
+			}
+		},
+		LOUDNESS_RANGE {
+			@Override
+			public String keyName() {
+				return "loudness.range";
+			}
+		},
+		RESOURCES_NICE {
+			@Override
+			public String keyName() {
+				return "resources.nice";
+			}
+		},
+		RESOURCES_IONICE {
+			@Override
+			public String keyName() {
+				return "resources.ionice";
+			}
+		},
+		RESOURCES_DISK_BANDWIDTH {
+			@Override
+			public String keyName() {
+				return "resources.diskBandwidth";
+			}
+		},
+		RESOURCES_WINDOWS {
+			@Override
+			public String keyName() {
+				return "resources.windows";
+			}
+		},
+		RESOURCES_MAX_LOAD {
+			@Override
+			public String keyName() {
+				return "resources.maxLoad";
+			}
+		},
+		RESOURCES_MAX_CPU_PRESSURE {
+			@Override
+			public String keyName() {
+				return "resources.maxCpuPressure";
+			}
+		},
+		RESOURCES_POLL_SECONDS {
+			@Override
+			public String keyName() {
+				return "resources.pollSeconds";
+			}
+		},
+		LOGS_DIRECTORY {
+			@Override
+			public String keyName() {
+				return "logs.directory";
+			}
+		},
+		LOGS_TAIL_LINES {
+			@Override
+			public String keyName() {
+				return "logs.tailLines";
+			}
+		},
+		LOGS_SUMMARY_SECONDS {
+			@Override
+			public String keyName() {
+				return "logs.summarySeconds";
+			}
+		},
+		SERVER_PORT {
+			@Override
+			public String keyName() {
+				return "server.port";
+			}
+		},
+		SERVER_ADDRESS {
+			@Override
+			public String keyName() {
+				return "server.address";
+			}
+		},
+		JOBS_PARALLEL {
+			@Override
+			public String keyName() {
+				return "jobs.parallel";
+			}
+		},
+		TRIM_START {
+			@Override
+			public String keyName() {
+				return "trim.start";
+			}
+		},
+		TRIM_END {
+			@Override
+			public String keyName() {
+				return "trim.end";
+			}
+		},
+		TRIM_ACCURATE {
+			@Override
+			public String keyName() {
+				return "trim.accurate";
+			}
+		},
+		VERIFY_SKIP {
+			@Override
+			public String keyName() {
+				return "verify.skip";
+			}
+		},
+		VERIFY_TOLERANCE {
+			@Override
+			public String keyName() {
+				return "verify.tolerance";
+			}
+		};
+
+		abstract public String keyName();
+	}
+
+	public String getProfile() {
+		return profilePrefix.substring(0, profilePrefix.length() - 1);
+	}
+
+	public void setProfile(final String profile) {
+		convertToProfilePrefix(profile);
+	}
+}
+
@@ -0,0 +1,174 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Result of a {@link DryRunPlanner} simulation: per job estimates and the projected totals for every concurrency level.
+ */
+public class CapacityPlan {
+
+	private final List<JobEstimate> jobs;
+	private final List<Level> levels;
+	private final int recommendedConcurrency;
+
+	CapacityPlan(final List<JobEstimate> jobs, final List<Level> levels, final int recommendedConcurrency) {
+		this.jobs = Collections.unmodifiableList(new ArrayList<>(jobs));
+		this.levels = Collections.unmodifiableList(new ArrayList<>(levels));
+		this.recommendedConcurrency = recommendedConcurrency;
+	}
+
+	public List<JobEstimate> getJobs() {
+		return jobs;
+	}
+
+	public List<Level> getLevels() {
+		return levels;
+	}
+
+	public int getRecommendedConcurrency() {
+		return recommendedConcurrency;
+	}
+
+	public double getTotalCpuSeconds() {
+		double total = 0;
+		for (final JobEstimate job : jobs) {
+			total += job.getCpuSeconds();
+		}
+		return total;
+	}
+
+	public long getTotalOutputBytes() {
+		long total = 0;
+		for (final JobEstimate job : jobs) {
+			total += job.getOutputBytes();
+		}
+		return total;
+	}
+
+	public void log(final Logger log) {
+		log.info("Dry run plan for [{}] jobs:", jobs.size());
+		for (final JobEstimate job : jobs) {
+			log.info("  [{}] media [{}], wall [{}], cpu [{}], intermediate [{}], output [{}]{}", job.getFile().getName(),
+					EtaPredictor.format(job.getMediaSeconds()), EtaPredictor.format(job.getWallSeconds()),
+					EtaPredictor.format(job.getCpuSeconds()), formatBytes(job.getIntermediateBytes()),
+					formatBytes(job.getOutputBytes()), job.isFromHistory() ? "" : " (no history, default speed)");
+		}
+
+		log.info("Total CPU time [{}], total output size [{}].", EtaPredictor.format(getTotalCpuSeconds()),
+				formatBytes(getTotalOutputBytes()));
+
+		for (final Level level : levels) {
+			log.info("  concurrency [{}]: wall time [{}], peak intermediate disk [{}]", level.getConcurrency(),
+					EtaPredictor.format(level.getWallSeconds()), formatBytes(level.getPeakIntermediateBytes()));
+		}
+
+		log.info("Recommended concurrency is [{}].", recommendedConcurrency);
+	}
+
+	static String formatBytes(final long bytes) {
+		if (bytes < 1024) {
+			return bytes + " B";
+		}
+		final int exponent = (int) (Math.log(bytes) / Math.log(1024));
+		return String.format(Locale.ROOT, "%.1f %siB", bytes / Math.pow(1024, exponent), "KMGTPE".charAt(exponent - 1));
+	}
+
+	/**
+	 * Estimated cost of a single input file or, in compilation mode, of a project named after its first part.
+	 */
+	public static class JobEstimate {
+
+		private final File file;
+		private final double mediaSeconds;
+		private final double wallSeconds;
+		private final double cpuSeconds;
+		private final long intermediateBytes;
+		private final long outputBytes;
+		private final boolean fromHistory;
+
+		JobEstimate(final File file, final double mediaSeconds, final double wallSeconds, final double cpuSeconds,
+				final long intermediateBytes, final long outputBytes, final boolean fromHistory) {
+			this.file = file;
+			this.mediaSeconds = mediaSeconds;
+			this.wallSeconds = wallSeconds;
+			this.cpuSeconds = cpuSeconds;
+			this.intermediateBytes = intermediateBytes;
+			this.outputBytes = outputBytes;
+			this.fromHistory = fromHistory;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public double getMediaSeconds() {
+			return mediaSeconds;
+		}
+
+		/**
+		 * @return wall time if the job had the machine for itself.
+		 */
+		public double getWallSeconds() {
+			return wallSeconds;
+		}
+
+		public double getCpuSeconds() {
+			return cpuSeconds;
+		}
+
+		public long getIntermediateBytes() {
+			return intermediateBytes;
+		}
+
+		public long getOutputBytes() {
+			return outputBytes;
+		}
+
+		public boolean isFromHistory() {
+			return fromHistory;
+		}
+
+		/**
+		 * @return this estimate with the CPU time of the input's proxy added. The proxies are encoded before the
+		 * jobs start, so the job's wall time does not change.
+		 */
+		JobEstimate withProxy(final double proxyCpuSeconds) {
+			return new JobEstimate(file, mediaSeconds, wallSeconds, cpuSeconds + proxyCpuSeconds, intermediateBytes,
+					outputBytes, fromHistory);
+		}
+	}
+
+	/**
+	 * Projection of the whole backlog for one concurrency level.
+	 */
+	public static class Level {
+
+		private final int concurrency;
+		private final double wallSeconds;
+		private final long peakIntermediateBytes;
+
+		Level(final int concurrency, final double wallSeconds, final long peakIntermediateBytes) {
+			this.concurrency = concurrency;
+			this.wallSeconds = wallSeconds;
+			this.peakIntermediateBytes = peakIntermediateBytes;
+		}
+
+		public int getConcurrency() {
+			return concurrency;
+		}
+
+		public double getWallSeconds() {
+			return wallSeconds;
+		}
+
+		public long getPeakIntermediateBytes() {
+			return peakIntermediateBytes;
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+
+/**
+ * Uploads a single file in chunks to a resumable HTTP endpoint.
+ * <p>
+ * Every chunk is sent as <code>PUT &lt;endpoint&gt;/&lt;file name&gt;</code> with a
+ * <code>Content-Range: bytes start-end/total</code> header. The endpoint answers 308 while the upload is incomplete
+ * and 200 or 201 once the last byte arrived. The offset of the last acknowledged chunk is persisted in a
+ * <code>.upload</code> sidecar next to the file so an interrupted upload continues where it stopped, even across
+ * runs. Before resuming, the endpoint is asked for its state with <code>Content-Range: bytes *&#47;total</code> and
+ * answers with a <code>Range: bytes=0-last</code> header.
+ * <p>
+ * Failed requests are retried with exponential backoff. Server errors and I/O problems are retried, client errors
+ * are not.
+ */
+public class ChunkedUploader {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ChunkedUploader.class);
+
+	static final String SIDECAR_SUFFIX = ".upload";
+	static final int RESUME_INCOMPLETE = 308;
+
+	private static final long MAX_BACKOFF_MILLIS = 60000;
+
+	private final String endpoint;
+	private final int chunkSize;
+	private final int retries;
+	private final long backoffMillis;
+	private final Optional<RateLimiter> bandwidthLimiter;
+
+	public ChunkedUploader(final String endpoint, final int chunkSize, final int retries, final long backoffMillis,
+			final Optional<RateLimiter> bandwidthLimiter) {
+		this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+		this.chunkSize = chunkSize;
+		this.retries = retries;
+		this.backoffMillis = backoffMillis;
+		this.bandwidthLimiter = bandwidthLimiter;
+	}
+
+	public void upload(final Path file) throws IOException, InterruptedException {
+		final long total = Files.size(file);
+		if (total == 0) {
+			throw new IOException("Refusing to upload empty file [" + file + "].");
+		}
+
+		final URL url = new URL(endpoint + "/" + URLEncoder.encode(file.getFileName().toString(), "UTF-8").replace("+", "%20"));
+
+		long offset = loadOffset(file);
+		if (offset > 0) {
+			offset = queryOffset(url, total, offset);
+			LOG.info("Resuming upload of [{}] at byte [{}] of [{}].", file.getFileName(), offset, total);
+		} else {
+			LOG.info("Uploading [{}] ([{}] bytes) to [{}].", file.getFileName(), total, url);
+		}
+
+		final byte[] buffer = new byte[chunkSize];
+		try (final FileChannel channel = FileChannel.open(file)) {
+			while (offset < total) {
+				final int length = (int) Math.min(chunkSize, total - offset);
+				readFully(channel, buffer, offset, length);
+
+				if (bandwidthLimiter.isPresent() && length > 0) {
+					bandwidthLimiter.get().acquire(length);
+				}
+
+				sendWithRetry(url, buffer, offset, length, total);
+				offset += length;
+				storeOffset(file, offset);
+				LOG.debug("Uploaded [{}] of [{}] bytes of [{}].", offset, total, file.getFileName());
+			}
+		}
+
+		Files.deleteIfExists(sidecar(file));
+		LOG.info("Upload of [{}] finished.", file.getFileName());
+	}
+
+	private void sendWithRetry(final URL url, final byte[] buffer, final long offset, final int length,
+			final long total) throws IOException, InterruptedException {
+		long backoff = backoffMillis;
+		for (int attempt = 0; ; attempt++) {
+			try {
+				sendChunk(url, buffer, offset, length, total);
+				return;
+			} catch (RetryableUploadException e) {
+				if (attempt >= retries) {
+					throw e;
+				}
+				LOG.warn("Uploading chunk at [{}] failed ({}). Retrying in [{}] ms.", offset, e.getMessage(), backoff);
+				Thread.sleep(backoff);
+				backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+			}
+		}
+	}
+
+	private void sendChunk(final URL url, final byte[] buffer, final long offset, final int length, final long total)
+			throws IOException {
+		final int status;
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) url.openConnection();
+			connection.setRequestMethod("PUT");
+			connection.setInstanceFollowRedirects(false);
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(length);
+			connection.setRequestProperty("Content-Type", "application/octet-stream");
+			connection.setRequestProperty("Content-Range", "bytes " + offset + "-" + (offset + length - 1) + "/" + total);
+
+			try (final OutputStream output = connection.getOutputStream()) {
+				output.write(buffer, 0, length);
+			}
+
+			status = connection.getResponseCode();
+		} catch (IOException e) {
+			throw new RetryableUploadException(e.toString(), e);
+		} finally {
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+
+		if (status == RESUME_INCOMPLETE || (status >= 200 && status < 300)) {
+			return;
+		}
+		if (status >= 500 || status == 429) {
+			throw new RetryableUploadException("Endpoint answered with status " + status);
+		}
+		throw new IOException("Upload rejected by endpoint with status " + status);
+	}
+
+	/**
+	 * Asks the endpoint how many bytes it already has. Falls back to the persisted offset if it cannot tell.
+	 */
+	private long queryOffset(final URL url, final long total, final long persisted) {
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) url.openConnection();
+			connection.setRequestMethod("PUT");
+			connection.setInstanceFollowRedirects(false);
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(0);
+			connection.setRequestProperty("Content-Range", "bytes */" + total);
+			connection.getOutputStream().close();
+
+			final int status = connection.getResponseCode();
+			if (status >= 200 && status < 300) {
+				return total;
+			}
+			if (status == RESUME_INCOMPLETE) {
+				final String range = connection.getHeaderField("Range");
+				if (range == null) {
+					return 0;
+				}
+				return Long.parseLong(range.substring(range.indexOf('-') + 1).trim()) + 1;
+			}
+		} catch (IOException | NumberFormatException e) {
+			LOG.debug("Could not query upload state. Using persisted offset [{}].", persisted, e);
+		} finally {
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+		return persisted;
+	}
+
+	private static void readFully(final FileChannel channel, final byte[] buffer, final long offset, final int length)
+			throws IOException {
+		final ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+		long position = offset;
+		while (target.hasRemaining()) {
+			final int read = channel.read(target, position);
+			if (read < 0) {
+				throw new IOException("File shrank while uploading.");
+			}
+			position += read;
+		}
+	}
+
+	static Path sidecar(final Path file) {
+		return Paths.get(file.toAbsolutePath() + SIDECAR_SUFFIX);
+	}
+
+	static long loadOffset(final Path file) throws IOException {
+		final Path sidecar = sidecar(file);
+		if (!Files.exists(sidecar)) {
+			return 0;
+		}
+
+		final Properties state = new Properties();
+		try (final Reader reader = Files.newBufferedReader(sidecar, StandardCharsets.UTF_8)) {
+			state.load(reader);
+		}
+
+		final Optional<Long> size = parse(state.getProperty("size"));
+		final Optional<Long> modified = parse(state.getProperty("modified"));
+		final Optional<Long> offset = parse(state.getProperty("offset"));
+		if (!size.isPresent() || !modified.isPresent() || !offset.isPresent()
+				|| size.get() != Files.size(file) || modified.get() != Files.getLastModifiedTime(file).toMillis()) {
+			LOG.info("Upload state of [{}] does not match the file anymore. Starting over.", file.getFileName());
+			return 0;
+		}
+		return offset.get();
+	}
+
+	static void storeOffset(final Path file, final long offset) throws IOException {
+		final Properties state = new Properties();
+		state.setProperty("offset", String.valueOf(offset));
+		state.setProperty("size", String.valueOf(Files.size(file)));
+		state.setProperty("modified", String.valueOf(Files.getLastModifiedTime(file).toMillis()));
+
+		try (final Writer writer = Files.newBufferedWriter(sidecar(file), StandardCharsets.UTF_8)) {
+			state.store(writer, "resumable upload state");
+		}
+	}
+
+	private static Optional<Long> parse(final String value) {
+		try {
+			return value == null ? Optional.<Long>absent() : of(Long.parseLong(value));
+		} catch (NumberFormatException e) {
+			return absent();
+		}
+	}
+
+	static class RetryableUploadException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		RetryableUploadException(final String message) {
+			super(message);
+		}
+
+		RetryableUploadException(final String message, final Throwable cause) {
+			super(message, cause);
+		}
+	}
+}
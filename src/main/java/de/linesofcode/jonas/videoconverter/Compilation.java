@@ -0,0 +1,74 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helpers for compilation mode, which joins all recordings of a project into one output.
+ */
+public final class Compilation {
+
+	/** Codecs the mp4 output can take over unchanged. */
+	private static final Set<String> COPYABLE_CODECS = ImmutableSet.of("h264", "aac");
+
+	public enum Order {
+		NAME, TIMESTAMP
+	}
+
+	private Compilation() {
+	}
+
+	/**
+	 * @return the parts sorted by file name or by modification time, oldest first. Ties are broken by name.
+	 */
+	public static List<File> order(final List<File> parts, final Order order) {
+		final List<File> sorted = new ArrayList<>(parts);
+		Collections.sort(sorted, new Comparator<File>() {
+			@Override
+			public int compare(final File first, final File second) {
+				if (order == Order.TIMESTAMP && first.lastModified() != second.lastModified()) {
+					return first.lastModified() < second.lastModified() ? -1 : 1;
+				}
+				return first.getName().compareTo(second.getName());
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * @return whether the parts can be joined by stream copy: all parts have the same streams with the same codecs
+	 * and resolution and all codecs can be stored in mp4 as they are.
+	 */
+	public static boolean canStreamCopy(final List<MediaInfo> parts) {
+		if (parts.isEmpty()) {
+			return false;
+		}
+
+		final List<String> reference = signature(parts.get(0));
+		for (final MediaInfo part : parts) {
+			if (!signature(part).equals(reference)) {
+				return false;
+			}
+			for (final MediaInfo.StreamInfo stream : part.getStreams()) {
+				if (!COPYABLE_CODECS.contains(stream.getCodecName())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static List<String> signature(final MediaInfo info) {
+		final List<String> signature = new ArrayList<>();
+		for (final MediaInfo.StreamInfo stream : info.getStreams()) {
+			signature.add(stream.getCodecType() + ":" + stream.getCodecName() + ":" + stream.getWidth() + "x" + stream.getHeight());
+		}
+		return signature;
+	}
+}
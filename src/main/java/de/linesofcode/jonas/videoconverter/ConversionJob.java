@@ -0,0 +1,175 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * A file submitted through the {@link JobServer}. Higher priorities run first, equal priorities in submission order.
+ */
+public class ConversionJob implements Comparable<ConversionJob> {
+
+	public enum State {
+		QUEUED, RUNNING, DONE, FAILED, CANCELLED
+	}
+
+	private final String id;
+	private final long sequence;
+	private final File input;
+	private final Optional<String> profile;
+	private final int priority;
+	private final long submitted = System.currentTimeMillis();
+
+	private State state = State.QUEUED;
+	private long started;
+	private long finished;
+	private Optional<Double> estimate = Optional.absent();
+	private String error;
+	private Thread worker;
+	private boolean cancelRequested;
+
+	public ConversionJob(final long sequence, final File input, final Optional<String> profile, final int priority) {
+		this.id = String.valueOf(sequence);
+		this.sequence = sequence;
+		this.input = input;
+		this.profile = profile;
+		this.priority = priority;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public File getInput() {
+		return input;
+	}
+
+	public Optional<String> getProfile() {
+		return profile;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized void setEstimate(final Optional<Double> estimate) {
+		this.estimate = estimate;
+	}
+
+	/**
+	 * @return false if the job was cancelled while it was queued.
+	 */
+	synchronized boolean start(final Thread worker) {
+		if (state != State.QUEUED) {
+			return false;
+		}
+		this.state = State.RUNNING;
+		this.worker = worker;
+		this.started = System.currentTimeMillis();
+		return true;
+	}
+
+	/**
+	 * A cancel only counts if it stopped the work. Work that completed before the interrupt reached it is done.
+	 */
+	synchronized void finish(final Optional<RuntimeException> failure) {
+		worker = null;
+		finished = System.currentTimeMillis();
+		if (cancelRequested && failure.isPresent()) {
+			state = State.CANCELLED;
+		} else if (failure.isPresent()) {
+			state = State.FAILED;
+			error = String.valueOf(failure.get().getMessage());
+		} else {
+			state = State.DONE;
+		}
+	}
+
+	/**
+	 * Cancels a queued job right away and interrupts a running one, which stops its ffmpeg processes.
+	 *
+	 * @return false if the job has already finished.
+	 */
+	synchronized boolean cancel() {
+		if (state == State.QUEUED) {
+			state = State.CANCELLED;
+			finished = System.currentTimeMillis();
+			return true;
+		}
+		if (state == State.RUNNING) {
+			cancelRequested = true;
+			worker.interrupt();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the share of the predicted encode time that has passed, capped at 99% until the job finished.
+	 */
+	synchronized Optional<Double> progress(final long now) {
+		if (state == State.DONE) {
+			return Optional.of(1.0);
+		}
+		if (state != State.RUNNING || !estimate.isPresent()) {
+			return Optional.absent();
+		}
+		return Optional.of(Math.min(0.99, (now - started) / 1000.0 / Math.max(estimate.get(), 1)));
+	}
+
+	synchronized Optional<Double> remainingSeconds(final long now) {
+		if (state != State.RUNNING || !estimate.isPresent()) {
+			return Optional.absent();
+		}
+		return Optional.of(Math.max(0, estimate.get() - (now - started) / 1000.0));
+	}
+
+	@Override
+	public int compareTo(final ConversionJob other) {
+		if (priority != other.priority) {
+			return Integer.compare(other.priority, priority);
+		}
+		return Long.compare(sequence, other.sequence);
+	}
+
+	public synchronized String toJson() {
+		final long now = System.currentTimeMillis();
+		final StringBuilder builder = new StringBuilder("{");
+		builder.append("\"id\":").append(quote(id));
+		builder.append(",\"input\":").append(quote(input.getAbsolutePath()));
+		builder.append(",\"profile\":").append(profile.isPresent() ? quote(profile.get()) : "null");
+		builder.append(",\"priority\":").append(priority);
+		builder.append(",\"state\":").append(quote(state.name()));
+		builder.append(",\"submitted\":").append(submitted);
+		builder.append(",\"started\":").append(started > 0 ? String.valueOf(started) : "null");
+		builder.append(",\"finished\":").append(finished > 0 ? String.valueOf(finished) : "null");
+		builder.append(",\"progress\":").append(number(progress(now)));
+		builder.append(",\"estimatedSeconds\":").append(number(estimate));
+		builder.append(",\"remainingSeconds\":").append(number(remainingSeconds(now)));
+		builder.append(",\"error\":").append(error == null ? "null" : quote(error));
+		return builder.append("}").toString();
+	}
+
+	private static String number(final Optional<Double> value) {
+		return value.isPresent() ? String.format(Locale.ROOT, "%.2f", value.get()) : "null";
+	}
+
+	static String quote(final String value) {
+		final StringBuilder builder = new StringBuilder("\"");
+		for (final char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < 0x20) {
+				builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.append('"').toString();
+	}
+}
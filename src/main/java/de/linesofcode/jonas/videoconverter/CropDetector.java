@@ -0,0 +1,188 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.CROP_PARALLEL;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.CROP_SAMPLES;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
+
+/**
+ * Detects black borders by running ffmpeg's cropdetect on short samples spread across the input. The samples are
+ * analysed in parallel. The detected rectangle is the union of all samples, so nothing that is visible in any
+ * sample is cut off.
+ */
+public class CropDetector {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CropDetector.class);
+
+	private static final Pattern CROP = Pattern.compile("crop=(-?\\d+):(-?\\d+):(-?\\d+):(-?\\d+)");
+
+	/** Seconds analysed per sample. */
+	private static final int SAMPLE_SECONDS = 2;
+
+	/** Crops removing less than this share of the picture are not worth the filter. */
+	static final double MIN_REDUCTION = 0.05;
+
+	private final BooleanAwareProperties properties;
+	private final FfmpegController controller;
+	private final int samples;
+	private final int parallel;
+
+	public CropDetector(final BooleanAwareProperties properties, final FfmpegController controller) {
+		this.properties = properties;
+		this.controller = controller;
+		this.samples = properties.getIntegerProperty(CROP_SAMPLES, 6);
+		this.parallel = properties.getIntegerProperty(CROP_PARALLEL, 4);
+	}
+
+	/**
+	 * @return the crop rectangle or absent if the input has no significant borders.
+	 */
+	public Optional<Crop> detect(final File input, final MediaInfo info) {
+		LOG.info("Detecting crop of [{}] from [{}] samples.", input.getName(), samples);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(parallel);
+		final List<Future<Optional<Crop>>> results = new ArrayList<>();
+		try {
+			for (int i = 1; i <= samples; i++) {
+				final String command = buildSampleCommand(input, info.getDuration() * i / (samples + 1));
+				results.add(executor.submit(new Callable<Optional<Crop>>() {
+					@Override
+					public Optional<Crop> call() {
+						return parse(controller.readOutput(command));
+					}
+				}));
+			}
+
+			final List<Crop> crops = new ArrayList<>();
+			for (final Future<Optional<Crop>> result : results) {
+				try {
+					if (result.get().isPresent()) {
+						crops.add(result.get().get());
+					}
+				} catch (ExecutionException e) {
+					LOG.warn("Crop sample of [{}] failed.", input.getName(), e.getCause());
+				}
+			}
+
+			return choose(crops, info.getWidth(), info.getHeight());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	String buildSampleCommand(final File input, final double second) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(String.format(Locale.ROOT, " -ss %.3f", second));
+		builder.append(" -i \"").append(input.getAbsolutePath()).append("\"");
+		builder.append(" -t " + SAMPLE_SECONDS + " -map 0:0 -vf cropdetect=24:2:0 -f null -");
+		return builder.toString();
+	}
+
+	/**
+	 * @return the last rectangle cropdetect reported, which has seen the most frames.
+	 */
+	static Optional<Crop> parse(final List<String> lines) {
+		Crop crop = null;
+		for (final String line : lines) {
+			final Matcher matcher = CROP.matcher(line);
+			while (matcher.find()) {
+				final Crop candidate = new Crop(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+						Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4)));
+				// an all black frame yields an empty or negative rectangle.
+				if (candidate.getWidth() > 0 && candidate.getHeight() > 0) {
+					crop = candidate;
+				}
+			}
+		}
+		return crop == null ? Optional.<Crop>absent() : of(crop);
+	}
+
+	/**
+	 * @return the union of all samples if it removes at least {@link #MIN_REDUCTION} of the picture.
+	 */
+	static Optional<Crop> choose(final List<Crop> crops, final int width, final int height) {
+		if (crops.isEmpty() || width <= 0 || height <= 0) {
+			return absent();
+		}
+
+		int left = Integer.MAX_VALUE;
+		int top = Integer.MAX_VALUE;
+		int right = 0;
+		int bottom = 0;
+		for (final Crop crop : crops) {
+			left = Math.min(left, crop.getX());
+			top = Math.min(top, crop.getY());
+			right = Math.max(right, crop.getX() + crop.getWidth());
+			bottom = Math.max(bottom, crop.getY() + crop.getHeight());
+		}
+		right = Math.min(right, width);
+		bottom = Math.min(bottom, height);
+
+		// libx264 needs even dimensions.
+		final Crop union = new Crop((right - left) / 2 * 2, (bottom - top) / 2 * 2, left, top);
+		final double kept = (double) union.getWidth() * union.getHeight() / ((double) width * height);
+		if (kept > 1 - MIN_REDUCTION) {
+			LOG.info("Detected crop [{}] keeps [{}]% of the picture. Not cropping.", union.toFilter(), Math.round(kept * 100));
+			return absent();
+		}
+
+		LOG.info("Cropping to [{}], keeping [{}]% of the picture.", union.toFilter(), Math.round(kept * 100));
+		return of(union);
+	}
+
+	public static class Crop {
+
+		private final int width;
+		private final int height;
+		private final int x;
+		private final int y;
+
+		Crop(final int width, final int height, final int x, final int y) {
+			this.width = width;
+			this.height = height;
+			this.x = x;
+			this.y = y;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		public int getX() {
+			return x;
+		}
+
+		public int getY() {
+			return y;
+		}
+
+		public String toFilter() {
+			return "crop=" + width + ":" + height + ":" + x + ":" + y;
+		}
+	}
+}
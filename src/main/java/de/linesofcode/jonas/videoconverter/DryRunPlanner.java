@@ -0,0 +1,246 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.COPY_ONLY;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PLANNER_CORES;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PLANNER_DEFAULT_SPEED_FACTOR;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PLANNER_MAX_CONCURRENCY;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PROXY_ENABLED;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PROXY_HEIGHT;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_FADING;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_INTRO;
+
+/**
+ * Simulates a conversion run without touching any file.
+ * <p>
+ * Every input is probed and the active profile's pipeline is applied to it to estimate wall time, CPU time,
+ * intermediate disk usage and output size. Only the kept range of a trimmed input is encoded, and every rendition
+ * writes its own output. The estimates come from the {@link EtaPredictor} and fall back to
+ * {@code planner.defaultSpeedFactor} and the input size if there is no history yet. The backlog is then scheduled
+ * longest job first onto 1..N parallel slots, slowing every job down once the slots ask for more threads than
+ * there are cores. Proxies are encoded one after the other before the backlog starts.
+ */
+public class DryRunPlanner {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DryRunPlanner.class);
+
+	/** A concurrency level is recommended if it is within this factor of the fastest one. */
+	static final double RECOMMENDATION_TOLERANCE = 1.05;
+
+	private final BooleanAwareProperties properties;
+	private final FfmpegController controller;
+	private final EtaPredictor predictor;
+
+	public DryRunPlanner(final BooleanAwareProperties properties, final FfmpegController controller,
+			final EtaPredictor predictor) {
+		this.properties = properties;
+		this.controller = controller;
+		this.predictor = predictor;
+	}
+
+	public CapacityPlan plan(final List<File> inputs) {
+		final boolean proxies = properties.getBooleanProperty(PROXY_ENABLED) && !properties.getBooleanProperty(COPY_ONLY);
+
+		final List<CapacityPlan.JobEstimate> jobs = new ArrayList<>();
+		double proxySeconds = 0;
+		for (final File input : inputs) {
+			LOG.debug("Simulating [{}].", input.getName());
+			if (proxies) {
+				final double proxy = estimateProxy(controller.probe(input));
+				proxySeconds += proxy;
+				jobs.add(estimate(input).withProxy(proxy * FfmpegController.THREADS));
+			} else {
+				jobs.add(estimate(input));
+			}
+		}
+		return schedule(jobs, proxySeconds);
+	}
+
+	/**
+	 * Plans compilation mode, which encodes all parts of a project in one job.
+	 *
+	 * @param projects the ordered parts of every project.
+	 */
+	public CapacityPlan planCompilations(final List<List<File>> projects) {
+		final List<CapacityPlan.JobEstimate> jobs = new ArrayList<>();
+		for (final List<File> parts : projects) {
+			LOG.debug("Simulating compilation of {}.", parts);
+			jobs.add(estimateCompilation(parts));
+		}
+		return schedule(jobs, 0);
+	}
+
+	/**
+	 * @param serialSeconds wall time spent before the jobs start, like the proxies.
+	 */
+	private CapacityPlan schedule(final List<CapacityPlan.JobEstimate> jobs, final double serialSeconds) {
+		final int cores = properties.getIntegerProperty(PLANNER_CORES, Runtime.getRuntime().availableProcessors());
+		final int maxConcurrency = properties.getIntegerProperty(PLANNER_MAX_CONCURRENCY, Math.max(1, cores));
+
+		final List<Double> durations = new ArrayList<>();
+		final List<Long> intermediates = new ArrayList<>();
+		for (final CapacityPlan.JobEstimate job : jobs) {
+			durations.add(job.getWallSeconds());
+			intermediates.add(job.getIntermediateBytes());
+		}
+
+		final List<CapacityPlan.Level> levels = new ArrayList<>();
+		for (int concurrency = 1; concurrency <= maxConcurrency; concurrency++) {
+			final double contention = Math.max(1, concurrency * (double) FfmpegController.THREADS / cores);
+			levels.add(new CapacityPlan.Level(concurrency, serialSeconds + makespan(durations, concurrency, contention),
+					peakIntermediate(intermediates, concurrency)));
+		}
+
+		return new CapacityPlan(jobs, levels, recommend(levels));
+	}
+
+	private CapacityPlan.JobEstimate estimate(final File input) {
+		if (properties.getBooleanProperty(COPY_ONLY)) {
+			return new CapacityPlan.JobEstimate(input, 0, 0, 0, 0, input.length(), true);
+		}
+
+		final MediaInfo info = controller.probe(input);
+		final String pipeline = controller.getPipelineName();
+
+		final Optional<Double> predictedWall = predictor.predictWallSeconds(info, pipeline, FfmpegController.PRESET,
+				FfmpegController.THREADS);
+		final Optional<Long> predictedOutput = predictor.predictOutputBytes(info, pipeline, FfmpegController.PRESET,
+				FfmpegController.THREADS);
+
+		// a trimmed input is stream copied first and only its kept range is encoded.
+		final Optional<Trimmer.Trim> trim = controller.getTrim(input);
+		final double kept = trim.isPresent() && info.getDuration() > 0
+				? trim.get().keptSeconds(info.getDuration()) / info.getDuration() : 1;
+		final long trimmedBytes = trim.isPresent() ? Math.round(info.getSize() * kept) : 0;
+
+		final double wallSeconds;
+		if (predictedWall.isPresent()) {
+			wallSeconds = predictedWall.get() * kept;
+		} else {
+			final double speedFactor = properties.getDoubleProperty(PLANNER_DEFAULT_SPEED_FACTOR, 1.0);
+			wallSeconds = info.getDuration() * kept / speedFactor * encodePasses();
+		}
+
+		// without history the input size is a conservative upper bound for the h264 output.
+		final long renditionBytes = Math.round((predictedOutput.isPresent() ? predictedOutput.get() : info.getSize()) * kept);
+		final long outputBytes = renditionBytes * Math.max(1, controller.getRenditions().size());
+		final long intermediateBytes = (controller.writesIntermediate() ? outputBytes : 0) + trimmedBytes;
+
+		return new CapacityPlan.JobEstimate(input, info.getDuration() * kept, wallSeconds,
+				wallSeconds * FfmpegController.THREADS, intermediateBytes, outputBytes, predictedWall.isPresent());
+	}
+
+	/**
+	 * The parts are decoded and encoded in one pass that also attaches the intro, straight into the output. Without
+	 * fading, parts with matching mp4 codecs are only copied.
+	 */
+	private CapacityPlan.JobEstimate estimateCompilation(final List<File> parts) {
+		final String pipeline = controller.getPipelineName();
+		final double speedFactor = properties.getDoubleProperty(PLANNER_DEFAULT_SPEED_FACTOR, 1.0);
+
+		final List<MediaInfo> infos = new ArrayList<>();
+		double mediaSeconds = 0;
+		double wallSeconds = 0;
+		long inputBytes = 0;
+		long outputBytes = 0;
+		boolean fromHistory = true;
+		for (final File part : parts) {
+			final MediaInfo info = controller.probe(part);
+			infos.add(info);
+			final Optional<Double> predictedWall = predictor.predictWallSeconds(info, pipeline, FfmpegController.PRESET,
+					FfmpegController.THREADS);
+			final Optional<Long> predictedOutput = predictor.predictOutputBytes(info, pipeline, FfmpegController.PRESET,
+					FfmpegController.THREADS);
+
+			mediaSeconds += info.getDuration();
+			wallSeconds += predictedWall.isPresent() ? predictedWall.get() : info.getDuration() / speedFactor;
+			fromHistory &= predictedWall.isPresent();
+			inputBytes += info.getSize();
+			outputBytes += predictedOutput.isPresent() ? predictedOutput.get() : info.getSize();
+		}
+
+		if (!properties.getBooleanProperty(USE_FADING) && Compilation.canStreamCopy(infos)) {
+			return new CapacityPlan.JobEstimate(parts.get(0), mediaSeconds, 0, 0, 0, inputBytes, true);
+		}
+		return new CapacityPlan.JobEstimate(parts.get(0), mediaSeconds, wallSeconds,
+				wallSeconds * FfmpegController.THREADS, 0, outputBytes, fromHistory);
+	}
+
+	/**
+	 * Proxies use the ultrafast preset at proxy.height and have no performance history. They are assumed to be as
+	 * much faster than the default speed as they have fewer pixels.
+	 *
+	 * @return the wall seconds of the input's proxy.
+	 */
+	private double estimateProxy(final MediaInfo info) {
+		final double speedFactor = properties.getDoubleProperty(PLANNER_DEFAULT_SPEED_FACTOR, 1.0);
+		final int height = properties.getIntegerProperty(PROXY_HEIGHT, 540);
+		final double pixels = info.getHeight() > 0 ? Math.min(1, Math.pow((double) height / info.getHeight(), 2)) : 1;
+		return info.getDuration() / speedFactor * pixels;
+	}
+
+	private int encodePasses() {
+		if (properties.getBooleanProperty(USE_FADING) && properties.getBooleanProperty(USE_INTRO)) {
+			return 2;
+		}
+		return 1;
+	}
+
+	/**
+	 * Longest processing time first scheduling of the given jobs onto {@code concurrency} slots.
+	 */
+	static double makespan(final List<Double> durations, final int concurrency, final double contention) {
+		final List<Double> sorted = new ArrayList<>(durations);
+		Collections.sort(sorted, Collections.reverseOrder());
+
+		final PriorityQueue<Double> slots = new PriorityQueue<>();
+		for (int i = 0; i < concurrency; i++) {
+			slots.add(0.0);
+		}
+
+		double makespan = 0;
+		for (final Double duration : sorted) {
+			final double finish = slots.poll() + duration * contention;
+			makespan = Math.max(makespan, finish);
+			slots.add(finish);
+		}
+		return makespan;
+	}
+
+	/**
+	 * Worst case: the largest intermediates are on disk at the same time.
+	 */
+	static long peakIntermediate(final List<Long> intermediates, final int concurrency) {
+		final List<Long> sorted = new ArrayList<>(intermediates);
+		Collections.sort(sorted, Collections.reverseOrder());
+
+		long peak = 0;
+		for (int i = 0; i < Math.min(concurrency, sorted.size()); i++) {
+			peak += sorted.get(i);
+		}
+		return peak;
+	}
+
+	static int recommend(final List<CapacityPlan.Level> levels) {
+		double best = Double.MAX_VALUE;
+		for (final CapacityPlan.Level level : levels) {
+			best = Math.min(best, level.getWallSeconds());
+		}
+
+		for (final CapacityPlan.Level level : levels) {
+			if (level.getWallSeconds() <= best * RECOMMENDATION_TOLERANCE) {
+				return level.getConcurrency();
+			}
+		}
+		return 1;
+	}
+}
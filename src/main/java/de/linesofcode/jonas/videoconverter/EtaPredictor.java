@@ -0,0 +1,176 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Collections2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+
+/**
+ * Predicts encode wall time and output size from the records in a {@link PerformanceStore}.
+ * <p>
+ * The model normalises every record to its pixel throughput (source pixels per wall second) and takes the median
+ * of the most specific group of records that has enough samples: same host, pipeline, preset, thread count and
+ * resolution first, then dropping one criterion after the other.
+ */
+public class EtaPredictor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EtaPredictor.class);
+
+	static final int MIN_SAMPLES = 3;
+
+	private final PerformanceStore store;
+	private final String host;
+
+	public EtaPredictor(final PerformanceStore store) {
+		this(store, localHost());
+	}
+
+	public EtaPredictor(final PerformanceStore store, final String host) {
+		this.store = store;
+		this.host = host;
+	}
+
+	public static String localHost() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			return "unknown";
+		}
+	}
+
+	/**
+	 * @return the predicted wall time in seconds or absent if there is no usable history.
+	 */
+	public Optional<Double> predictWallSeconds(final MediaInfo input, final String pipeline, final String preset,
+			final int threads) {
+		final List<PerformanceRecord> records = selectRecords(input, pipeline, preset, threads);
+		if (records.isEmpty() || input.getDuration() <= 0) {
+			return absent();
+		}
+
+		final double pixelsPerSecond = input.getWidth() * (double) input.getHeight() * input.getFps();
+		if (pixelsPerSecond > 0) {
+			final List<Double> throughputs = new ArrayList<>();
+			for (final PerformanceRecord record : records) {
+				if (record.getPixelThroughput() > 0) {
+					throughputs.add(record.getPixelThroughput());
+				}
+			}
+			if (!throughputs.isEmpty()) {
+				return of(pixelsPerSecond * input.getDuration() / median(throughputs));
+			}
+		}
+
+		final List<Double> speedFactors = new ArrayList<>();
+		for (final PerformanceRecord record : records) {
+			if (record.getSpeedFactor() > 0) {
+				speedFactors.add(record.getSpeedFactor());
+			}
+		}
+		if (speedFactors.isEmpty()) {
+			return absent();
+		}
+		return of(input.getDuration() / median(speedFactors));
+	}
+
+	/**
+	 * @return the predicted output size in bytes or absent if there is no usable history.
+	 */
+	public Optional<Long> predictOutputBytes(final MediaInfo input, final String pipeline, final String preset,
+			final int threads) {
+		final List<PerformanceRecord> records = selectRecords(input, pipeline, preset, threads);
+		final List<Double> byteRates = new ArrayList<>();
+		for (final PerformanceRecord record : records) {
+			if (record.getOutputByteRate() > 0) {
+				byteRates.add(record.getOutputByteRate());
+			}
+		}
+		if (byteRates.isEmpty()) {
+			return absent();
+		}
+		return of(Math.round(median(byteRates) * input.getDuration()));
+	}
+
+	List<PerformanceRecord> selectRecords(final MediaInfo input, final String pipeline, final String preset,
+			final int threads) {
+		final List<PerformanceRecord> all = store.getRecords();
+
+		final List<Predicate<PerformanceRecord>> levels = new ArrayList<>();
+		levels.add(new Predicate<PerformanceRecord>() {
+			@Override
+			public boolean apply(final PerformanceRecord record) {
+				return host.equals(record.getHost()) && pipeline.equals(record.getPipeline())
+						&& preset.equals(record.getPreset()) && record.getThreads() == threads
+						&& record.getWidth() == input.getWidth() && record.getHeight() == input.getHeight()
+						&& Math.round(record.getFps()) == Math.round(input.getFps());
+			}
+		});
+		levels.add(new Predicate<PerformanceRecord>() {
+			@Override
+			public boolean apply(final PerformanceRecord record) {
+				return host.equals(record.getHost()) && pipeline.equals(record.getPipeline())
+						&& preset.equals(record.getPreset()) && record.getThreads() == threads;
+			}
+		});
+		levels.add(new Predicate<PerformanceRecord>() {
+			@Override
+			public boolean apply(final PerformanceRecord record) {
+				return host.equals(record.getHost()) && pipeline.equals(record.getPipeline())
+						&& preset.equals(record.getPreset());
+			}
+		});
+		levels.add(new Predicate<PerformanceRecord>() {
+			@Override
+			public boolean apply(final PerformanceRecord record) {
+				return pipeline.equals(record.getPipeline()) && preset.equals(record.getPreset());
+			}
+		});
+		levels.add(new Predicate<PerformanceRecord>() {
+			@Override
+			public boolean apply(final PerformanceRecord record) {
+				return pipeline.equals(record.getPipeline());
+			}
+		});
+
+		for (int level = 0; level < levels.size(); level++) {
+			final Collection<PerformanceRecord> matching = Collections2.filter(all, levels.get(level));
+			if (matching.size() >= MIN_SAMPLES) {
+				LOG.trace("Using [{}] performance records from level [{}].", matching.size(), level);
+				return new ArrayList<>(matching);
+			}
+		}
+
+		LOG.trace("Not enough specific history. Using all [{}] performance records.", all.size());
+		return all;
+	}
+
+	static double median(final List<Double> values) {
+		final List<Double> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+
+		final int middle = sorted.size() / 2;
+		if (sorted.size() % 2 == 1) {
+			return sorted.get(middle);
+		}
+		return (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+	}
+
+	/**
+	 * Formats seconds as H:MM:SS for log output.
+	 */
+	public static String format(final double seconds) {
+		final long total = Math.round(seconds);
+		return String.format("%d:%02d:%02d", total / 3600, (total % 3600) / 60, total % 60);
+	}
+}
@@ -1,204 +1,1117 @@
-package de.linesofcode.jonas.videoconverter;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FADING_DURATION;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.INTRO_PATH;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_FADING;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_INTRO;
-import static java.lang.Math.round;
-import static java.nio.file.Files.move;
-import static java.nio.file.Paths.get;
-
-public class FfmpegController {
-	private static final Logger LOG = LoggerFactory.getLogger(FfmpegController.class);
-
-	private static final String DURATION_PREFIX = "duration=";
-
-	private final BooleanAwareProperties properties;
-
-	public FfmpegController(BooleanAwareProperties properties) {
-		this.properties = properties;
-	}
-
-	public void executeCommand(final String command, boolean redirectErrors, boolean logOutput) {
-
-		if (command == null || command.isEmpty()) {
-			LOG.warn("No command given to FFMPEGController.executeCommand!");
-			return;
-		}
-
-		LOG.info("Executing command [{}].", command);
-
-		Process process = null;
-		try {
-			process = new ProcessBuilder(command).redirectErrorStream(redirectErrors).start();
-
-			if (logOutput) {
-				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-				String line = "";
-				while ((line = reader.readLine()) != null) {
-					LOG.info(line);
-				}
-			}
-
-			final int result = process.waitFor();
-			if (result != 0) {
-				throw new RuntimeException("FFMPEG process failed.");
-			}
-
-		} catch (InterruptedException | IOException e) {
-			throw new RuntimeException(e);
-		} finally {
-			if (process != null) {
-				process.destroy();
-			}
-		}
-	}
-
-	public BigDecimal getDuration(final File input) {
-
-		if (!input.exists()) {
-			throw new IllegalArgumentException("Inputfile [" + input.getAbsolutePath() + "] does not exist!");
-		}
-
-		if (input.isDirectory()) {
-			throw new IllegalArgumentException("Input [" + input.getAbsolutePath() + "] is a directory!");
-		}
-
-		final FfmpegCommandBuilder builder = new FfmpegCommandBuilder(properties);
-
-		final String command = builder.withFFMProbe().withShowFormat().withInput(input).build();
-
-		LOG.debug("Issuing ffprobe command [{}]", command);
-
-		Process process = null;
-		try {
-			process = new ProcessBuilder(command).redirectErrorStream(true).start();
-			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-			String line = "";
-			while ((line = reader.readLine())!= null) {
-				if (line.startsWith(DURATION_PREFIX)) {
-					final String duration = line.substring(DURATION_PREFIX.length());
-
-					final BigDecimal result = new BigDecimal(duration).round(new MathContext(2, RoundingMode.HALF_UP));
-					LOG.debug("Found duration [{}]", result);
-					return result;
-				}
-			}
-
-			process.waitFor();
-		} catch (InterruptedException | IOException e) {
-		        throw new RuntimeException(e);
-		} finally {
-			if (process != null) {
-				process.destroy();
-			}
-		}
-
-		throw new IllegalStateException("Could not determine a duration for the input file!");
-	}
-
-	public void process(final File input, final File output) {
-		if (properties.getBooleanProperty(USE_FADING)) {
-			processWithFading(input, output);
-		} else {
-			processSimple(input, output);
-		}
-	}
-
-	private void processSimple(final File input, final File output) {
-		LOG.trace("Generating ffmpeg command...");
-
-		final StringBuilder builder = new StringBuilder();
-
-		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
-		builder.append(" -y -i ");
-		builder.append("\"").append(input.getAbsolutePath()).append("\"");   // input file
-		builder.append(" -map 0:0 -map 0:1 -map 0:2"); // mapping
-		builder.append(" -c:v libx264 -crf 19 -preset slow");       // video encoding
-		builder.append(" -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
-		builder.append(" -threads 4"); // optimization
-		builder.append(" ");
-		builder.append("\"").append(output.getAbsolutePath()).append("\"");
-
-		final String command = builder.toString();
-		LOG.debug("FFMPEG command will be [{}]", command);
-
-		executeCommand(command, true, true);
-
-		LOG.trace("Finished.");
-	}
-
-	private void processWithFading(final File input, final File output) {
-
-		LOG.info("Processing with fading.");
-
-		final File intermediateOutput = new File(output.getParent(), "intermediate.mp4");
-		final String fadingCommand = buildFadingCommand(input, intermediateOutput);
-		executeCommand(fadingCommand, true, true);
-
-		if (properties.getBooleanProperty(USE_INTRO)) {
-			final String addIntroCommand = buildAddIntroCommand(output, intermediateOutput);
-			executeCommand(addIntroCommand, true, true);
-			intermediateOutput.delete();
-		} else {
-			try {
-				move(get(intermediateOutput.getAbsolutePath()), get(output.getAbsolutePath()));
-			} catch (IOException e) {
-				throw new RuntimeException("Moving files failed.", e);
-			}
-		}
-	}
-
-	private String buildAddIntroCommand(File output, File intermediateOutput) {
-		final String intro = properties.getProperty(INTRO_PATH);
-		final StringBuilder addIntroCommandBuilder = new StringBuilder();
-		addIntroCommandBuilder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
-		addIntroCommandBuilder.append(" -i \"");
-		addIntroCommandBuilder.append(intro);
-		addIntroCommandBuilder.append("\"");
-		addIntroCommandBuilder.append(" -i \"");
-		addIntroCommandBuilder.append(intermediateOutput.getAbsolutePath());
-		addIntroCommandBuilder.append("\"");
-		addIntroCommandBuilder.append(" -filter_complex \"[0:1] [0:0] [1:1] [1:0] concat=n=2:v=1:a=1 [v] [a]\" -map \"[v]\" -map \"[a]\"");
-		addIntroCommandBuilder.append(" \"");
-		addIntroCommandBuilder.append(output.getAbsolutePath());
-		addIntroCommandBuilder.append("\"");
-		return addIntroCommandBuilder.toString();
-	}
-
-	private String buildFadingCommand(File input, File intermediateOutput) {
-		final BigDecimal duration = getDuration(input);
-		final Integer fadeDuration = Integer.valueOf(properties.getProperty(FADING_DURATION));
-
-		final StringBuilder fadeBuilder = new StringBuilder();
-		fadeBuilder.append("\"" + properties.getProperty(FFMPEG) + "ffmpeg.exe\"");
-		fadeBuilder.append(" -y -i ");
-		fadeBuilder.append("\"" + input.getAbsolutePath() + "\"");   // input file
-		fadeBuilder.append(" -map 0:0 -map 0:1 -map 0:2"); // mapping
-		fadeBuilder.append(" -c:v libx264 -crf 19 -preset slow -r 30 ");       // video encoding
-		fadeBuilder.append(" -c:a aac -strict experimental -b:a 192k -filter_complex \"[0:1][0:2]amix\" -ac 2"); // audio encoding and merging of audio streams
-		fadeBuilder.append(" -threads 4"); // optimization
-		fadeBuilder.append(" -vf \"fade=in:st=0:d=" + fadeDuration);
-		fadeBuilder.append(" , fade=out:st=" + (round(duration.doubleValue()) - fadeDuration) + ":d=" + fadeDuration + "\"");
-		fadeBuilder.append(" \"" + intermediateOutput.getAbsolutePath() + "\"");
-		return fadeBuilder.toString();
-	}
-}
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.CROP_ENABLED;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FADING_DURATION;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.INTRO_PATH;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.LOUDNESS_ENABLED;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PIPELINE_USE_FILES;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PROXY_HEIGHT;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.RENDITIONS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.SEGMENT_REMUX;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TAIL_ENABLED;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TRIM_END;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TRIM_START;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_FADING;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_INTRO;
+import static java.lang.Math.round;
+import static java.nio.file.Files.move;
+import static java.nio.file.Paths.get;
+
+public class FfmpegController {
+	private static final Logger LOG = LoggerFactory.getLogger(FfmpegController.class);
+
+	private static final String DURATION_PREFIX = "duration=";
+
+	static final String PRESET = "slow";
+	static final int THREADS = 4;
+
+	/** NUT is streamable and carries the encoded streams unchanged, so it can be written to and read from a pipe. */
+	static final String PIPE_OUTPUT = "-f nut pipe:1";
+	static final String PIPE_INPUT = "-f nut -i pipe:0";
+
+	private final BooleanAwareProperties properties;
+	private final PerformanceStore performanceStore;
+	private final ResourcePolicy resources;
+	private final JobLogs jobLogs;
+	private final Map<String, MediaInfo> probeCache = new ConcurrentHashMap<>();
+	private final Map<String, Optional<String>> cropCache = new ConcurrentHashMap<>();
+
+	public FfmpegController(BooleanAwareProperties properties) {
+		this(properties, new PerformanceStore(properties));
+	}
+
+	public FfmpegController(final BooleanAwareProperties properties, final PerformanceStore performanceStore) {
+		this(properties, performanceStore, ResourcePolicy.fromProperties(properties));
+	}
+
+	public FfmpegController(final BooleanAwareProperties properties, final PerformanceStore performanceStore,
+			final ResourcePolicy resources) {
+		this.properties = properties;
+		this.performanceStore = performanceStore;
+		this.resources = resources;
+		this.jobLogs = JobLogs.fromProperties(properties);
+	}
+
+	public ResourcePolicy getResources() {
+		return resources;
+	}
+
+	public JobLogs getJobLogs() {
+		return jobLogs;
+	}
+
+	public void executeCommand(final String command, boolean redirectErrors, boolean logOutput) {
+
+		if (command == null || command.isEmpty()) {
+			LOG.warn("No command given to FFMPEGController.executeCommand!");
+			return;
+		}
+
+		LOG.info("Executing command [{}].", command);
+
+		final JobLogs.JobLog log = jobLogs.current();
+		log.append(command);
+
+		Process process = null;
+		try {
+			process = new ProcessBuilder(resources.wrap(command)).redirectErrorStream(redirectErrors).start();
+
+			if (logOutput) {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+
+				String line = "";
+				while ((line = reader.readLine()) != null) {
+					log.append(line);
+					// ffmpeg reports progress continuously, so a cancelled job is noticed here.
+					if (Thread.currentThread().isInterrupted()) {
+						throw new InterruptedException("Cancelled while running [" + command + "].");
+					}
+				}
+			}
+
+			final int result = process.waitFor();
+			if (result != 0) {
+				log.reportFailure();
+				throw new RuntimeException("FFMPEG process failed.");
+			}
+
+		} catch (InterruptedException | IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (process != null) {
+				process.destroy();
+			}
+		}
+	}
+
+	/**
+	 * Starts the command without waiting for it. Its output is written to the job log by a background thread. The
+	 * caller may use the process' standard input and has to finish with {@link #awaitCommand(Process)}.
+	 */
+	public Process startCommand(final String command) {
+		LOG.info("Starting command [{}].", command);
+
+		final JobLogs.JobLog log = jobLogs.current();
+		log.append(command);
+
+		final Process process;
+		try {
+			process = new ProcessBuilder(resources.wrap(command)).redirectErrorStream(true).start();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		final Thread logger = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				JobLogs.tag(log.getJob());
+				try {
+					BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+
+					String line = "";
+					while ((line = reader.readLine()) != null) {
+						log.append(line);
+					}
+				} catch (IOException e) {
+					LOG.debug("Output of process ended.", e);
+				}
+			}
+		}, "ffmpeg-output");
+		logger.setDaemon(true);
+		logger.start();
+
+		return process;
+	}
+
+	public void awaitCommand(final Process process) {
+		try {
+			final int result = process.waitFor();
+			if (result != 0) {
+				jobLogs.current().reportFailure();
+				throw new RuntimeException("FFMPEG process failed.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Runs the command and returns its combined output.
+	 */
+	List<String> readOutput(final String command) {
+		LOG.debug("Executing command [{}].", command);
+
+		final List<String> lines = new ArrayList<>();
+		Process process = null;
+		try {
+			process = new ProcessBuilder(resources.wrap(command)).redirectErrorStream(true).start();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+
+			String line = "";
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+
+			if (process.waitFor() != 0) {
+				throw new RuntimeException("FFMPEG process failed.");
+			}
+		} catch (InterruptedException | IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (process != null) {
+				process.destroy();
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * @return the crop filter removing the input's black borders if crop.enabled is set and borders were found.
+	 * Detection runs once per input.
+	 */
+	Optional<String> getCropFilter(final File input) {
+		if (!properties.getBooleanProperty(CROP_ENABLED)) {
+			return Optional.absent();
+		}
+		if (properties.getBooleanProperty(USE_FADING) && properties.getBooleanProperty(USE_INTRO)) {
+			LOG.warn("Not cropping [{}] because the intro can only be attached to video of the same size.", input.getName());
+			return Optional.absent();
+		}
+
+		final String cacheKey = input.getAbsolutePath() + "|" + input.length() + "|" + input.lastModified();
+		Optional<String> crop = cropCache.get(cacheKey);
+		if (crop == null) {
+			final Optional<CropDetector.Crop> detected = new CropDetector(properties, this).detect(input, probe(input));
+			crop = detected.isPresent() ? Optional.of(detected.get().toFilter()) : Optional.<String>absent();
+			cropCache.put(cacheKey, crop);
+		}
+		return crop;
+	}
+
+	/**
+	 * @return the crop filter followed by a comma to put in front of another filter, or an empty string.
+	 */
+	private String cropPrefix(final File input) {
+		final Optional<String> crop = getCropFilter(input);
+		return crop.isPresent() ? crop.get() + "," : "";
+	}
+
+	public BigDecimal getDuration(final File input) {
+
+		if (!input.exists()) {
+			throw new IllegalArgumentException("Inputfile [" + input.getAbsolutePath() + "] does not exist!");
+		}
+
+		if (input.isDirectory()) {
+			throw new IllegalArgumentException("Input [" + input.getAbsolutePath() + "] is a directory!");
+		}
+
+		final FfmpegCommandBuilder builder = new FfmpegCommandBuilder(properties);
+
+		final String command = builder.withFFMProbe().withShowFormat().withInput(input).build();
+
+		LOG.debug("Issuing ffprobe command [{}]", command);
+
+		Process process = null;
+		try {
+			process = new ProcessBuilder(resources.wrap(command)).redirectErrorStream(true).start();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+
+			String line = "";
+			while ((line = reader.readLine())!= null) {
+				if (line.startsWith(DURATION_PREFIX)) {
+					final String duration = line.substring(DURATION_PREFIX.length());
+
+					final BigDecimal result = new BigDecimal(duration).round(new MathContext(2, RoundingMode.HALF_UP));
+					LOG.debug("Found duration [{}]", result);
+					return result;
+				}
+			}
+
+			process.waitFor();
+		} catch (InterruptedException | IOException e) {
+		        throw new RuntimeException(e);
+		} finally {
+			if (process != null) {
+				process.destroy();
+			}
+		}
+
+		throw new IllegalStateException("Could not determine a duration for the input file!");
+	}
+
+	/**
+	 * Runs ffprobe on the given file. Results are cached per path, size and modification time.
+	 */
+	public MediaInfo probe(final File input) {
+
+		if (!input.exists()) {
+			throw new IllegalArgumentException("Inputfile [" + input.getAbsolutePath() + "] does not exist!");
+		}
+
+		final String cacheKey = input.getAbsolutePath() + "|" + input.length() + "|" + input.lastModified();
+		final MediaInfo cached = probeCache.get(cacheKey);
+		if (cached != null) {
+			return cached;
+		}
+
+		final FfmpegCommandBuilder builder = new FfmpegCommandBuilder(properties);
+		final String command = builder.withFFMProbe().withShowFormat().withShowStreams().withInput(input).build();
+
+		LOG.debug("Issuing ffprobe command [{}]", command);
+
+		final List<String> lines = new ArrayList<>();
+		Process process = null;
+		try {
+			process = new ProcessBuilder(resources.wrap(command)).redirectErrorStream(true).start();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+
+			String line = "";
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+
+			process.waitFor();
+		} catch (InterruptedException | IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (process != null) {
+				process.destroy();
+			}
+		}
+
+		final MediaInfo info = MediaInfo.parse(lines);
+		LOG.debug("Probed [{}]: duration [{}], resolution [{}x{}], fps [{}].", input.getName(), info.getDuration(),
+				info.getWidth(), info.getHeight(), info.getFps());
+		probeCache.put(cacheKey, info);
+		return info;
+	}
+
+	/**
+	 * @return the name of the processing pipeline the current configuration selects. Used to group performance records.
+	 */
+	public String getPipelineName() {
+		final String base;
+		if (!properties.getBooleanProperty(USE_FADING)) {
+			base = "simple";
+		} else {
+			base = properties.getBooleanProperty(USE_INTRO) ? "fading+intro" : "fading";
+		}
+
+		if (properties.getBooleanProperty(TAIL_ENABLED)) {
+			return base + "+tail";
+		}
+
+		final SegmentedOutput segmentedOutput = new SegmentedOutput(properties);
+		if (segmentedOutput.isSegmented()) {
+			return base + "+" + segmentedOutput.getMode().name().toLowerCase();
+		}
+
+		final List<Rendition> renditions = getRenditions();
+		return renditions.isEmpty() ? base : base + "+" + renditions.size() + "renditions";
+	}
+
+	/**
+	 * @return whether the current configuration writes an intermediate file about as large as the output.
+	 */
+	public boolean writesIntermediate() {
+		if (properties.getBooleanProperty(TAIL_ENABLED)) {
+			// the segments are joined into one file before it is moved or gets the intro.
+			return true;
+		}
+		if (!properties.getBooleanProperty(USE_FADING) || new SegmentedOutput(properties).isSegmented()) {
+			return false;
+		}
+
+		if (!getRenditions().isEmpty()) {
+			return finishesFadedRenditions();
+		}
+		// without files the faded encode is piped into the intro stage.
+		return !pipesIntoIntro();
+	}
+
+	/**
+	 * @return whether the faded encode is piped into the intro stage. With loudness.enabled the intermediate is
+	 * written instead, so the loudness is measured while the video is encoded and not in front of it.
+	 */
+	private boolean pipesIntoIntro() {
+		return properties.getBooleanProperty(USE_INTRO) && !properties.getBooleanProperty(PIPELINE_USE_FILES)
+				&& !properties.getBooleanProperty(LOUDNESS_ENABLED);
+	}
+
+	/**
+	 * @return whether faded renditions are written to intermediates to attach the intro or normalise their audio.
+	 */
+	private boolean finishesFadedRenditions() {
+		return properties.getBooleanProperty(USE_FADING)
+				&& (properties.getBooleanProperty(USE_INTRO) || properties.getBooleanProperty(LOUDNESS_ENABLED));
+	}
+
+	/**
+	 * Every pipeline maps the first two audio tracks of an input. Fading mixes them into one track in front of them,
+	 * and attaching the intro, renditions, tail mode, segmented output, preview images and compilations keep only
+	 * the mixed track.
+	 *
+	 * @return the number of audio streams the current configuration writes for inputs with the given number.
+	 */
+	public int getExpectedAudioStreams(final int inputAudioStreams, final boolean compilation) {
+		final int mapped = Math.min(inputAudioStreams, 2);
+		if (mapped == 0 || !properties.getBooleanProperty(USE_FADING)) {
+			return mapped;
+		}
+		if (compilation || properties.getBooleanProperty(USE_INTRO) || properties.getBooleanProperty(TAIL_ENABLED)
+				|| new SegmentedOutput(properties).isSegmented() || !getRenditions().isEmpty()
+				|| new PreviewImages(properties).isEnabled()) {
+			return 1;
+		}
+		return 1 + mapped;
+	}
+
+	/**
+	 * @return the renditions of the active profile or an empty list if the profile produces a single output.
+	 */
+	public List<Rendition> getRenditions() {
+		return Rendition.parseList(properties.getProperty(RENDITIONS, ""));
+	}
+
+	/**
+	 * @return the trim of the input, absent if nothing is cut or the configuration follows growing recordings,
+	 * which cannot be trimmed.
+	 */
+	public Optional<Trimmer.Trim> getTrim(final File input) {
+		if (properties.getBooleanProperty(TAIL_ENABLED)) {
+			return Optional.absent();
+		}
+		return Trimmer.Trim.forInput(properties, input);
+	}
+
+	public void process(final File input, final File output) {
+		final Optional<Trimmer.Trim> trim = getTrim(input);
+
+		if (properties.getBooleanProperty(TAIL_ENABLED)) {
+			if (Trimmer.Trim.forInput(properties, input).isPresent()) {
+				LOG.warn("Trimming is not supported for followed recordings. Ignoring trim of [{}].", input.getName());
+			}
+			warnIfLoudnessIgnored("followed recordings");
+			// the wall time of a followed recording is bound by the recording itself, so it is not recorded.
+			new TailEncoder(properties, this).process(input, output);
+			return;
+		}
+
+		if (!trim.isPresent()) {
+			encode(input, output);
+			return;
+		}
+
+		// the trimmed copy is processed like the input, so fades and previews follow the new edges.
+		final File trimmed = Trimmer.trimmedFile(output);
+		try {
+			new Trimmer(properties, this).cut(input, trimmed, trim.get(), probe(input));
+			encode(trimmed, output);
+		} finally {
+			trimmed.delete();
+		}
+	}
+
+	private void encode(final File input, final File output) {
+		final MediaInfo info = probe(input);
+		final long start = System.nanoTime();
+
+		final SegmentedOutput segmentedOutput = new SegmentedOutput(properties);
+		final List<Rendition> renditions = getRenditions();
+		if (segmentedOutput.isSegmented()) {
+			processSegmented(input, output, segmentedOutput);
+		} else if (!renditions.isEmpty()) {
+			processRenditions(input, output, renditions);
+		} else if (properties.getBooleanProperty(USE_FADING)) {
+			processWithFading(input, output);
+			writePreviewIndex(output, info);
+		} else {
+			processSimple(input, output);
+			writePreviewIndex(output, info);
+		}
+
+		recordPerformance(info, (System.nanoTime() - start) / 1e9, outputSize(output, segmentedOutput));
+	}
+
+	/**
+	 * @return whether the current configuration can encode several inputs in one ffmpeg process.
+	 */
+	public boolean supportsBatching() {
+		// faded clips are normalised one by one, the batch has no place for the measurement of every clip.
+		final boolean normalized = properties.getBooleanProperty(USE_FADING) && properties.getBooleanProperty(LOUDNESS_ENABLED);
+		return !properties.getBooleanProperty(TAIL_ENABLED) && !new SegmentedOutput(properties).isSegmented()
+				&& getRenditions().isEmpty() && !new PreviewImages(properties).isEnabled() && !normalized
+				&& properties.getDoubleProperty(TRIM_START, 0) <= 0 && properties.getDoubleProperty(TRIM_END, 0) <= 0;
+	}
+
+	/**
+	 * Encodes all inputs with a single ffmpeg process to pay process start and codec initialisation only once. The
+	 * wall time is attributed to the inputs in proportion to their duration. If the process fails no input counts
+	 * as processed.
+	 */
+	public void processBatch(final List<File> inputs, final List<File> outputs) {
+		LOG.info("Processing [{}] inputs in one batch.", inputs.size());
+
+		final List<MediaInfo> infos = new ArrayList<>();
+		double totalDuration = 0;
+		for (final File input : inputs) {
+			final MediaInfo info = probe(input);
+			infos.add(info);
+			totalDuration += info.getDuration();
+		}
+
+		final boolean intro = properties.getBooleanProperty(USE_FADING) && properties.getBooleanProperty(USE_INTRO);
+		final List<File> targets = new ArrayList<>();
+		for (final File output : outputs) {
+			targets.add(intro ? intermediateFile(output) : output);
+		}
+
+		final long start = System.nanoTime();
+		executeCommand(buildBatchCommand(inputs, targets), true, true);
+		if (intro) {
+			for (int i = 0; i < outputs.size(); i++) {
+				executeCommand(buildAddIntroCommand(outputs.get(i), targets.get(i)), true, true);
+				targets.get(i).delete();
+			}
+		}
+		final double wall = (System.nanoTime() - start) / 1e9;
+
+		for (int i = 0; i < inputs.size(); i++) {
+			final double share = totalDuration > 0 ? infos.get(i).getDuration() / totalDuration : 1.0 / inputs.size();
+			recordPerformance(infos.get(i), wall * share, outputs.get(i).length());
+		}
+	}
+
+	String buildBatchCommand(final List<File> inputs, final List<File> targets) {
+		final boolean fading = properties.getBooleanProperty(USE_FADING);
+
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y");
+		for (final File input : inputs) {
+			builder.append(" -i \"").append(input.getAbsolutePath()).append("\"");
+		}
+
+		if (fading) {
+			final StringBuilder graph = new StringBuilder();
+			for (int i = 0; i < inputs.size(); i++) {
+				if (i > 0) {
+					graph.append(";");
+				}
+				graph.append("[").append(i).append(":0]").append(buildFadeFilter(inputs.get(i))).append("[v").append(i).append("];");
+				graph.append("[").append(i).append(":1][").append(i).append(":2]amix[a").append(i).append("]");
+			}
+			builder.append(" -filter_complex \"").append(graph).append("\"");
+		}
+
+		for (int i = 0; i < inputs.size(); i++) {
+			if (fading) {
+				// mixed audio first and the original tracks after the video like the regular fading encode, the
+				// intro concat expects this order.
+				builder.append(" -map \"[a").append(i).append("]\" -map \"[v").append(i).append("]\"");
+				builder.append(" -map ").append(i).append(":1 -map ").append(i).append(":2");
+			} else {
+				builder.append(" -map ").append(i).append(":0 -map ").append(i).append(":1 -map ").append(i).append(":2");
+			}
+			builder.append(" -c:v libx264 -crf 19 -preset " + PRESET);       // video encoding
+			if (fading) {
+				builder.append(" -r 30");
+			}
+			builder.append(" -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
+			builder.append(" -threads " + THREADS); // optimization
+			builder.append(" \"").append(targets.get(i).getAbsolutePath()).append("\"");
+		}
+
+		final String command = builder.toString();
+		LOG.debug("FFMPEG command will be [{}]", command);
+		return command;
+	}
+
+	/**
+	 * Joins the parts of a project into one output. Without fading, parts that already have matching mp4 codecs are
+	 * joined by stream copy. Otherwise all parts are decoded and encoded in one pass, with fades only at the start
+	 * of the first and the end of the last part and the intro attached once.
+	 */
+	public void processCompilation(final List<File> parts, final File output) {
+		LOG.info("Compiling [{}] parts into [{}].", parts.size(), output.getName());
+		warnIfLoudnessIgnored("compilations");
+
+		final List<MediaInfo> infos = new ArrayList<>();
+		for (final File part : parts) {
+			infos.add(probe(part));
+		}
+
+		if (!properties.getBooleanProperty(USE_FADING) && Compilation.canStreamCopy(infos)) {
+			LOG.info("All parts share their codecs. Joining them by stream copy.");
+			final File list = new File(output.getParent(), output.getName() + ".concat.txt");
+			try {
+				TailEncoder.writeConcatList(list, parts);
+			} catch (IOException e) {
+				throw new RuntimeException("Writing concat list [" + list.getAbsolutePath() + "] failed.", e);
+			}
+			try {
+				executeCommand(buildConcatCopyCommand(list, output), true, true);
+			} finally {
+				list.delete();
+			}
+			return;
+		}
+
+		executeCommand(buildCompilationCommand(parts, infos, output), true, true);
+	}
+
+	String buildConcatCopyCommand(final File list, final File output) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -f concat -safe 0 -i \"").append(list.getAbsolutePath()).append("\"");
+		builder.append(" -map 0 -c copy");
+		builder.append(" \"").append(output.getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	String buildCompilationCommand(final List<File> parts, final List<MediaInfo> infos, final File output) {
+		final boolean fading = properties.getBooleanProperty(USE_FADING);
+		final boolean intro = fading && properties.getBooleanProperty(USE_INTRO);
+		final int offset = intro ? 1 : 0;
+
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y");
+		if (intro) {
+			builder.append(" -i \"").append(properties.getProperty(INTRO_PATH)).append("\"");
+		}
+		for (final File part : parts) {
+			builder.append(" -i \"").append(part.getAbsolutePath()).append("\"");
+		}
+
+		final StringBuilder graph = new StringBuilder();
+		if (fading) {
+			// the fading pipeline mixes both audio tracks of every part into one.
+			for (int i = 0; i < parts.size(); i++) {
+				final int index = i + offset;
+				graph.append("[").append(index).append(":1][").append(index).append(":2]amix[m").append(i).append("];");
+			}
+			for (int i = 0; i < parts.size(); i++) {
+				graph.append("[").append(i + offset).append(":0][m").append(i).append("]");
+			}
+			graph.append("concat=n=").append(parts.size()).append(":v=1:a=1[cv][ca];");
+
+			double total = 0;
+			for (final MediaInfo info : infos) {
+				total += info.getDuration();
+			}
+			final Integer fadeDuration = Integer.valueOf(properties.getProperty(FADING_DURATION));
+			graph.append("[cv]fade=in:st=0:d=").append(fadeDuration).append(" , fade=out:st=")
+					.append(round(total) - fadeDuration).append(":d=").append(fadeDuration);
+
+			if (intro) {
+				graph.append("[fv];[0:1][0:0][fv][ca]concat=n=2:v=1:a=1[v][a]");
+			} else {
+				graph.append("[v];[ca]anull[a]");
+			}
+		} else {
+			for (int i = 0; i < parts.size(); i++) {
+				graph.append("[").append(i).append(":0][").append(i).append(":1][").append(i).append(":2]");
+			}
+			graph.append("concat=n=").append(parts.size()).append(":v=1:a=2[v][a1][a2]");
+		}
+
+		builder.append(" -filter_complex \"").append(graph).append("\"");
+		if (fading) {
+			builder.append(" -map \"[v]\" -map \"[a]\"");
+		} else {
+			builder.append(" -map \"[v]\" -map \"[a1]\" -map \"[a2]\"");
+		}
+		builder.append(" -c:v libx264 -crf 19 -preset " + PRESET);       // video encoding
+		if (fading) {
+			builder.append(" -r 30");
+		}
+		builder.append(" -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
+		builder.append(" -threads " + THREADS); // optimization
+		builder.append(" \"").append(output.getAbsolutePath()).append("\"");
+
+		final String command = builder.toString();
+		LOG.debug("FFMPEG command will be [{}]", command);
+		return command;
+	}
+
+	/**
+	 * Encodes a small, quickly produced preview of the input that editors can use until the full quality output
+	 * is finished.
+	 */
+	public void processProxy(final File input, final File proxy) {
+		LOG.info("Creating proxy [{}].", proxy.getName());
+		executeCommand(buildProxyCommand(input, proxy), true, true);
+	}
+
+	String buildProxyCommand(final File input, final File proxy) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -i ");
+		builder.append("\"").append(input.getAbsolutePath()).append("\"");   // input file
+		builder.append(" -filter_complex \"[0:0]scale=-2:").append(properties.getIntegerProperty(PROXY_HEIGHT, 540))
+				.append("[v];[0:1][0:2]amix[a]\" -map \"[v]\" -map \"[a]\"");
+		builder.append(" -c:v libx264 -crf 28 -preset ultrafast");       // video encoding
+		builder.append(" -c:a aac -strict experimental -b:a 96k -ac 2"); // audio encoding
+		builder.append(" -threads " + THREADS); // optimization
+		builder.append(" -movflags +faststart");
+		builder.append(" \"").append(proxy.getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	/**
+	 * @return where the proxy of the given output is written.
+	 */
+	static File proxyFile(final File output) {
+		final String name = output.getName();
+		final int extension = name.lastIndexOf('.');
+		return new File(output.getParent(), (extension < 0 ? name : name.substring(0, extension)) + ".proxy.mp4");
+	}
+
+	private long outputSize(final File output, final SegmentedOutput segmentedOutput) {
+		if (output.exists() || !segmentedOutput.isSegmented()) {
+			return output.length();
+		}
+
+		long size = 0;
+		final File[] segments = segmentedOutput.getSegmentDirectory(output).listFiles();
+		if (segments != null) {
+			for (final File segment : segments) {
+				size += segment.length();
+			}
+		}
+		return size;
+	}
+
+	private void recordPerformance(final MediaInfo info, final double wallSeconds, final long outputBytes) {
+		final PerformanceRecord record = new PerformanceRecord(System.currentTimeMillis(), EtaPredictor.localHost(),
+				getPipelineName(), PRESET, info.getWidth(), info.getHeight(), info.getFps(), THREADS,
+				info.getDuration(), wallSeconds, outputBytes);
+
+		LOG.info("Encoded [{}] seconds of media in [{}] seconds (speed factor [{}]).", info.getDuration(),
+				wallSeconds, String.format("%.2f", record.getSpeedFactor()));
+		performanceStore.add(record);
+	}
+
+	private void processSimple(final File input, final File output) {
+		LOG.trace("Generating ffmpeg command...");
+		warnIfLoudnessIgnored("encodes without fading, which have no mixed audio track");
+
+		executeCommand(buildSimpleCommand(input, output), true, true);
+
+		LOG.trace("Finished.");
+	}
+
+	String buildSimpleCommand(final File input, final File output) {
+		final PreviewImages previews = new PreviewImages(properties);
+		final StringBuilder builder = new StringBuilder();
+
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -i ");
+		builder.append("\"").append(input.getAbsolutePath()).append("\"");   // input file
+		final Optional<String> crop = getCropFilter(input);
+		if (previews.isEnabled()) {
+			// the preview images branch off the decoded video, so the input is decoded only once.
+			previews.prepare(output);
+			builder.append(" -filter_complex \"[0:0]split=2[raw][pv];[raw]").append(crop.or("null")).append("[v];")
+					.append(previews.buildFilterGraph("pv", probe(input))).append("\"");
+			builder.append(" -map \"[v]\" -map 0:1 -map 0:2"); // mapping
+		} else {
+			builder.append(" -map 0:0 -map 0:1 -map 0:2"); // mapping
+			if (crop.isPresent()) {
+				builder.append(" -vf \"").append(crop.get()).append("\"");
+			}
+		}
+		builder.append(" -c:v libx264 -crf 19 -preset " + PRESET);       // video encoding
+		builder.append(" -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
+		builder.append(" -threads " + THREADS); // optimization
+		builder.append(" ");
+		builder.append("\"").append(output.getAbsolutePath()).append("\"");
+		if (previews.isEnabled()) {
+			builder.append(previews.buildOutputs(output));
+		}
+
+		final String command = builder.toString();
+		LOG.debug("FFMPEG command will be [{}]", command);
+		return command;
+	}
+
+	private void writePreviewIndex(final File output, final MediaInfo info) {
+		final PreviewImages previews = new PreviewImages(properties);
+		if (previews.isEnabled()) {
+			previews.writeIndex(output, info);
+		}
+	}
+
+	private void processWithFading(final File input, final File output) {
+
+		LOG.info("Processing with fading.");
+
+		if (pipesIntoIntro()) {
+			// the faded encode is streamed into the intro stage instead of being written to disk and read back.
+			new PipelineExecutor(jobLogs.current()).run(Arrays.asList(
+					new ProcessBuilder(resources.wrap(buildFadingCommand(input, PIPE_OUTPUT, output))),
+					new ProcessBuilder(resources.wrap(buildAddIntroCommand(output, PIPE_INPUT, Optional.<String>absent())))));
+			return;
+		}
+
+		// loudness is measured from the audio only while the video is encoded and applied in the last step.
+		final Optional<Future<Optional<String>>> loudness = startLoudness(input);
+		final File intermediateOutput = intermediateFile(output);
+		final String fadingCommand = buildFadingCommand(input, quote(intermediateOutput), output);
+		executeCommand(fadingCommand, true, true);
+
+		finishFadedEncode(intermediateOutput, output, awaitLoudness(loudness), Optional.<Rendition>absent());
+	}
+
+	/**
+	 * Attaches the intro to a faded intermediate, normalises its mixed audio or moves it to the output.
+	 */
+	private void finishFadedEncode(final File intermediateOutput, final File output, final Optional<String> normalization,
+			final Optional<Rendition> rendition) {
+		final Optional<String> command = buildFinishCommand(intermediateOutput, output, normalization, rendition);
+		if (command.isPresent()) {
+			executeCommand(command.get(), true, true);
+			intermediateOutput.delete();
+			return;
+		}
+
+		try {
+			move(get(intermediateOutput.getAbsolutePath()), get(output.getAbsolutePath()));
+		} catch (IOException e) {
+			throw new RuntimeException("Moving files failed.", e);
+		}
+	}
+
+	/**
+	 * @param rendition the size the intro is fitted to, absent for a single output.
+	 * @return the command attaching the intro or normalising the audio of a faded intermediate, absent if the
+	 * intermediate only has to be moved.
+	 */
+	Optional<String> buildFinishCommand(final File intermediateOutput, final File output,
+			final Optional<String> normalization, final Optional<Rendition> rendition) {
+		if (properties.getBooleanProperty(USE_INTRO)) {
+			return Optional.of(buildAddIntroCommand(output, "-i " + quote(intermediateOutput), normalization, rendition));
+		}
+		if (normalization.isPresent()) {
+			return Optional.of(buildNormalizeCommand(intermediateOutput, output, normalization.get()));
+		}
+		return Optional.absent();
+	}
+
+	private Optional<Future<Optional<String>>> startLoudness(final File input) {
+		return properties.getBooleanProperty(LOUDNESS_ENABLED)
+				? Optional.of(new LoudnessAnalyzer(properties, this).start(input))
+				: Optional.<Future<Optional<String>>>absent();
+	}
+
+	private void warnIfLoudnessIgnored(final String pipeline) {
+		if (properties.getBooleanProperty(LOUDNESS_ENABLED)) {
+			LOG.warn("Loudness normalisation is not supported for {}. Ignoring loudness.enabled.", pipeline);
+		}
+	}
+
+	private static Optional<String> awaitLoudness(final Optional<Future<Optional<String>>> loudness) {
+		return loudness.isPresent() ? LoudnessAnalyzer.await(loudness.get()) : Optional.<String>absent();
+	}
+
+	/**
+	 * Copies the video of the faded encode and normalises its mixed audio track.
+	 */
+	String buildNormalizeCommand(final File intermediateOutput, final File output, final String normalization) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -i ").append(quote(intermediateOutput));
+		builder.append(" -filter_complex \"[0:0]").append(normalization).append("[a]\"");
+		builder.append(" -map \"[a]\" -map 0:1 -map 0:2? -map 0:3?");
+		builder.append(" -c:v copy -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
+		builder.append(" ").append(quote(output));
+		return builder.toString();
+	}
+
+	/**
+	 * Writes fMP4 segments and a playlist that grows with every finished segment. With segments.remux the
+	 * segments are stream copied into the regular output file at the end.
+	 */
+	private void processSegmented(final File input, final File output, final SegmentedOutput segmentedOutput) {
+		LOG.info("Processing into [{}] segments.", segmentedOutput.getMode());
+
+		if (properties.getBooleanProperty(USE_INTRO)) {
+			LOG.warn("Attaching an intro is not supported for segmented output. Ignoring intro.attach.");
+		}
+		if (new PreviewImages(properties).isEnabled()) {
+			LOG.warn("Preview images are not supported for segmented output. Ignoring thumbnails.enabled.");
+		}
+		if (!getRenditions().isEmpty()) {
+			LOG.warn("Renditions are not supported for segmented output. Encoding a single rendition.");
+		}
+		warnIfLoudnessIgnored("segmented output");
+
+		final File directory = segmentedOutput.getSegmentDirectory(output);
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new RuntimeException("Could not create segment directory [" + directory.getAbsolutePath() + "].");
+		}
+
+		final boolean fading = properties.getBooleanProperty(USE_FADING);
+		final Optional<String> crop = getCropFilter(input);
+		final String videoFilter = fading ? cropPrefix(input) + buildFadeFilter(input) : crop.or("");
+		executeCommand(segmentedOutput.buildEncodeCommand(input, output, videoFilter, fading), true, true);
+		LOG.info("Playlist [{}] complete.", segmentedOutput.getPlaylist(output).getAbsolutePath());
+
+		if (properties.getBooleanProperty(SEGMENT_REMUX)) {
+			LOG.info("Remuxing segments into [{}].", output.getAbsolutePath());
+			executeCommand(segmentedOutput.buildRemuxCommand(output), true, true);
+		}
+	}
+
+	/**
+	 * Decodes and filters the input once and encodes every rendition from a split of the filtered video.
+	 * With intro.attach the intro is concatenated to every rendition afterwards and with loudness.enabled the mixed
+	 * audio of every faded rendition is normalised in the same step.
+	 */
+	private void processRenditions(final File input, final File output, final List<Rendition> renditions) {
+		LOG.info("Processing [{}] renditions in one pass.", renditions.size());
+		if (new PreviewImages(properties).isEnabled()) {
+			LOG.warn("Preview images are not supported for renditions. Ignoring thumbnails.enabled.");
+		}
+		if (properties.getBooleanProperty(CROP_ENABLED)) {
+			LOG.warn("Renditions have fixed sizes. Ignoring crop.enabled to keep their aspect ratio.");
+		}
+
+		final boolean fading = properties.getBooleanProperty(USE_FADING);
+		if (!fading) {
+			warnIfLoudnessIgnored("renditions without fading, which have no mixed audio track");
+		}
+
+		// the mixed audio is measured while the renditions are encoded and normalised when they are finished.
+		final Optional<Future<Optional<String>>> loudness = fading ? startLoudness(input)
+				: Optional.<Future<Optional<String>>>absent();
+		final List<File> targets = renditionTargets(output, renditions);
+		final Optional<String> fadeFilter = fading ? Optional.of(buildFadeFilter(input)) : Optional.<String>absent();
+		executeCommand(buildRenditionCommand(input, renditions, targets, fadeFilter), true, true);
+
+		if (finishesFadedRenditions()) {
+			final Optional<String> normalization = awaitLoudness(loudness);
+			for (int i = 0; i < renditions.size(); i++) {
+				finishFadedEncode(targets.get(i), Rendition.outputFile(output, renditions, i), normalization,
+						Optional.of(renditions.get(i)));
+			}
+		}
+	}
+
+	/**
+	 * @return the files the rendition encode writes, the intermediates if the renditions are finished afterwards.
+	 */
+	List<File> renditionTargets(final File output, final List<Rendition> renditions) {
+		final List<File> targets = new ArrayList<>();
+		for (int i = 0; i < renditions.size(); i++) {
+			final File target = Rendition.outputFile(output, renditions, i);
+			targets.add(finishesFadedRenditions() ? intermediateFile(target) : target);
+		}
+		return targets;
+	}
+
+	String buildRenditionCommand(final File input, final List<Rendition> renditions, final List<File> targets,
+			final Optional<String> fadeFilter) {
+		final int count = renditions.size();
+
+		final StringBuilder graph = new StringBuilder("[0:0]");
+		if (fadeFilter.isPresent()) {
+			graph.append(fadeFilter.get()).append(",");
+		}
+		graph.append("split=").append(count);
+		for (int i = 0; i < count; i++) {
+			graph.append("[s").append(i).append("]");
+		}
+		for (int i = 0; i < count; i++) {
+			final Rendition rendition = renditions.get(i);
+			graph.append(";[s").append(i).append("]").append(fitInto(rendition)).append("[v").append(i).append("]");
+		}
+		if (fadeFilter.isPresent()) {
+			// the fading pipeline mixes both audio tracks into one.
+			graph.append(";[0:1][0:2]amix,asplit=").append(count);
+			for (int i = 0; i < count; i++) {
+				graph.append("[a").append(i).append("]");
+			}
+		}
+
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -i ");
+		builder.append("\"").append(input.getAbsolutePath()).append("\"");   // input file
+		builder.append(" -filter_complex \"").append(graph).append("\"");
+
+		for (int i = 0; i < count; i++) {
+			final Rendition rendition = renditions.get(i);
+			final long kilobits = rendition.getBitsPerSecond() / 1000;
+
+			if (fadeFilter.isPresent()) {
+				// mixed audio first like the regular fading encode, the intro concat expects this order.
+				builder.append(" -map \"[a").append(i).append("]\" -map \"[v").append(i).append("]\"");
+			} else {
+				builder.append(" -map \"[v").append(i).append("]\" -map 0:1 -map 0:2");
+			}
+			builder.append(" -c:v libx264 -preset " + PRESET);
+			builder.append(" -b:v " + kilobits + "k -maxrate " + kilobits + "k -bufsize " + (2 * kilobits) + "k");
+			if (fadeFilter.isPresent()) {
+				builder.append(" -r 30");
+			}
+			builder.append(" -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
+			builder.append(" -threads " + THREADS); // optimization
+			builder.append(" \"").append(targets.get(i).getAbsolutePath()).append("\"");
+		}
+
+		final String command = builder.toString();
+		LOG.debug("FFMPEG command will be [{}]", command);
+		return command;
+	}
+
+	/**
+	 * @return a video filter scaling into the rendition's size and padding the rest, so the picture keeps its aspect
+	 * ratio. Renditions and the intro attached to them get the same size this way.
+	 */
+	static String fitInto(final Rendition rendition) {
+		final int width = rendition.getWidth();
+		final int height = rendition.getHeight();
+		return "scale=" + width + ":" + height + ":force_original_aspect_ratio=decrease,pad=" + width + ":" + height
+				+ ":(ow-iw)/2:(oh-ih)/2,setsar=1";
+	}
+
+	/**
+	 * @return the intermediate written next to the given output by the fading pipeline. It is named after the
+	 * output, so jobs sharing a directory do not overwrite each other's intermediates.
+	 */
+	static File intermediateFile(final File output) {
+		return new File(output.getParent(), output.getName() + ".intermediate.mp4");
+	}
+
+	String buildAddIntroCommand(File output, File intermediateOutput) {
+		return buildAddIntroCommand(output, "-i " + quote(intermediateOutput), Optional.<String>absent());
+	}
+
+	/**
+	 * @param secondInput the ffmpeg input options of the faded video, either <code>-i</code> with a quoted path or
+	 *                    {@link #PIPE_INPUT}.
+	 * @param normalization audio filter applied to the faded video's audio before the intro is attached.
+	 */
+	String buildAddIntroCommand(File output, String secondInput, Optional<String> normalization) {
+		return buildAddIntroCommand(output, secondInput, normalization, Optional.<Rendition>absent());
+	}
+
+	/**
+	 * @param rendition the size the intro is scaled and padded to, absent to keep the intro's size.
+	 */
+	String buildAddIntroCommand(File output, String secondInput, Optional<String> normalization,
+			Optional<Rendition> rendition) {
+		final String intro = properties.getProperty(INTRO_PATH);
+		// concat needs the same size on both sides.
+		final String introVideo = rendition.isPresent() ? "[0:1] " + fitInto(rendition.get()) + " [iv]; [iv]" : "[0:1]";
+		final StringBuilder addIntroCommandBuilder = new StringBuilder();
+		addIntroCommandBuilder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		addIntroCommandBuilder.append(" -i \"");
+		addIntroCommandBuilder.append(intro);
+		addIntroCommandBuilder.append("\"");
+		addIntroCommandBuilder.append(" ");
+		addIntroCommandBuilder.append(secondInput);
+		if (normalization.isPresent()) {
+			addIntroCommandBuilder.append(" -filter_complex \"[1:0] " + normalization.get() + " [na]; " + introVideo + " [0:0] [1:1] [na] concat=n=2:v=1:a=1 [v] [a]\" -map \"[v]\" -map \"[a]\"");
+		} else {
+			addIntroCommandBuilder.append(" -filter_complex \"" + introVideo + " [0:0] [1:1] [1:0] concat=n=2:v=1:a=1 [v] [a]\" -map \"[v]\" -map \"[a]\"");
+		}
+		addIntroCommandBuilder.append(" \"");
+		addIntroCommandBuilder.append(output.getAbsolutePath());
+		addIntroCommandBuilder.append("\"");
+		return addIntroCommandBuilder.toString();
+	}
+
+	/**
+	 * @param target the ffmpeg output spec, either a quoted path or {@link #PIPE_OUTPUT}.
+	 * @param output the final output. Preview images are written next to it.
+	 */
+	String buildFadingCommand(File input, String target, File output) {
+		final PreviewImages previews = new PreviewImages(properties);
+		final StringBuilder fadeBuilder = new StringBuilder();
+		fadeBuilder.append("\"" + properties.getProperty(FFMPEG) + "ffmpeg.exe\"");
+		fadeBuilder.append(" -y -i ");
+		fadeBuilder.append("\"" + input.getAbsolutePath() + "\"");   // input file
+		if (previews.isEnabled()) {
+			// the preview images branch off before the fade, so the input is decoded only once.
+			previews.prepare(output);
+			fadeBuilder.append(" -filter_complex \"[0:0]split=2[raw][pv];[raw]" + cropPrefix(input) + buildFadeFilter(input) + "[v];[0:1][0:2]amix[a];"
+					+ previews.buildFilterGraph("pv", probe(input)) + "\"");
+			fadeBuilder.append(" -map \"[a]\" -map \"[v]\""); // mapping, mixed audio first like the regular fading encode
+			fadeBuilder.append(" -c:v libx264 -crf 19 -preset " + PRESET + " -r 30 ");       // video encoding
+			fadeBuilder.append(" -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
+			fadeBuilder.append(" -threads " + THREADS); // optimization
+			fadeBuilder.append(" " + target);
+			fadeBuilder.append(previews.buildOutputs(output));
+			return fadeBuilder.toString();
+		}
+		fadeBuilder.append(" -map 0:0 -map 0:1 -map 0:2"); // mapping
+		fadeBuilder.append(" -c:v libx264 -crf 19 -preset " + PRESET + " -r 30 ");       // video encoding
+		fadeBuilder.append(" -c:a aac -strict experimental -b:a 192k -filter_complex \"[0:1][0:2]amix\" -ac 2"); // audio encoding and merging of audio streams
+		fadeBuilder.append(" -threads " + THREADS); // optimization
+		fadeBuilder.append(" -vf \"" + cropPrefix(input) + buildFadeFilter(input) + "\"");
+		fadeBuilder.append(" " + target);
+		return fadeBuilder.toString();
+	}
+
+	private static String quote(final File file) {
+		return "\"" + file.getAbsolutePath() + "\"";
+	}
+
+	private String buildFadeFilter(final File input) {
+		final BigDecimal duration = getDuration(input);
+		final Integer fadeDuration = Integer.valueOf(properties.getProperty(FADING_DURATION));
+
+		return "fade=in:st=0:d=" + fadeDuration + " , fade=out:st=" + (round(duration.doubleValue()) - fadeDuration)
+				+ ":d=" + fadeDuration;
+	}
+}
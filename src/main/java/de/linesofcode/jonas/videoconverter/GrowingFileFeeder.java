@@ -0,0 +1,89 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Copies a file that is still being written to a stream, following it like <code>tail -f</code>.
+ * <p>
+ * The recording counts as finished once the file did not grow for {@code idleMillis} (measured from the later of
+ * the last observed growth and the file's modification time) and its size stayed the same for {@code stableChecks}
+ * consecutive polls.
+ */
+public class GrowingFileFeeder {
+
+	private static final Logger LOG = LoggerFactory.getLogger(GrowingFileFeeder.class);
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private final File file;
+	private final long idleMillis;
+	private final int stableChecks;
+	private final long pollMillis;
+	private final Optional<RateLimiter> diskLimiter;
+
+	public GrowingFileFeeder(final File file, final long idleMillis, final int stableChecks, final long pollMillis) {
+		this(file, idleMillis, stableChecks, pollMillis, Optional.<RateLimiter>absent());
+	}
+
+	public GrowingFileFeeder(final File file, final long idleMillis, final int stableChecks, final long pollMillis,
+			final Optional<RateLimiter> diskLimiter) {
+		this.file = file;
+		this.idleMillis = idleMillis;
+		this.stableChecks = stableChecks;
+		this.pollMillis = pollMillis;
+		this.diskLimiter = diskLimiter;
+	}
+
+	/**
+	 * Feeds the file into the target until the recording is finished. Does not close the target.
+	 *
+	 * @return the number of bytes fed.
+	 */
+	public long feed(final OutputStream target) throws IOException, InterruptedException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+
+		long position = 0;
+		long lastGrowth = System.currentTimeMillis();
+		int stable = 0;
+
+		try (final RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			while (true) {
+				final int read = input.read(buffer);
+				if (read > 0) {
+					OutputTransfer.throttle(diskLimiter, read);
+					target.write(buffer, 0, read);
+					position += read;
+					lastGrowth = System.currentTimeMillis();
+					stable = 0;
+					continue;
+				}
+
+				target.flush();
+
+				if (input.length() < position) {
+					throw new IOException("File [" + file.getName() + "] was truncated while following it.");
+				}
+
+				stable++;
+				if (isFinished(System.currentTimeMillis(), Math.max(lastGrowth, file.lastModified()), stable)) {
+					LOG.info("Recording [{}] finished after [{}] bytes.", file.getName(), position);
+					return position;
+				}
+
+				Thread.sleep(pollMillis);
+			}
+		}
+	}
+
+	boolean isFinished(final long now, final long lastChange, final int stablePolls) {
+		return now - lastChange >= idleMillis && stablePolls >= stableChecks;
+	}
+}
@@ -0,0 +1,58 @@
+package de.linesofcode.jonas.videoconverter;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state of one input file while its stages run. Stages exchange results as named artifacts.
+ */
+public class JobContext {
+
+	/** The input file. Available before any stage ran. */
+	public static final String SOURCE = "source";
+
+	private final File input;
+	private final File output;
+	private final File projectDirectory;
+	private final Map<String, Object> artifacts = new ConcurrentHashMap<>();
+
+	public JobContext(final File input, final File output, final File projectDirectory) {
+		this.input = input;
+		this.output = output;
+		this.projectDirectory = projectDirectory;
+		artifacts.put(SOURCE, input);
+	}
+
+	public File getInput() {
+		return input;
+	}
+
+	public File getOutput() {
+		return output;
+	}
+
+	public File getProjectDirectory() {
+		return projectDirectory;
+	}
+
+	public void put(final String artifact, final Object value) {
+		artifacts.put(artifact, value);
+	}
+
+	/**
+	 * @throws IllegalStateException if no stage produced the artifact.
+	 */
+	public <T> T get(final String artifact, final Class<T> type) {
+		final Object value = artifacts.get(artifact);
+		if (value == null) {
+			throw new IllegalStateException("Artifact [" + artifact + "] of job [" + input.getName() + "] is not available.");
+		}
+		return type.cast(value);
+	}
+
+	public Set<String> getArtifactNames() {
+		return artifacts.keySet();
+	}
+}
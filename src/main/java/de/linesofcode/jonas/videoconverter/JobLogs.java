@@ -0,0 +1,229 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.LOGS_DIRECTORY;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.LOGS_SUMMARY_SECONDS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.LOGS_TAIL_LINES;
+
+/**
+ * Keeps the raw ffmpeg output out of the main log.
+ * <p>
+ * Every job writes the output of its processes to its own file, which is compressed once the job is finished. The
+ * last lines are kept in memory to report them if a process fails. The main log only gets a progress line every
+ * few seconds per job. Its messages are tagged with the job the logging thread works on, see {@link #tag(String)}.
+ */
+public class JobLogs {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JobLogs.class);
+
+	static final String JOB = "job";
+	static final String NO_JOB = "VideoConverter";
+
+	private final File directory;
+	private final int tailLines;
+	private final double summariesPerSecond;
+	private final Map<String, JobLog> logs = new ConcurrentHashMap<>();
+
+	JobLogs(final File directory, final int tailLines, final long summarySeconds) {
+		this.directory = directory;
+		this.tailLines = tailLines;
+		this.summariesPerSecond = 1.0 / Math.max(summarySeconds, 1);
+	}
+
+	public static JobLogs fromProperties(final BooleanAwareProperties properties) {
+		return new JobLogs(new File(properties.getProperty(LOGS_DIRECTORY, "logs")),
+				properties.getIntegerProperty(LOGS_TAIL_LINES, 50),
+				properties.getLongProperty(LOGS_SUMMARY_SECONDS, 10));
+	}
+
+	/**
+	 * Tags the log messages of the calling thread with the job.
+	 */
+	public static void tag(final String job) {
+		MDC.put(JOB, job);
+	}
+
+	public static void untag() {
+		MDC.remove(JOB);
+	}
+
+	/**
+	 * @return the log of the job the calling thread is tagged with. Output of untagged threads is only kept in the
+	 * memory tail, as there is no job that would finish and close a file for it.
+	 */
+	public JobLog current() {
+		final String job = MDC.get(JOB);
+		return get(job == null ? NO_JOB : job);
+	}
+
+	synchronized JobLog get(final String job) {
+		JobLog log = logs.get(job);
+		if (log == null) {
+			log = new JobLog(job, NO_JOB.equals(job) ? null : new File(directory, fileName(job)), tailLines,
+					RateLimiter.create(summariesPerSecond));
+			logs.put(job, log);
+		}
+		return log;
+	}
+
+	private static String fileName(final String job) {
+		return job.replaceAll("[^A-Za-z0-9._-]", "_") + "." + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+				+ ".log";
+	}
+
+	/**
+	 * Compresses the job's output and removes the job's tag from the calling thread.
+	 */
+	public void finish(final String job) {
+		untag();
+
+		final JobLog log;
+		synchronized (this) {
+			log = logs.remove(job);
+		}
+		if (log != null) {
+			log.close();
+		}
+	}
+
+	public static class JobLog {
+
+		private final String job;
+		private final File file;
+		private final int tailLines;
+		private final RateLimiter summaries;
+		private final Deque<String> tail = new ArrayDeque<>();
+
+		private BufferedWriter writer;
+		private boolean broken;
+		private long lines;
+
+		JobLog(final String job, final File file, final int tailLines, final RateLimiter summaries) {
+			this.job = job;
+			this.file = file;
+			this.tailLines = tailLines;
+			this.summaries = summaries;
+		}
+
+		public String getJob() {
+			return job;
+		}
+
+		/**
+		 * Writes a line of process output. Progress lines go to the main log as well, at most one per summary
+		 * interval.
+		 */
+		public synchronized void append(final String line) {
+			lines++;
+			tail.addLast(line);
+			if (tail.size() > tailLines) {
+				tail.removeFirst();
+			}
+
+			if (!broken && file != null) {
+				try {
+					if (writer == null) {
+						if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+							throw new IOException("Could not create log directory [" + file.getParentFile() + "].");
+						}
+						writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+					}
+					writer.write(line);
+					writer.newLine();
+				} catch (IOException e) {
+					// the tail still has the output, so losing the file must not fail the job.
+					LOG.warn("Writing to job log [{}] failed. Keeping only the last lines in memory.", file.getAbsolutePath(), e);
+					broken = true;
+					closeWriter();
+				}
+			}
+
+			if (isProgress(line) && summaries.tryAcquire()) {
+				LOG.info("{}", line.trim());
+			}
+		}
+
+		static boolean isProgress(final String line) {
+			return line.contains("time=") && line.contains("bitrate=");
+		}
+
+		public synchronized List<String> getTail() {
+			return new ArrayList<>(tail);
+		}
+
+		/**
+		 * Logs the last lines of output to the main log, for a process that failed.
+		 */
+		public void reportFailure() {
+			final List<String> lines = getTail();
+			LOG.error("Last [{}] lines of output (full output in [{}]):\n{}", lines.size(),
+					file == null ? "no job log" : file.getName(), Joiner.on('\n').join(lines));
+		}
+
+		synchronized void close() {
+			closeWriter();
+			if (file == null || !file.exists()) {
+				return;
+			}
+
+			final File compressed = new File(file.getParentFile(), file.getName() + ".gz");
+			try (final InputStream input = new FileInputStream(file);
+			     final OutputStream output = new GZIPOutputStream(new FileOutputStream(compressed))) {
+				final byte[] buffer = new byte[64 * 1024];
+				int read;
+				while ((read = input.read(buffer)) > 0) {
+					output.write(buffer, 0, read);
+				}
+			} catch (IOException e) {
+				LOG.warn("Compressing job log [{}] failed. Keeping it uncompressed.", file.getAbsolutePath(), e);
+				compressed.delete();
+				return;
+			}
+
+			if (!file.delete()) {
+				LOG.warn("Could not delete job log [{}] after compressing it.", file.getAbsolutePath());
+			}
+			LOG.info("Wrote [{}] lines of process output to [{}].", lines, compressed.getAbsolutePath());
+		}
+
+		private void closeWriter() {
+			if (writer == null) {
+				return;
+			}
+			try {
+				writer.close();
+			} catch (IOException e) {
+				LOG.debug("Closing job log [{}] failed.", file.getAbsolutePath(), e);
+			}
+			writer = null;
+		}
+
+		File getFile() {
+			return file;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs submitted jobs on a fixed number of worker threads, highest priority first.
+ */
+public class JobQueue {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JobQueue.class);
+
+	/**
+	 * Does the actual work of a job.
+	 */
+	public interface Runner {
+
+		Optional<Double> estimate(ConversionJob job);
+
+		void run(ConversionJob job);
+	}
+
+	private final Runner runner;
+	private final PriorityBlockingQueue<ConversionJob> queue = new PriorityBlockingQueue<>();
+	private final Map<String, ConversionJob> jobs = Collections.synchronizedMap(new LinkedHashMap<String, ConversionJob>());
+	private final AtomicLong sequence = new AtomicLong();
+	private final List<Thread> workers = new ArrayList<>();
+
+	public JobQueue(final Runner runner, final int parallel) {
+		this.runner = runner;
+		for (int i = 0; i < parallel; i++) {
+			final Thread worker = new Thread(work(), "job-worker-" + i);
+			worker.setDaemon(true);
+			workers.add(worker);
+		}
+	}
+
+	/**
+	 * @return a queue converting every job with a {@link VideoConverter} for the job's profile. All jobs share the
+	 * stage and encode limits and the performance store of the given configuration.
+	 */
+	public static JobQueue converting(final BooleanAwareProperties properties, final int parallel) {
+		final StageExecutor stageExecutor = StageExecutor.fromProperties(properties, ResourcePolicy.fromProperties(properties));
+		final PerformanceStore performanceStore = new PerformanceStore(properties);
+
+		return new JobQueue(new Runner() {
+			@Override
+			public Optional<Double> estimate(final ConversionJob job) {
+				return converter(job).estimate(job.getInput());
+			}
+
+			@Override
+			public void run(final ConversionJob job) {
+				converter(job).convert(Collections.singletonList(job.getInput()));
+			}
+
+			private VideoConverter converter(final ConversionJob job) {
+				return new VideoConverter(job.getProfile().isPresent()
+						? new BooleanAwareProperties(VideoConverter.FILE_NAME, job.getProfile().get()) : properties,
+						stageExecutor, performanceStore);
+			}
+		}, parallel);
+	}
+
+	public void start() {
+		for (final Thread worker : workers) {
+			worker.start();
+		}
+	}
+
+	public ConversionJob submit(final File input, final Optional<String> profile, final int priority) {
+		final ConversionJob job = new ConversionJob(sequence.incrementAndGet(), input, profile, priority);
+		jobs.put(job.getId(), job);
+		queue.add(job);
+		LOG.info("Queued job [{}] for [{}] with priority [{}].", job.getId(), input.getAbsolutePath(), priority);
+		return job;
+	}
+
+	public Optional<ConversionJob> get(final String id) {
+		return Optional.fromNullable(jobs.get(id));
+	}
+
+	public List<ConversionJob> list() {
+		synchronized (jobs) {
+			return new ArrayList<>(jobs.values());
+		}
+	}
+
+	/**
+	 * @return false if there is no such job or it has already finished.
+	 */
+	public boolean cancel(final String id) {
+		final ConversionJob job = jobs.get(id);
+		if (job == null || !job.cancel()) {
+			return false;
+		}
+		queue.remove(job);
+		LOG.info("Cancelling job [{}].", id);
+		return true;
+	}
+
+	private Runnable work() {
+		return new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					final ConversionJob job;
+					try {
+						job = queue.take();
+					} catch (InterruptedException e) {
+						return;
+					}
+					process(job);
+				}
+			}
+		};
+	}
+
+	void process(final ConversionJob job) {
+		if (!job.start(Thread.currentThread())) {
+			return;
+		}
+
+		JobLogs.tag(job.getInput().getName());
+		try {
+			job.setEstimate(runner.estimate(job));
+		} catch (RuntimeException e) {
+			LOG.warn("Could not estimate encode time of job [{}].", job.getId(), e);
+		}
+
+		Optional<RuntimeException> failure = Optional.absent();
+		try {
+			LOG.info("Running job [{}].", job.getId());
+			runner.run(job);
+		} catch (RuntimeException e) {
+			failure = Optional.of(e);
+		} finally {
+			job.finish(failure);
+			// a cancel must not affect the next job of this worker.
+			Thread.interrupted();
+			JobLogs.untag();
+		}
+
+		if (job.getState() == ConversionJob.State.FAILED) {
+			LOG.error("Job [{}] failed.", job.getId(), failure.get());
+		} else {
+			LOG.info("Job [{}] finished as [{}].", job.getId(), job.getState());
+		}
+	}
+}
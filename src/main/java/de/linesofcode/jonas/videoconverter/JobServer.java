@@ -0,0 +1,241 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.JOBS_PARALLEL;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.SERVER_ADDRESS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.SERVER_PORT;
+
+/**
+ * HTTP API to submit files for conversion and follow them.
+ * <ul>
+ * <li><code>POST /jobs?profile=p&amp;priority=n</code> queues the files in the body, one per line. A line may override
+ * the defaults of the query as <code>path;profile;priority</code>.</li>
+ * <li><code>GET /jobs</code> and <code>GET /jobs/{id}</code> return the state, progress and ETA of the jobs.</li>
+ * <li><code>DELETE /jobs/{id}</code> cancels a job.</li>
+ * </ul>
+ * Responses are JSON. Only listens on the loopback interface unless server.address says otherwise.
+ */
+public class JobServer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JobServer.class);
+
+	private static final String JOBS = "/jobs";
+	private static final String JSON = "application/json; charset=utf-8";
+
+	private final HttpServer server;
+	private final JobQueue queue;
+
+	public JobServer(final InetSocketAddress address, final JobQueue queue) throws IOException {
+		this.queue = queue;
+		this.server = HttpServer.create(address, 0);
+		server.createContext(JOBS, handler());
+		server.setExecutor(Executors.newCachedThreadPool());
+	}
+
+	public static JobServer fromProperties(final BooleanAwareProperties properties) throws IOException {
+		return new JobServer(new InetSocketAddress(properties.getProperty(SERVER_ADDRESS, "127.0.0.1"),
+				properties.getIntegerProperty(SERVER_PORT, 8090)),
+				JobQueue.converting(properties, properties.getIntegerProperty(JOBS_PARALLEL, 1)));
+	}
+
+	public void start() {
+		queue.start();
+		server.start();
+		LOG.info("Accepting jobs on [{}].", server.getAddress());
+	}
+
+	public void stop() {
+		server.stop(0);
+	}
+
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	private HttpHandler handler() {
+		return new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				try {
+					route(exchange);
+				} catch (RuntimeException e) {
+					LOG.error("Handling [{} {}] failed.", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+					respond(exchange, 500, error(String.valueOf(e.getMessage())));
+				} finally {
+					exchange.close();
+				}
+			}
+		};
+	}
+
+	private void route(final HttpExchange exchange) throws IOException {
+		final String method = exchange.getRequestMethod();
+		final String path = exchange.getRequestURI().getPath();
+		final String id = path.length() > JOBS.length() + 1 ? path.substring(JOBS.length() + 1) : "";
+
+		if (id.isEmpty() && "POST".equals(method)) {
+			submit(exchange);
+		} else if (id.isEmpty() && "GET".equals(method)) {
+			respond(exchange, 200, array(queue.list()));
+		} else if (!id.isEmpty() && "GET".equals(method)) {
+			final Optional<ConversionJob> job = queue.get(id);
+			respond(exchange, job.isPresent() ? 200 : 404, job.isPresent() ? job.get().toJson() : error("No job " + id + "."));
+		} else if (!id.isEmpty() && "DELETE".equals(method)) {
+			final Optional<ConversionJob> job = queue.get(id);
+			if (!job.isPresent()) {
+				respond(exchange, 404, error("No job " + id + "."));
+			} else if (queue.cancel(id)) {
+				respond(exchange, 200, job.get().toJson());
+			} else {
+				respond(exchange, 409, error("Job " + id + " has already finished."));
+			}
+		} else {
+			respond(exchange, 405, error(method + " is not supported on " + path + "."));
+		}
+	}
+
+	private void submit(final HttpExchange exchange) throws IOException {
+		final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+		final List<String> lines = new ArrayList<>();
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.trim().isEmpty()) {
+					lines.add(line.trim());
+				}
+			}
+		}
+
+		final List<Submission> submissions;
+		try {
+			submissions = parseSubmissions(lines, Optional.fromNullable(query.get("profile")),
+					query.containsKey("priority") ? Integer.parseInt(query.get("priority")) : 0);
+		} catch (IllegalArgumentException e) {
+			respond(exchange, 400, error(e.getMessage()));
+			return;
+		}
+
+		final List<ConversionJob> jobs = new ArrayList<>();
+		for (final Submission submission : submissions) {
+			jobs.add(queue.submit(submission.input, submission.profile, submission.priority));
+		}
+		respond(exchange, 202, array(jobs));
+	}
+
+	/**
+	 * Parses <code>path[;profile[;priority]]</code> lines. The whole request is rejected if one of them is invalid,
+	 * so a batch is never queued partially.
+	 *
+	 * @throws IllegalArgumentException naming the invalid line.
+	 */
+	static List<Submission> parseSubmissions(final List<String> lines, final Optional<String> profile,
+			final int priority) {
+		if (lines.isEmpty()) {
+			throw new IllegalArgumentException("No input files given.");
+		}
+
+		final List<Submission> submissions = new ArrayList<>();
+		for (final String line : lines) {
+			final List<String> fields = Splitter.on(';').trimResults().splitToList(line);
+			final File input = new File(fields.get(0));
+			if (!input.isFile()) {
+				throw new IllegalArgumentException("Input [" + fields.get(0) + "] is no file.");
+			}
+
+			final Optional<String> lineProfile = fields.size() > 1 && !fields.get(1).isEmpty()
+					? Optional.of(fields.get(1)) : profile;
+			final int linePriority;
+			try {
+				linePriority = fields.size() > 2 && !fields.get(2).isEmpty() ? Integer.parseInt(fields.get(2)) : priority;
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Priority of [" + line + "] is no number.");
+			}
+			submissions.add(new Submission(input, lineProfile, linePriority));
+		}
+		return submissions;
+	}
+
+	private static Map<String, String> parseQuery(final String query) throws IOException {
+		final Map<String, String> parameters = new HashMap<>();
+		if (query == null) {
+			return parameters;
+		}
+		for (final String parameter : Splitter.on('&').omitEmptyStrings().split(query)) {
+			final int separator = parameter.indexOf('=');
+			if (separator > 0) {
+				parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+						URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+			}
+		}
+		return parameters;
+	}
+
+	private static String array(final List<ConversionJob> jobs) {
+		final StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < jobs.size(); i++) {
+			builder.append(i > 0 ? "," : "").append(jobs.get(i).toJson());
+		}
+		return builder.append("]").toString();
+	}
+
+	private static String error(final String message) {
+		return "{\"error\":" + ConversionJob.quote(message) + "}";
+	}
+
+	private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (final OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+	static class Submission {
+
+		private final File input;
+		private final Optional<String> profile;
+		private final int priority;
+
+		Submission(final File input, final Optional<String> profile, final int priority) {
+			this.input = input;
+			this.profile = profile;
+			this.priority = priority;
+		}
+
+		File getInput() {
+			return input;
+		}
+
+		Optional<String> getProfile() {
+			return profile;
+		}
+
+		int getPriority() {
+			return priority;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
+
+/**
+ * The times of the video keyframes of an input, where stream copy can start a cut.
+ * <p>
+ * Reading them needs a pass over the whole file, so the index is kept in a sidecar <code>name.avi.keyframes</code>
+ * next to the input. The sidecar's first line holds the size and modification time of the input it belongs to and
+ * it is rebuilt when they change.
+ */
+public class KeyframeIndex {
+
+	private static final Logger LOG = LoggerFactory.getLogger(KeyframeIndex.class);
+
+	private final List<Double> keyframes;
+
+	KeyframeIndex(final List<Double> keyframes) {
+		final List<Double> sorted = new ArrayList<>(keyframes);
+		Collections.sort(sorted);
+		this.keyframes = sorted;
+	}
+
+	/**
+	 * @return the index from the input's sidecar, or a new one that is then stored in the sidecar.
+	 */
+	public static KeyframeIndex load(final File input, final BooleanAwareProperties properties,
+			final FfmpegController controller) {
+		final Optional<KeyframeIndex> stored = read(input);
+		if (stored.isPresent()) {
+			return stored.get();
+		}
+
+		final File sidecar = sidecar(input);
+		final String stamp = stamp(input);
+		LOG.info("Building keyframe index of [{}].", input.getName());
+		final KeyframeIndex index = new KeyframeIndex(parse(controller.readOutput(buildIndexCommand(input, properties))));
+
+		final List<String> lines = new ArrayList<>();
+		lines.add(stamp);
+		for (final Double keyframe : index.keyframes) {
+			lines.add(String.format(Locale.ROOT, "%.6f", keyframe));
+		}
+		try {
+			Files.write(sidecar.toPath(), lines, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			// the index is only a cache, the cut works without it.
+			LOG.warn("Writing keyframe index [{}] failed.", sidecar.getAbsolutePath(), e);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the index from the input's sidecar, absent if there is none for the input in its current state. The
+	 * input itself is not read.
+	 */
+	public static Optional<KeyframeIndex> read(final File input) {
+		final File sidecar = sidecar(input);
+		if (!sidecar.isFile()) {
+			return absent();
+		}
+
+		try {
+			final List<String> lines = Files.readAllLines(sidecar.toPath(), StandardCharsets.UTF_8);
+			if (!lines.isEmpty() && lines.get(0).equals(stamp(input))) {
+				LOG.info("Using keyframe index [{}].", sidecar.getName());
+				return of(new KeyframeIndex(parse(lines.subList(1, lines.size()))));
+			}
+		} catch (IOException e) {
+			LOG.warn("Reading keyframe index [{}] failed.", sidecar.getAbsolutePath(), e);
+		}
+		return absent();
+	}
+
+	public static File sidecar(final File input) {
+		return new File(input.getParentFile(), input.getName() + ".keyframes");
+	}
+
+	private static String stamp(final File input) {
+		return "# " + input.length() + " " + input.lastModified();
+	}
+
+	static String buildIndexCommand(final File input, final BooleanAwareProperties properties) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffprobe.exe\"");
+		builder.append(" -v error -select_streams v:0 -skip_frame nokey -show_entries frame=pkt_pts_time -of csv=p=0");
+		builder.append(" \"").append(input.getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	/**
+	 * Parses one keyframe time per line. Lines that are no time, like <code>N/A</code>, are skipped.
+	 */
+	static List<Double> parse(final List<String> lines) {
+		final List<Double> keyframes = new ArrayList<>();
+		for (final String line : lines) {
+			try {
+				keyframes.add(Double.parseDouble(line.trim().replace(",", "")));
+			} catch (NumberFormatException e) {
+				LOG.trace("Skipping keyframe line [{}].", line);
+			}
+		}
+		return keyframes;
+	}
+
+	public boolean isEmpty() {
+		return keyframes.isEmpty();
+	}
+
+	/**
+	 * @return the last keyframe at or before the time.
+	 */
+	public Optional<Double> floor(final double seconds) {
+		Optional<Double> result = absent();
+		for (final Double keyframe : keyframes) {
+			if (keyframe > seconds) {
+				break;
+			}
+			result = of(keyframe);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the first keyframe at or after the time.
+	 */
+	public Optional<Double> ceiling(final double seconds) {
+		for (final Double keyframe : keyframes) {
+			if (keyframe >= seconds) {
+				return of(keyframe);
+			}
+		}
+		return absent();
+	}
+
+	/**
+	 * @return the keyframe closest to the time.
+	 */
+	public Optional<Double> nearest(final double seconds) {
+		final Optional<Double> before = floor(seconds);
+		final Optional<Double> after = ceiling(seconds);
+		if (!before.isPresent()) {
+			return after;
+		}
+		if (!after.isPresent()) {
+			return before;
+		}
+		return seconds - before.get() <= after.get() - seconds ? before : after;
+	}
+}
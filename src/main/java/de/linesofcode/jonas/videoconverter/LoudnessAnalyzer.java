@@ -0,0 +1,137 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.LOUDNESS_RANGE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.LOUDNESS_TARGET;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.LOUDNESS_TRUE_PEAK;
+
+/**
+ * EBU R128 loudness normalisation in two passes. The measuring pass decodes only the mixed audio of the input
+ * and runs in the background while the video is encoded. Its values configure <code>loudnorm</code> in linear mode
+ * in the final mux, so the normalisation adds little wall time.
+ */
+public class LoudnessAnalyzer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LoudnessAnalyzer.class);
+
+	private static final Pattern VALUE = Pattern.compile("\"(\\w+)\"\\s*:\\s*\"([^\"]*)\"");
+
+	private final BooleanAwareProperties properties;
+	private final FfmpegController controller;
+	private final double target;
+	private final double truePeak;
+	private final double range;
+
+	public LoudnessAnalyzer(final BooleanAwareProperties properties, final FfmpegController controller) {
+		this.properties = properties;
+		this.controller = controller;
+		this.target = properties.getDoubleProperty(LOUDNESS_TARGET, -16);
+		this.truePeak = properties.getDoubleProperty(LOUDNESS_TRUE_PEAK, -1.5);
+		this.range = properties.getDoubleProperty(LOUDNESS_RANGE, 11);
+	}
+
+	/**
+	 * Starts measuring in the background.
+	 */
+	public Future<Optional<String>> start(final File input) {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			return executor.submit(new Callable<Optional<String>>() {
+				@Override
+				public Optional<String> call() {
+					LOG.info("Measuring loudness of [{}].", input.getName());
+					final Optional<String> filter = buildNormalizationFilter(parse(controller.readOutput(buildAnalysisCommand(input))));
+					LOG.info("Loudness normalisation for [{}] is [{}].", input.getName(), filter.orNull());
+					return filter;
+				}
+			});
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Waits for the measurement. A failed measurement only disables the normalisation.
+	 *
+	 * @return the loudnorm filter or absent if measuring failed.
+	 */
+	public static Optional<String> await(final Future<Optional<String>> measurement) {
+		try {
+			return measurement.get();
+		} catch (ExecutionException e) {
+			LOG.warn("Measuring loudness failed. Not normalising.", e.getCause());
+			return Optional.absent();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	String buildAnalysisCommand(final File input) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -i \"").append(input.getAbsolutePath()).append("\"");
+		// no video is decoded, only the audio mixed like the fading pipeline does.
+		builder.append(" -vn -filter_complex \"[0:1][0:2]amix,").append(loudnorm()).append(":print_format=json\"");
+		builder.append(" -f null -");
+		return builder.toString();
+	}
+
+	/**
+	 * @return the values of the json block loudnorm prints at the end of the measuring pass.
+	 */
+	static Map<String, String> parse(final List<String> lines) {
+		final Map<String, String> values = new HashMap<>();
+		for (final String line : lines) {
+			final Matcher matcher = VALUE.matcher(line);
+			if (matcher.find()) {
+				values.put(matcher.group(1), matcher.group(2));
+			}
+		}
+		return values;
+	}
+
+	Optional<String> buildNormalizationFilter(final Map<String, String> measured) {
+		for (final String key : new String[]{"input_i", "input_tp", "input_lra", "input_thresh", "target_offset"}) {
+			final String value = measured.get(key);
+			// silence is reported as -inf, which loudnorm does not accept as a measured value.
+			if (value == null || value.contains("inf")) {
+				LOG.warn("Loudness measurement has no usable [{}]. Not normalising.", key);
+				return Optional.absent();
+			}
+		}
+
+		return Optional.of(loudnorm()
+				+ ":measured_I=" + measured.get("input_i")
+				+ ":measured_TP=" + measured.get("input_tp")
+				+ ":measured_LRA=" + measured.get("input_lra")
+				+ ":measured_thresh=" + measured.get("input_thresh")
+				+ ":offset=" + measured.get("target_offset")
+				+ ":linear=true,aresample=48000");
+	}
+
+	private String loudnorm() {
+		return String.format(Locale.ROOT, "loudnorm=I=%s:TP=%s:LRA=%s", format(target), format(truePeak), format(range));
+	}
+
+	private static String format(final double value) {
+		return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+	}
+}
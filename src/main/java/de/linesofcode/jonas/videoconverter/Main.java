@@ -1,10 +1,19 @@
-package de.linesofcode.jonas.videoconverter;
-
-public class Main {
-
-	public static void main(String[] args) {
-		final VideoConverter videoConverter = new VideoConverter();
-
-		videoConverter.convert();
-	}
-}
+package de.linesofcode.jonas.videoconverter;
+
+import java.io.IOException;
+
+public class Main {
+
+	private static final String SERVER = "server";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && SERVER.equals(args[0])) {
+			JobServer.fromProperties(new BooleanAwareProperties(VideoConverter.FILE_NAME)).start();
+			return;
+		}
+
+		final VideoConverter videoConverter = new VideoConverter();
+
+		videoConverter.convert();
+	}
+}
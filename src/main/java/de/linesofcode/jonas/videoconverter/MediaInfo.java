@@ -0,0 +1,205 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+
+/**
+ * Metadata of a media file as reported by <code>ffprobe -show_format -show_streams</code>.
+ */
+public class MediaInfo {
+
+	private static final String STREAM_START = "[STREAM]";
+	private static final String STREAM_END = "[/STREAM]";
+	private static final String FORMAT_START = "[FORMAT]";
+	private static final String FORMAT_END = "[/FORMAT]";
+
+	private final Map<String, String> format;
+	private final List<StreamInfo> streams;
+
+	MediaInfo(final Map<String, String> format, final List<StreamInfo> streams) {
+		this.format = format;
+		this.streams = Collections.unmodifiableList(streams);
+	}
+
+	/**
+	 * Parses the raw ffprobe output. Lines outside of a [STREAM] or [FORMAT] section are ignored.
+	 */
+	public static MediaInfo parse(final List<String> lines) {
+		final Map<String, String> format = new HashMap<>();
+		final List<StreamInfo> streams = new ArrayList<>();
+
+		Map<String, String> current = null;
+		for (final String rawLine : lines) {
+			final String line = rawLine.trim();
+
+			if (STREAM_START.equals(line) || FORMAT_START.equals(line)) {
+				current = new HashMap<>();
+			} else if (STREAM_END.equals(line)) {
+				if (current != null) {
+					streams.add(new StreamInfo(current));
+				}
+				current = null;
+			} else if (FORMAT_END.equals(line)) {
+				if (current != null) {
+					format.putAll(current);
+				}
+				current = null;
+			} else if (current != null && line.contains("=")) {
+				final int separator = line.indexOf('=');
+				current.put(line.substring(0, separator), line.substring(separator + 1));
+			}
+		}
+
+		return new MediaInfo(format, streams);
+	}
+
+	public double getDuration() {
+		return parseDouble(format.get("duration"), 0);
+	}
+
+	public long getSize() {
+		return parseLong(format.get("size"), 0);
+	}
+
+	/**
+	 * @return the overall bit rate in bits per second. Falls back to size / duration if ffprobe did not report one.
+	 */
+	public long getBitRate() {
+		final long bitRate = parseLong(format.get("bit_rate"), 0);
+		if (bitRate > 0 || getDuration() <= 0) {
+			return bitRate;
+		}
+		return Math.round(getSize() * 8 / getDuration());
+	}
+
+	public String getFormatName() {
+		return format.get("format_name");
+	}
+
+	public List<StreamInfo> getStreams() {
+		return streams;
+	}
+
+	public Optional<StreamInfo> getVideoStream() {
+		for (final StreamInfo stream : streams) {
+			if (stream.isVideo()) {
+				return of(stream);
+			}
+		}
+		return absent();
+	}
+
+	public Optional<StreamInfo> getAudioStream() {
+		for (final StreamInfo stream : streams) {
+			if (stream.isAudio()) {
+				return of(stream);
+			}
+		}
+		return absent();
+	}
+
+	public int getWidth() {
+		return getVideoStream().isPresent() ? getVideoStream().get().getWidth() : 0;
+	}
+
+	public int getHeight() {
+		return getVideoStream().isPresent() ? getVideoStream().get().getHeight() : 0;
+	}
+
+	public double getFps() {
+		return getVideoStream().isPresent() ? getVideoStream().get().getFps() : 0;
+	}
+
+	static double parseDouble(final String value, final double defaultValue) {
+		if (value == null || value.isEmpty() || "N/A".equals(value)) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	static long parseLong(final String value, final long defaultValue) {
+		if (value == null || value.isEmpty() || "N/A".equals(value)) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	public static class StreamInfo {
+
+		private final Map<String, String> values;
+
+		StreamInfo(final Map<String, String> values) {
+			this.values = values;
+		}
+
+		public int getIndex() {
+			return (int) parseLong(values.get("index"), -1);
+		}
+
+		public String getCodecType() {
+			return values.get("codec_type");
+		}
+
+		public String getCodecName() {
+			return values.get("codec_name");
+		}
+
+		public boolean isVideo() {
+			return "video".equals(getCodecType());
+		}
+
+		public boolean isAudio() {
+			return "audio".equals(getCodecType());
+		}
+
+		public int getWidth() {
+			return (int) parseLong(values.get("width"), 0);
+		}
+
+		public int getHeight() {
+			return (int) parseLong(values.get("height"), 0);
+		}
+
+		public double getDuration() {
+			return parseDouble(values.get("duration"), 0);
+		}
+
+		/**
+		 * @return the average frame rate, e.g. 29.97 for "30000/1001".
+		 */
+		public double getFps() {
+			String rate = values.get("avg_frame_rate");
+			if (rate == null || rate.startsWith("0")) {
+				rate = values.get("r_frame_rate");
+			}
+			if (rate == null) {
+				return 0;
+			}
+
+			final int separator = rate.indexOf('/');
+			if (separator < 0) {
+				return parseDouble(rate, 0);
+			}
+
+			final double numerator = parseDouble(rate.substring(0, separator), 0);
+			final double denominator = parseDouble(rate.substring(separator + 1), 0);
+			return denominator == 0 ? 0 : numerator / denominator;
+		}
+	}
+}
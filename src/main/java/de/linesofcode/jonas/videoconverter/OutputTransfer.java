@@ -0,0 +1,177 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.Files.move;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/**
+ * Moves finished outputs from the scratch directory to the (possibly slow) output directory in the background, so
+ * network writes never stall the encoder.
+ * <p>
+ * Every file is copied to a <code>.part</code> file next to its destination while its CRC32 is computed. The copy
+ * is then read back and only renamed to its final name if both checksums match. The scratch file is deleted
+ * afterwards and the job's callback runs. A failed transfer keeps the scratch file and skips the callback.
+ * <p>
+ * Copying and reading back can share a throughput limit with the other disk copies of the converter.
+ */
+public class OutputTransfer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OutputTransfer.class);
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private final ExecutorService executor;
+	private final Optional<RateLimiter> diskLimiter;
+	private final List<File> failed = Collections.synchronizedList(new ArrayList<File>());
+
+	public OutputTransfer(final int parallel) {
+		this(parallel, Optional.<RateLimiter>absent());
+	}
+
+	public OutputTransfer(final int parallel, final Optional<RateLimiter> diskLimiter) {
+		this.executor = Executors.newFixedThreadPool(parallel);
+		this.diskLimiter = diskLimiter;
+	}
+
+	/**
+	 * @param files scratch file to destination, transferred in iteration order.
+	 * @param reservation scratch space to release once the files left the scratch directory.
+	 * @param onSuccess runs after all files arrived verified.
+	 */
+	public void submit(final Map<File, File> files, final ScratchSpace.Reservation reservation, final Runnable onSuccess) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (final Map.Entry<File, File> entry : files.entrySet()) {
+						if (entry.getKey().exists()) {
+							transfer(entry.getKey(), entry.getValue(), diskLimiter);
+						}
+					}
+				} catch (IOException e) {
+					LOG.error("Transferring output failed. Keeping the scratch copy.", e);
+					failed.addAll(files.keySet());
+					return;
+				} finally {
+					reservation.release();
+				}
+
+				try {
+					onSuccess.run();
+				} catch (RuntimeException e) {
+					LOG.error("Finishing job after transfer failed.", e);
+					failed.addAll(files.values());
+				}
+			}
+		});
+	}
+
+	static void transfer(final File source, final File destination) throws IOException {
+		transfer(source, destination, Optional.<RateLimiter>absent());
+	}
+
+	static void transfer(final File source, final File destination, final Optional<RateLimiter> limiter)
+			throws IOException {
+		LOG.info("Transferring [{}] to [{}].", source.getAbsolutePath(), destination.getAbsolutePath());
+
+		final File part = new File(destination.getParentFile(), destination.getName() + ".part");
+		final long sourceChecksum = copy(source, part, limiter);
+		final long copyChecksum = checksum(part, limiter);
+
+		if (sourceChecksum != copyChecksum) {
+			part.delete();
+			throw new IOException("Checksum mismatch while transferring [" + source.getAbsolutePath() + "].");
+		}
+
+		if (destination.exists() && !destination.delete()) {
+			throw new IOException("Could not replace [" + destination.getAbsolutePath() + "].");
+		}
+		move(part.toPath(), destination.toPath(), ATOMIC_MOVE);
+
+		if (!source.delete()) {
+			LOG.warn("Could not delete scratch file [{}].", source.getAbsolutePath());
+		}
+		LOG.info("Transfer of [{}] verified.", destination.getName());
+	}
+
+	private static long copy(final File source, final File target, final Optional<RateLimiter> limiter)
+			throws IOException {
+		final CRC32 crc = new CRC32();
+		final byte[] buffer = new byte[BUFFER_SIZE];
+
+		try (final InputStream input = new FileInputStream(source);
+		     final OutputStream output = new FileOutputStream(target)) {
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				throttle(limiter, read);
+				crc.update(buffer, 0, read);
+				output.write(buffer, 0, read);
+			}
+		}
+		return crc.getValue();
+	}
+
+	static long checksum(final File file) throws IOException {
+		return checksum(file, Optional.<RateLimiter>absent());
+	}
+
+	private static long checksum(final File file, final Optional<RateLimiter> limiter) throws IOException {
+		final CRC32 crc = new CRC32();
+		final byte[] buffer = new byte[BUFFER_SIZE];
+
+		try (final InputStream input = new FileInputStream(file)) {
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				throttle(limiter, read);
+				crc.update(buffer, 0, read);
+			}
+		}
+		return crc.getValue();
+	}
+
+	static void throttle(final Optional<RateLimiter> limiter, final int bytes) {
+		if (limiter.isPresent() && bytes > 0) {
+			limiter.get().acquire(bytes);
+		}
+	}
+
+	/**
+	 * Waits for all transfers and shuts down.
+	 *
+	 * @return the scratch files that could not be transferred.
+	 */
+	public List<File> awaitCompletion() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOG.info("Waiting for output transfers to finish...");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+		}
+
+		synchronized (failed) {
+			return new ArrayList<>(failed);
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.INTRO_PATH;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_FADING;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_INTRO;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.VERIFY_SKIP;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.VERIFY_TOLERANCE;
+
+/**
+ * Checks an encoded output before its original is deleted or moved. An exit code of 0 does not prove that ffmpeg
+ * wrote a complete file, so the output has to be finalized, has to carry as many video and audio streams as the
+ * profile maps from the input, in the codecs the profile encodes to, and has to be as long as the input after
+ * trimming and attaching the intro.
+ * <p>
+ * Only container headers are read: the top level mp4 boxes, the playlist of segmented output, the ffprobe format
+ * and stream sections and the keyframe index a trim left next to the input. A check takes milliseconds instead of
+ * a second decode.
+ */
+public class OutputVerifier {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OutputVerifier.class);
+
+	static final String VIDEO_CODEC = "h264";
+	static final String AUDIO_CODEC = "aac";
+
+	private static final double DEFAULT_TOLERANCE = 1.0;
+
+	private final BooleanAwareProperties properties;
+	private final FfmpegController controller;
+
+	public OutputVerifier(final BooleanAwareProperties properties, final FfmpegController controller) {
+		this.properties = properties;
+		this.controller = controller;
+	}
+
+	/**
+	 * @throws RuntimeException listing every problem of the output, so the original is kept.
+	 */
+	public void verify(final File input, final File output) {
+		verify(Collections.singletonList(input), output);
+	}
+
+	/**
+	 * Verifies an output made of several inputs, like a compilation.
+	 *
+	 * @throws RuntimeException listing every problem of the output, so the originals are kept.
+	 */
+	public void verify(final List<File> inputs, final File output) {
+		if (properties.getBooleanProperty(VERIFY_SKIP)) {
+			LOG.warn("Output verification is disabled. Not verifying [{}].", output.getName());
+			return;
+		}
+		final long start = System.nanoTime();
+
+		double expected = 0;
+		boolean durationKnown = true;
+		boolean video = false;
+		int audio = Integer.MAX_VALUE;
+		for (final File input : inputs) {
+			final MediaInfo info = controller.probe(input);
+			final Optional<Double> duration = expectedDuration(input, info);
+			durationKnown &= duration.isPresent();
+			expected += duration.or(0.0);
+			video |= info.getVideoStream().isPresent();
+			// concatenated inputs need the same tracks, so the input with the fewest limits the output.
+			audio = Math.min(audio, countStreams(info, false));
+		}
+		if (properties.getBooleanProperty(USE_FADING) && properties.getBooleanProperty(USE_INTRO)) {
+			expected += controller.probe(new File(properties.getProperty(INTRO_PATH))).getDuration();
+		}
+		if (!durationKnown) {
+			expected = 0;
+		}
+		final int videoStreams = video ? 1 : 0;
+		final int audioStreams = controller.getExpectedAudioStreams(audio, inputs.size() > 1);
+		final double tolerance = properties.getDoubleProperty(VERIFY_TOLERANCE, DEFAULT_TOLERANCE);
+
+		final List<String> problems = new ArrayList<>();
+		final SegmentedOutput segmentedOutput = new SegmentedOutput(properties);
+		if (segmentedOutput.isSegmented() && !output.exists()) {
+			problems.addAll(checkPlaylist(segmentedOutput.getPlaylist(output), expected, tolerance));
+		} else {
+			for (final File file : outputFiles(output)) {
+				problems.addAll(checkFile(file, videoStreams, audioStreams, expected, tolerance));
+			}
+		}
+
+		if (!problems.isEmpty()) {
+			throw new RuntimeException("Output [" + output.getAbsolutePath() + "] failed verification: "
+					+ Joiner.on(" ").join(problems));
+		}
+		LOG.info("Verified output [{}] in [{}] ms.", output.getName(), (System.nanoTime() - start) / 1000000);
+	}
+
+	/**
+	 * @return the seconds of the input that end up in the output, absent if a trimmed input has no keyframe index
+	 * to repeat the cut points with.
+	 */
+	private Optional<Double> expectedDuration(final File input, final MediaInfo info) {
+		final Optional<Trimmer.Trim> trim = controller.getTrim(input);
+		if (!trim.isPresent()) {
+			return of(info.getDuration());
+		}
+
+		// only a stored index is used, building it again would read the whole input.
+		final Optional<KeyframeIndex> index = KeyframeIndex.read(input);
+		if (!index.isPresent()) {
+			LOG.warn("No keyframe index next to trimmed input [{}]. Not checking the duration of its output.",
+					input.getName());
+			return absent();
+		}
+
+		double kept = 0;
+		for (final Trimmer.Part part : Trimmer.plan(trim.get(), info.getDuration(), index.get())) {
+			kept += part.getEnd() - part.getStart();
+		}
+		return of(kept);
+	}
+
+	private List<File> outputFiles(final File output) {
+		final List<Rendition> renditions = controller.getRenditions();
+		if (renditions.isEmpty()) {
+			return Collections.singletonList(output);
+		}
+		final List<File> files = new ArrayList<>();
+		for (int i = 0; i < renditions.size(); i++) {
+			files.add(Rendition.outputFile(output, renditions, i));
+		}
+		return files;
+	}
+
+	private List<String> checkFile(final File file, final int videoStreams, final int audioStreams, final double expected,
+			final double tolerance) {
+		if (!file.isFile() || file.length() == 0) {
+			return Collections.singletonList("[" + file.getName() + "] is missing or empty.");
+		}
+
+		final String name = file.getName().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".mp4") || name.endsWith(".mov") || name.endsWith(".m4v")) {
+			final Optional<String> problem = checkMp4Boxes(file);
+			if (problem.isPresent()) {
+				return Collections.singletonList(problem.get());
+			}
+		}
+
+		final MediaInfo output;
+		try {
+			output = controller.probe(file);
+		} catch (RuntimeException e) {
+			return Collections.singletonList("[" + file.getName() + "] could not be probed: " + e.getMessage());
+		}
+		return compare(file.getName(), output, videoStreams, audioStreams, expected, tolerance);
+	}
+
+	/**
+	 * Compares the probed output with what the profile makes of its inputs.
+	 *
+	 * @param videoStreams number of video streams the output should have.
+	 * @param audioStreams number of audio streams the output should have.
+	 * @param expected seconds the output should last, not checked if 0.
+	 * @return a description of every mismatch.
+	 */
+	static List<String> compare(final String name, final MediaInfo output, final int videoStreams,
+			final int audioStreams, final double expected, final double tolerance) {
+		final List<String> problems = new ArrayList<>();
+		checkStreams(name, output, true, videoStreams, VIDEO_CODEC, problems);
+		checkStreams(name, output, false, audioStreams, AUDIO_CODEC, problems);
+
+		if (expected > 0 && Math.abs(output.getDuration() - expected) > tolerance) {
+			problems.add(String.format(Locale.ROOT, "[%s] lasts %.3f seconds instead of %.3f.", name,
+					output.getDuration(), expected));
+		}
+		return problems;
+	}
+
+	private static void checkStreams(final String name, final MediaInfo output, final boolean video, final int expected,
+			final String codec, final List<String> problems) {
+		final String type = video ? "video" : "audio";
+		final int actual = countStreams(output, video);
+		if (actual == 0 && expected > 0) {
+			problems.add("[" + name + "] has no " + type + " stream.");
+			return;
+		}
+		if (actual != expected) {
+			problems.add("[" + name + "] has " + actual + " " + type + " streams instead of " + expected + ".");
+		}
+
+		for (final MediaInfo.StreamInfo stream : output.getStreams()) {
+			if ((video ? stream.isVideo() : stream.isAudio()) && !codec.equals(stream.getCodecName())) {
+				problems.add("[" + name + "] has " + type + " codec [" + stream.getCodecName() + "] instead of [" + codec + "].");
+				return;
+			}
+		}
+	}
+
+	private static int countStreams(final MediaInfo info, final boolean video) {
+		int count = 0;
+		for (final MediaInfo.StreamInfo stream : info.getStreams()) {
+			if (video ? stream.isVideo() : stream.isAudio()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Walks the top level boxes of an mp4 file. ffmpeg writes the moov box with the sample tables last, so a file
+	 * whose encode did not finish has none or its boxes do not end with the file.
+	 *
+	 * @return the problem, absent if the file is finalized.
+	 */
+	static Optional<String> checkMp4Boxes(final File mp4) {
+		try (final RandomAccessFile file = new RandomAccessFile(mp4, "r")) {
+			final long length = file.length();
+			final byte[] type = new byte[4];
+			boolean moov = false;
+
+			long position = 0;
+			while (position < length) {
+				if (length - position < 8) {
+					return of("[" + mp4.getName() + "] ends within a box header.");
+				}
+				file.seek(position);
+				long size = file.readInt() & 0xFFFFFFFFL;
+				file.readFully(type);
+				final String name = new String(type, StandardCharsets.US_ASCII);
+
+				if (size == 1) {
+					if (length - position < 16) {
+						return of("[" + mp4.getName() + "] ends within a box header.");
+					}
+					size = file.readLong();
+				} else if (size == 0) {
+					// the box extends to the end of the file.
+					size = length - position;
+				}
+				if (size < 8 || position + size > length) {
+					return of("[" + mp4.getName() + "] is truncated within its [" + name + "] box.");
+				}
+
+				moov |= "moov".equals(name);
+				position += size;
+			}
+
+			return moov ? Optional.<String>absent() : of("[" + mp4.getName() + "] has no moov box, it was not finalized.");
+		} catch (IOException e) {
+			return of("[" + mp4.getName() + "] could not be read: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Checks that the playlist of segmented output was closed and, for HLS, that its segments exist and add up to
+	 * the expected duration.
+	 */
+	static List<String> checkPlaylist(final File playlist, final double expected, final double tolerance) {
+		final List<String> lines;
+		try {
+			lines = Files.readAllLines(playlist.toPath(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return Collections.singletonList("Playlist [" + playlist.getAbsolutePath() + "] could not be read.");
+		}
+
+		final List<String> problems = new ArrayList<>();
+		if (playlist.getName().endsWith(".mpd")) {
+			if (!Joiner.on('\n').join(lines).contains("type=\"static\"")) {
+				problems.add("Manifest [" + playlist.getName() + "] is still dynamic, the encode was not finalized.");
+			}
+			return problems;
+		}
+
+		double duration = 0;
+		boolean ended = false;
+		for (final String rawLine : lines) {
+			final String line = rawLine.trim();
+			if (line.startsWith("#EXTINF:")) {
+				final int end = line.indexOf(',');
+				duration += MediaInfo.parseDouble(line.substring("#EXTINF:".length(), end < 0 ? line.length() : end), 0);
+			} else if (line.equals("#EXT-X-ENDLIST")) {
+				ended = true;
+			} else if (!line.isEmpty() && !line.startsWith("#")) {
+				final File segment = new File(playlist.getParentFile(), line);
+				if (!segment.isFile() || segment.length() == 0) {
+					problems.add("Segment [" + line + "] is missing or empty.");
+				}
+			}
+		}
+
+		if (!ended) {
+			problems.add("Playlist [" + playlist.getName() + "] has no end, the encode was not finalized.");
+		}
+		if (expected > 0 && Math.abs(duration - expected) > tolerance) {
+			problems.add(String.format(Locale.ROOT, "Playlist [%s] lasts %.3f seconds instead of %.3f.",
+					playlist.getName(), duration, expected));
+		}
+		return problems;
+	}
+}
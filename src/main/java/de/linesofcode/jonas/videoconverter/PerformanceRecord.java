@@ -0,0 +1,133 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+
+import java.util.List;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+
+/**
+ * Outcome of one finished encode: what was encoded with which settings on which host and how long it took.
+ */
+public class PerformanceRecord {
+
+	private static final char SEPARATOR = '\t';
+	private static final int FIELD_COUNT = 11;
+
+	private final long timestamp;
+	private final String host;
+	private final String pipeline;
+	private final String preset;
+	private final int width;
+	private final int height;
+	private final double fps;
+	private final int threads;
+	private final double mediaDuration;
+	private final double wallSeconds;
+	private final long outputBytes;
+
+	public PerformanceRecord(final long timestamp, final String host, final String pipeline, final String preset,
+			final int width, final int height, final double fps, final int threads, final double mediaDuration,
+			final double wallSeconds, final long outputBytes) {
+		this.timestamp = timestamp;
+		this.host = host;
+		this.pipeline = pipeline;
+		this.preset = preset;
+		this.width = width;
+		this.height = height;
+		this.fps = fps;
+		this.threads = threads;
+		this.mediaDuration = mediaDuration;
+		this.wallSeconds = wallSeconds;
+		this.outputBytes = outputBytes;
+	}
+
+	public String toLine() {
+		return Joiner.on(SEPARATOR).join(timestamp, host, pipeline, preset, width, height, fps, threads,
+				mediaDuration, wallSeconds, outputBytes);
+	}
+
+	public static Optional<PerformanceRecord> fromLine(final String line) {
+		final List<String> fields = Splitter.on(SEPARATOR).splitToList(line);
+		if (fields.size() != FIELD_COUNT) {
+			return absent();
+		}
+
+		try {
+			return of(new PerformanceRecord(Long.parseLong(fields.get(0)), fields.get(1), fields.get(2), fields.get(3),
+					Integer.parseInt(fields.get(4)), Integer.parseInt(fields.get(5)), Double.parseDouble(fields.get(6)),
+					Integer.parseInt(fields.get(7)), Double.parseDouble(fields.get(8)), Double.parseDouble(fields.get(9)),
+					Long.parseLong(fields.get(10))));
+		} catch (NumberFormatException e) {
+			return absent();
+		}
+	}
+
+	/**
+	 * @return seconds of media encoded per second of wall time.
+	 */
+	public double getSpeedFactor() {
+		return wallSeconds <= 0 ? 0 : mediaDuration / wallSeconds;
+	}
+
+	/**
+	 * @return source pixels processed per second of wall time. Normalises the speed factor over resolution and fps.
+	 */
+	public double getPixelThroughput() {
+		return width * (double) height * fps * getSpeedFactor();
+	}
+
+	/**
+	 * @return output bytes per second of media.
+	 */
+	public double getOutputByteRate() {
+		return mediaDuration <= 0 ? 0 : outputBytes / mediaDuration;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public String getPipeline() {
+		return pipeline;
+	}
+
+	public String getPreset() {
+		return preset;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public double getFps() {
+		return fps;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public double getMediaDuration() {
+		return mediaDuration;
+	}
+
+	public double getWallSeconds() {
+		return wallSeconds;
+	}
+
+	public long getOutputBytes() {
+		return outputBytes;
+	}
+}
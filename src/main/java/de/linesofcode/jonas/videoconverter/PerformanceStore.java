@@ -0,0 +1,112 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PERFORMANCE_MAX_RECORDS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PERFORMANCE_STORE;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+
+/**
+ * Local append-only store of {@link PerformanceRecord}s. One record per line, oldest records are dropped once
+ * the configured maximum is exceeded.
+ */
+public class PerformanceStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PerformanceStore.class);
+
+	private static final String DEFAULT_FILE = "VideoConverter.performance";
+	private static final int DEFAULT_MAX_RECORDS = 5000;
+
+	private final Path file;
+	private final int maxRecords;
+
+	private List<PerformanceRecord> records;
+
+	public PerformanceStore(final BooleanAwareProperties properties) {
+		this(new File(properties.getProperty(PERFORMANCE_STORE, DEFAULT_FILE)).toPath(),
+				properties.getIntegerProperty(PERFORMANCE_MAX_RECORDS, DEFAULT_MAX_RECORDS));
+	}
+
+	public PerformanceStore(final Path file, final int maxRecords) {
+		this.file = file;
+		this.maxRecords = maxRecords;
+	}
+
+	public synchronized List<PerformanceRecord> getRecords() {
+		ensureLoaded();
+		return Collections.unmodifiableList(new ArrayList<>(records));
+	}
+
+	public synchronized void add(final PerformanceRecord record) {
+		ensureLoaded();
+		records.add(record);
+
+		try {
+			if (records.size() > maxRecords) {
+				LOG.debug("Performance store exceeds [{}] records. Compacting.", maxRecords);
+				records = new ArrayList<>(records.subList(records.size() - maxRecords, records.size()));
+				rewrite();
+			} else {
+				try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, CREATE, APPEND)) {
+					writer.write(record.toLine());
+					writer.newLine();
+				}
+			}
+		} catch (IOException e) {
+			// losing a statistic must never fail a conversion.
+			LOG.warn("Could not write performance record to [{}].", file.toAbsolutePath(), e);
+		}
+	}
+
+	private void rewrite() throws IOException {
+		try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, CREATE, TRUNCATE_EXISTING)) {
+			for (final PerformanceRecord record : records) {
+				writer.write(record.toLine());
+				writer.newLine();
+			}
+		}
+	}
+
+	private void ensureLoaded() {
+		if (records != null) {
+			return;
+		}
+
+		records = new ArrayList<>();
+		if (!Files.exists(file)) {
+			LOG.debug("No performance store found at [{}].", file.toAbsolutePath());
+			return;
+		}
+
+		try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final Optional<PerformanceRecord> record = PerformanceRecord.fromLine(line);
+				if (record.isPresent()) {
+					records.add(record.get());
+				} else if (!line.isEmpty()) {
+					LOG.debug("Ignoring malformed performance record [{}].", line);
+				}
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not read performance store [{}].", file.toAbsolutePath(), e);
+		}
+
+		LOG.debug("Loaded [{}] performance records.", records.size());
+	}
+}
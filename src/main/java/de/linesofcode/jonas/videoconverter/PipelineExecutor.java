@@ -0,0 +1,136 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs processes as a chain where the standard output of one stage is the standard input of the next, like a
+ * shell pipe. All stages run at the same time and the pipe's buffer provides the backpressure, so stage N+1 consumes
+ * while stage N is still producing and nothing is written to disk in between.
+ * <p>
+ * Standard error of every stage is written to the job log, or logged if there is none. If a stage fails, the stages
+ * feeding it are stopped.
+ */
+public class PipelineExecutor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PipelineExecutor.class);
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private final Optional<JobLogs.JobLog> jobLog;
+
+	public PipelineExecutor() {
+		this.jobLog = Optional.absent();
+	}
+
+	public PipelineExecutor(final JobLogs.JobLog jobLog) {
+		this.jobLog = Optional.of(jobLog);
+	}
+
+	public void run(final List<ProcessBuilder> stages) {
+		final List<Process> processes = new ArrayList<>();
+		final List<Thread> threads = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < stages.size(); i++) {
+				LOG.info("Starting pipeline stage [{}] [{}].", i, stages.get(i).command());
+				final Process process = stages.get(i).redirectErrorStream(false).start();
+				processes.add(process);
+				threads.add(start(logger(process.getErrorStream(), i), "pipeline-log-" + i));
+
+				if (i > 0) {
+					threads.add(start(pump(processes.get(i - 1), process), "pipeline-pipe-" + i));
+				}
+			}
+
+			// the output of the last stage is not piped anywhere.
+			final Process last = processes.get(processes.size() - 1);
+			threads.add(start(logger(last.getInputStream(), processes.size() - 1), "pipeline-out"));
+
+			for (int i = processes.size() - 1; i >= 0; i--) {
+				final int result = processes.get(i).waitFor();
+				if (result != 0) {
+					if (jobLog.isPresent()) {
+						jobLog.get().reportFailure();
+					}
+					throw new RuntimeException("FFMPEG pipeline stage " + i + " failed.");
+				}
+			}
+
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			for (final Process process : processes) {
+				process.destroy();
+			}
+		}
+	}
+
+	private static Thread start(final Runnable runnable, final String name) {
+		final Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Copies stdout of the producer to stdin of the consumer. Closing the consumer's stdin signals end of input. If
+	 * the consumer goes away the producer is stopped, otherwise it would block on a full pipe forever.
+	 */
+	private static Runnable pump(final Process producer, final Process consumer) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				final byte[] buffer = new byte[BUFFER_SIZE];
+				try (final InputStream input = producer.getInputStream();
+				     final OutputStream output = consumer.getOutputStream()) {
+					int read;
+					while ((read = input.read(buffer)) > 0) {
+						output.write(buffer, 0, read);
+					}
+				} catch (IOException e) {
+					LOG.warn("Pipe between stages broke. Stopping the producing stage.", e);
+					producer.destroy();
+				}
+			}
+		};
+	}
+
+	private Runnable logger(final InputStream stream, final int stage) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				if (jobLog.isPresent()) {
+					JobLogs.tag(jobLog.get().getJob());
+				}
+				try (final BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (jobLog.isPresent()) {
+							jobLog.get().append(stage + ": " + line);
+						} else {
+							LOG.info("[{}] {}", stage, line);
+						}
+					}
+				} catch (IOException e) {
+					LOG.debug("Output of stage [{}] ended.", stage, e);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,182 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.THUMBNAILS_COLUMNS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.THUMBNAILS_ENABLED;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.THUMBNAILS_INTERVAL;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.THUMBNAILS_POSTER;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.THUMBNAILS_ROWS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.THUMBNAILS_WIDTH;
+
+/**
+ * Poster frame, interval thumbnails and sprite sheets with a WebVTT index for scrubbing previews.
+ * <p>
+ * The images are extra outputs of the main encode's filter graph, so the input is decoded only once. For an output
+ * <code>name.mp4</code> they are written next to it as <code>name.poster.jpg</code>, <code>name.thumbs/0001.jpg</code>,
+ * <code>name.sprite001.jpg</code> and <code>name.vtt</code>.
+ */
+public class PreviewImages {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PreviewImages.class);
+
+	private final boolean enabled;
+	private final int interval;
+	private final int width;
+	private final int columns;
+	private final int rows;
+	private final double posterSecond;
+
+	public PreviewImages(final BooleanAwareProperties properties) {
+		this(properties.getBooleanProperty(THUMBNAILS_ENABLED),
+				properties.getIntegerProperty(THUMBNAILS_INTERVAL, 10),
+				properties.getIntegerProperty(THUMBNAILS_WIDTH, 160),
+				properties.getIntegerProperty(THUMBNAILS_COLUMNS, 10),
+				properties.getIntegerProperty(THUMBNAILS_ROWS, 10),
+				properties.getDoubleProperty(THUMBNAILS_POSTER, 5));
+	}
+
+	PreviewImages(final boolean enabled, final int interval, final int width, final int columns, final int rows,
+			final double posterSecond) {
+		this.enabled = enabled;
+		this.interval = interval;
+		this.width = width;
+		this.columns = columns;
+		this.rows = rows;
+		this.posterSecond = posterSecond;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return the thumbnail height for the input's aspect ratio, rounded to an even number.
+	 */
+	int height(final MediaInfo info) {
+		if (info.getWidth() <= 0 || info.getHeight() <= 0) {
+			return width * 9 / 16 / 2 * 2;
+		}
+		return (int) Math.round((double) width * info.getHeight() / info.getWidth() / 2) * 2;
+	}
+
+	/**
+	 * @param input label of the decoded video in the filter graph, without brackets.
+	 * @return filter graph chains producing the labels <code>poster</code>, <code>thumbs</code> and <code>sprite</code>.
+	 */
+	public String buildFilterGraph(final String input, final MediaInfo info) {
+		final String scale = "scale=" + width + ":" + height(info);
+		final double poster = Math.min(posterSecond, info.getDuration() / 2);
+
+		return "[" + input + "]split=3[pp][pt][ps]"
+				+ String.format(Locale.ROOT, ";[pp]trim=start=%.3f,setpts=PTS-STARTPTS,", poster) + scale + "[poster]"
+				+ ";[pt]fps=1/" + interval + "," + scale + "[thumbs]"
+				+ ";[ps]fps=1/" + interval + "," + scale + ",tile=" + columns + "x" + rows + "[sprite]";
+	}
+
+	/**
+	 * @return the ffmpeg output options writing the labels of {@link #buildFilterGraph(String, MediaInfo)}.
+	 */
+	public String buildOutputs(final File output) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(" -map \"[poster]\" -frames:v 1 \"").append(getPoster(output).getAbsolutePath()).append("\"");
+		builder.append(" -map \"[thumbs]\" \"").append(new File(getThumbnailDirectory(output), "%04d.jpg").getAbsolutePath()).append("\"");
+		builder.append(" -map \"[sprite]\" \"").append(new File(output.getParentFile(), baseName(output) + ".sprite%03d.jpg").getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	/**
+	 * Creates the directories the outputs of {@link #buildOutputs(File)} are written to.
+	 */
+	public void prepare(final File output) {
+		final File directory = getThumbnailDirectory(output);
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new RuntimeException("Could not create thumbnail directory [" + directory.getAbsolutePath() + "].");
+		}
+	}
+
+	/**
+	 * Writes the WebVTT index mapping every thumbnail interval to its tile in the sprite sheets.
+	 */
+	public void writeIndex(final File output, final MediaInfo info) {
+		final String[] thumbnails = getThumbnailDirectory(output).list();
+		final int count = thumbnails == null ? 0 : thumbnails.length;
+		final File index = getIndex(output);
+
+		try {
+			Files.write(index.toPath(), buildIndex(baseName(output), count, height(info)), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new RuntimeException("Writing preview index [" + index.getAbsolutePath() + "] failed.", e);
+		}
+		LOG.info("Wrote [{}] preview cues to [{}].", count, index.getName());
+	}
+
+	List<String> buildIndex(final String baseName, final int count, final int thumbnailHeight) {
+		final List<String> lines = new ArrayList<>();
+		lines.add("WEBVTT");
+
+		final int perSheet = columns * rows;
+		for (int i = 0; i < count; i++) {
+			final int tile = i % perSheet;
+			lines.add("");
+			lines.add(timestamp(i * interval) + " --> " + timestamp((i + 1) * interval));
+			lines.add(String.format(Locale.ROOT, "%s.sprite%03d.jpg#xywh=%d,%d,%d,%d", baseName, i / perSheet + 1,
+					tile % columns * width, tile / columns * thumbnailHeight, width, thumbnailHeight));
+		}
+		return lines;
+	}
+
+	private static String timestamp(final long seconds) {
+		return String.format(Locale.ROOT, "%02d:%02d:%02d.000", seconds / 3600, seconds / 60 % 60, seconds % 60);
+	}
+
+	/**
+	 * @return all files written for the given output.
+	 */
+	public List<File> getFiles(final File output) {
+		final List<File> files = new ArrayList<>();
+		final File[] thumbnails = getThumbnailDirectory(output).listFiles();
+		if (thumbnails != null) {
+			files.addAll(Arrays.asList(thumbnails));
+		}
+		final File[] siblings = output.getParentFile().listFiles();
+		if (siblings != null) {
+			for (final File sibling : siblings) {
+				if (sibling.getName().startsWith(baseName(output) + ".sprite")) {
+					files.add(sibling);
+				}
+			}
+		}
+		files.add(getPoster(output));
+		files.add(getIndex(output));
+		return files;
+	}
+
+	public File getPoster(final File output) {
+		return new File(output.getParentFile(), baseName(output) + ".poster.jpg");
+	}
+
+	public File getIndex(final File output) {
+		return new File(output.getParentFile(), baseName(output) + ".vtt");
+	}
+
+	public File getThumbnailDirectory(final File output) {
+		return new File(output.getParentFile(), baseName(output) + ".thumbs");
+	}
+
+	private static String baseName(final File output) {
+		final String name = output.getName();
+		final int extension = name.lastIndexOf('.');
+		return extension < 0 ? name : name.substring(0, extension);
+	}
+}
@@ -0,0 +1,97 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Splitter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One output variant of a multi-rendition profile, e.g. <code>720p:1280x720:3000k</code>.
+ */
+public class Rendition {
+
+	private final String name;
+	private final int width;
+	private final int height;
+	private final String videoBitrate;
+
+	public Rendition(final String name, final int width, final int height, final String videoBitrate) {
+		this.name = name;
+		this.width = width;
+		this.height = height;
+		this.videoBitrate = videoBitrate;
+	}
+
+	/**
+	 * Parses a comma separated list of <code>name:WIDTHxHEIGHT:bitrate</code> entries.
+	 */
+	public static List<Rendition> parseList(final String value) {
+		final List<Rendition> renditions = new ArrayList<>();
+
+		for (final String entry : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+			final List<String> parts = Splitter.on(':').trimResults().splitToList(entry);
+			if (parts.size() != 3) {
+				throw new IllegalArgumentException("Rendition [" + entry + "] is not of the form name:WIDTHxHEIGHT:bitrate.");
+			}
+
+			final List<String> size = Splitter.on('x').trimResults().splitToList(parts.get(1).toLowerCase());
+			if (size.size() != 2) {
+				throw new IllegalArgumentException("Resolution of rendition [" + entry + "] is not of the form WIDTHxHEIGHT.");
+			}
+
+			try {
+				renditions.add(new Rendition(parts.get(0), Integer.parseInt(size.get(0)), Integer.parseInt(size.get(1)),
+						parts.get(2)));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Resolution of rendition [" + entry + "] is not numeric.", e);
+			}
+		}
+
+		return renditions;
+	}
+
+	/**
+	 * The first rendition is written to the regular output file, every further one gets its name appended.
+	 */
+	public static File outputFile(final File primary, final List<Rendition> renditions, final int index) {
+		if (index == 0) {
+			return primary;
+		}
+
+		final String name = primary.getName();
+		final int extension = name.lastIndexOf('.');
+		final String fileName = name.substring(0, extension) + " " + renditions.get(index).getName() + name.substring(extension);
+		return new File(primary.getParentFile(), fileName);
+	}
+
+	/**
+	 * @return the bitrate as number, e.g. 3000000 for "3000k" or "3M".
+	 */
+	long getBitsPerSecond() {
+		final String lower = videoBitrate.toLowerCase();
+		if (lower.endsWith("k")) {
+			return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1000;
+		}
+		if (lower.endsWith("m")) {
+			return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1000000;
+		}
+		return Long.parseLong(lower);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public String getVideoBitrate() {
+		return videoBitrate;
+	}
+}
@@ -0,0 +1,329 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.RESOURCES_DISK_BANDWIDTH;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.RESOURCES_IONICE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.RESOURCES_MAX_CPU_PRESSURE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.RESOURCES_MAX_LOAD;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.RESOURCES_NICE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.RESOURCES_POLL_SECONDS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.RESOURCES_WINDOWS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.STAGES_LIMIT_CPU;
+
+/**
+ * Keeps background encoding from starving other services on a shared host.
+ * <ul>
+ * <li>Spawned processes run with lower CPU and I/O priority. On Windows the converter lowers its own priority class,
+ * which its processes inherit, so no wrapper process stands between it and ffmpeg.</li>
+ * <li>Disk copies done by the converter itself share one throughput limit.</li>
+ * <li>Time of day windows set how many encodes may run at once. A limit of 0 pauses encoding.</li>
+ * <li>New jobs wait while the load average or the CPU pressure of the host is too high.</li>
+ * </ul>
+ * Everything is off unless configured, and like all settings it can differ per profile. The limits apply to every
+ * job sharing the policy: all files of a run, or all jobs of a {@link JobQueue}.
+ */
+public class ResourcePolicy {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ResourcePolicy.class);
+
+	private static final File CPU_PRESSURE = new File("/proc/pressure/cpu");
+	private static final Pattern AVG10 = Pattern.compile("^some avg10=([0-9.]+)");
+	private static final Pattern WINDOW = Pattern.compile("(\\d{1,2}):(\\d{2})-(\\d{1,2}):(\\d{2})=(\\d+)");
+
+	private final int defaultConcurrency;
+	private final List<Window> windows;
+	private final int nice;
+	private final int ionice;
+	private final double maxLoad;
+	private final double maxCpuPressure;
+	private final Optional<RateLimiter> diskLimiter;
+	private final long pollMillis;
+
+	private static boolean ownPriorityLowered;
+
+	private int running;
+
+	ResourcePolicy(final int defaultConcurrency, final List<Window> windows, final int nice, final int ionice,
+			final double maxLoad, final double maxCpuPressure, final long diskBytesPerSecond, final long pollMillis) {
+		this.defaultConcurrency = defaultConcurrency;
+		this.windows = windows;
+		this.nice = nice;
+		this.ionice = ionice;
+		this.maxLoad = maxLoad;
+		this.maxCpuPressure = maxCpuPressure;
+		this.diskLimiter = diskBytesPerSecond > 0 ? of(RateLimiter.create(diskBytesPerSecond)) : Optional.<RateLimiter>absent();
+		this.pollMillis = pollMillis;
+	}
+
+	public static ResourcePolicy fromProperties(final BooleanAwareProperties properties) {
+		return new ResourcePolicy(properties.getIntegerProperty(STAGES_LIMIT_CPU, 1),
+				parseWindows(properties.getProperty(RESOURCES_WINDOWS, "")),
+				properties.getIntegerProperty(RESOURCES_NICE, 0),
+				properties.getIntegerProperty(RESOURCES_IONICE, -1),
+				properties.getDoubleProperty(RESOURCES_MAX_LOAD, 0),
+				properties.getDoubleProperty(RESOURCES_MAX_CPU_PRESSURE, 0),
+				properties.getLongProperty(RESOURCES_DISK_BANDWIDTH, 0),
+				properties.getLongProperty(RESOURCES_POLL_SECONDS, 30) * 1000);
+	}
+
+	/**
+	 * @return a policy that only limits the number of concurrent encodes.
+	 */
+	public static ResourcePolicy unrestricted(final int concurrency) {
+		return new ResourcePolicy(concurrency, Collections.<Window>emptyList(), 0, -1, 0, 0, 0, 30000);
+	}
+
+	/**
+	 * @return the arguments of the command, prefixed to run with the configured priorities.
+	 */
+	public List<String> wrap(final String command) {
+		final boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+		if (windows && nice > 0) {
+			lowerOwnPriority(nice >= 15 ? "Idle" : "BelowNormal");
+		}
+		return wrap(command, windows);
+	}
+
+	List<String> wrap(final String command, final boolean windows) {
+		if (windows) {
+			// the command line is passed on as it is, see ProcessBuilder on Windows.
+			return Collections.singletonList(command);
+		}
+
+		final List<String> arguments = new ArrayList<>();
+		if (nice > 0) {
+			arguments.addAll(Arrays.asList("nice", "-n", String.valueOf(nice)));
+		}
+		if (ionice >= 0) {
+			arguments.addAll(Arrays.asList("ionice", "-c", "2", "-n", String.valueOf(Math.min(ionice, 7))));
+		}
+		arguments.addAll(split(command));
+		return arguments;
+	}
+
+	/**
+	 * Splits a command line at spaces outside of double quotes and removes the quotes.
+	 */
+	static List<String> split(final String command) {
+		final List<String> arguments = new ArrayList<>();
+		final StringBuilder argument = new StringBuilder();
+		boolean quoted = false;
+		boolean started = false;
+		for (final char c : command.toCharArray()) {
+			if (c == '"') {
+				quoted = !quoted;
+				started = true;
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (started) {
+					arguments.add(argument.toString());
+					argument.setLength(0);
+					started = false;
+				}
+			} else {
+				argument.append(c);
+				started = true;
+			}
+		}
+		if (started) {
+			arguments.add(argument.toString());
+		}
+		return arguments;
+	}
+
+	/**
+	 * Windows processes inherit a below normal or idle priority class from their parent. Setting it on the converter
+	 * keeps ffmpeg a direct child, so destroying the process stops the encode.
+	 */
+	private static synchronized void lowerOwnPriority(final String priorityClass) {
+		if (ownPriorityLowered) {
+			return;
+		}
+		ownPriorityLowered = true;
+
+		final String name = ManagementFactory.getRuntimeMXBean().getName();
+		final String pid = name.substring(0, name.indexOf('@'));
+		try {
+			final Process process = new ProcessBuilder("powershell", "-NoProfile", "-Command",
+					"(Get-Process -Id " + pid + ").PriorityClass = '" + priorityClass + "'").redirectErrorStream(true).start();
+			if (process.waitFor() != 0) {
+				LOG.warn("Could not lower the priority class of the converter to [{}].", priorityClass);
+			} else {
+				LOG.info("Lowered the priority class of the converter and its processes to [{}].", priorityClass);
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not lower the priority class of the converter to [{}].", priorityClass, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the highest number of encodes any time window allows, which is how many files may be worked on at once.
+	 */
+	public int getMaxConcurrency() {
+		int max = defaultConcurrency;
+		for (final Window window : windows) {
+			max = Math.max(max, window.getConcurrency());
+		}
+		return max;
+	}
+
+	/**
+	 * @return the limiter all disk copies of the converter share, absent if unlimited.
+	 */
+	public Optional<RateLimiter> getDiskLimiter() {
+		return diskLimiter;
+	}
+
+	/**
+	 * @return how many encodes may run at the given time of day.
+	 */
+	int concurrencyAt(final int minuteOfDay) {
+		for (final Window window : windows) {
+			if (window.contains(minuteOfDay)) {
+				return window.getConcurrency();
+			}
+		}
+		return defaultConcurrency;
+	}
+
+	private int currentConcurrency() {
+		final Calendar now = Calendar.getInstance();
+		return concurrencyAt(now.get(Calendar.HOUR_OF_DAY) * 60 + now.get(Calendar.MINUTE));
+	}
+
+	/**
+	 * Blocks until the current window allows another encode and the host is not overloaded.
+	 */
+	public synchronized void acquireEncodeSlot() throws InterruptedException {
+		while (true) {
+			final int allowed = currentConcurrency();
+			if (running < allowed && !isOverloaded()) {
+				running++;
+				return;
+			}
+			LOG.info("Waiting for an encode slot: [{}] running, [{}] allowed now.", running, allowed);
+			wait(pollMillis);
+		}
+	}
+
+	public synchronized void releaseEncodeSlot() {
+		running--;
+		notifyAll();
+	}
+
+	/**
+	 * Blocks new jobs while the current window pauses encoding or the host is overloaded.
+	 */
+	public void awaitAdmission() {
+		try {
+			while (currentConcurrency() <= 0 || isOverloaded()) {
+				LOG.info("Encoding is paused by the resource policy. Checking again in [{}] seconds.", pollMillis / 1000);
+				Thread.sleep(pollMillis);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	boolean isOverloaded() {
+		if (maxLoad > 0) {
+			final double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+			if (load > maxLoad) {
+				LOG.info("Load average [{}] is above [{}].", load, maxLoad);
+				return true;
+			}
+		}
+
+		if (maxCpuPressure > 0 && CPU_PRESSURE.exists()) {
+			try {
+				final Optional<Double> pressure = parseCpuPressure(Files.readAllLines(CPU_PRESSURE.toPath(), StandardCharsets.UTF_8));
+				if (pressure.isPresent() && pressure.get() > maxCpuPressure) {
+					LOG.info("CPU pressure [{}]% is above [{}]%.", pressure.get(), maxCpuPressure);
+					return true;
+				}
+			} catch (IOException e) {
+				LOG.debug("Could not read CPU pressure.", e);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the share of the last 10 seconds in which some task waited for a CPU, in percent.
+	 */
+	static Optional<Double> parseCpuPressure(final List<String> lines) {
+		for (final String line : lines) {
+			final Matcher matcher = AVG10.matcher(line.trim());
+			if (matcher.find()) {
+				return of(Double.parseDouble(matcher.group(1)));
+			}
+		}
+		return absent();
+	}
+
+	/**
+	 * Parses windows like <code>22:00-06:00=4,06:00-22:00=1</code>. A window ending before it starts spans
+	 * midnight.
+	 */
+	static List<Window> parseWindows(final String value) {
+		final List<Window> windows = new ArrayList<>();
+		for (final String entry : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+			final Matcher matcher = WINDOW.matcher(entry);
+			if (!matcher.matches()) {
+				throw new RuntimeException("Resource window [" + entry + "] does not match HH:mm-HH:mm=concurrency.");
+			}
+			windows.add(new Window(
+					Integer.parseInt(matcher.group(1)) * 60 + Integer.parseInt(matcher.group(2)),
+					Integer.parseInt(matcher.group(3)) * 60 + Integer.parseInt(matcher.group(4)),
+					Integer.parseInt(matcher.group(5))));
+		}
+		return windows;
+	}
+
+	static class Window {
+
+		private final int start;
+		private final int end;
+		private final int concurrency;
+
+		Window(final int start, final int end, final int concurrency) {
+			this.start = start;
+			this.end = end;
+			this.concurrency = concurrency;
+		}
+
+		boolean contains(final int minuteOfDay) {
+			if (start < end) {
+				return minuteOfDay >= start && minuteOfDay < end;
+			}
+			return minuteOfDay >= start || minuteOfDay < end;
+		}
+
+		int getConcurrency() {
+			return concurrency;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.INTERMEDIATE_DIRECTORY;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.INTERMEDIATE_MIN_FREE;
+
+/**
+ * Fast local directory for intermediates and in-progress outputs with admission control.
+ * <p>
+ * Before a job starts it reserves the disk space it is estimated to need. {@link #reserve(long)} blocks until the
+ * scratch volume has that much space left after subtracting the not yet written part of all other reservations and
+ * the configured minimum free space. A job that is alone is always admitted so a bad estimate cannot block forever.
+ */
+public class ScratchSpace {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ScratchSpace.class);
+
+	private static final long DEFAULT_MIN_FREE = 1024L * 1024 * 1024;
+
+	/** Safety margin on top of the estimated need. */
+	static final double ESTIMATE_MARGIN = 1.1;
+
+	private final File directory;
+	private final long minFree;
+	private final List<Reservation> reservations = new ArrayList<>();
+
+	public ScratchSpace(final File directory, final long minFree) {
+		this.directory = directory;
+		this.minFree = minFree;
+	}
+
+	/**
+	 * @return the configured scratch space or null if intermediate.directory is not set.
+	 */
+	public static ScratchSpace fromProperties(final BooleanAwareProperties properties) {
+		final String path = properties.getProperty(INTERMEDIATE_DIRECTORY, "");
+		if (path.isEmpty()) {
+			return null;
+		}
+
+		final File directory = new File(path);
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new RuntimeException("Intermediate directory [" + path + "] can not be created!");
+		}
+		LOG.info("Using intermediate directory [{}].", directory.getAbsolutePath());
+		return new ScratchSpace(directory, properties.getLongProperty(INTERMEDIATE_MIN_FREE, DEFAULT_MIN_FREE));
+	}
+
+	/**
+	 * @return where the given output is written while it is in progress.
+	 */
+	public File fileFor(final File output) {
+		final File projectDirectory = new File(directory, output.getParentFile().getName());
+		if (!projectDirectory.exists() && !projectDirectory.mkdirs()) {
+			throw new RuntimeException("Could not create [" + projectDirectory.getAbsolutePath() + "].");
+		}
+		return new File(projectDirectory, output.getName());
+	}
+
+	/**
+	 * @param outputBytes estimated size of the final output.
+	 * @param withIntermediate whether an intermediate of about the same size exists next to the output.
+	 */
+	public static long estimateNeed(final long outputBytes, final boolean withIntermediate) {
+		return estimateNeed(outputBytes, withIntermediate, 0);
+	}
+
+	/**
+	 * @param copyBytes estimated size of a copy of the input next to the output, like a trimmed input.
+	 */
+	public static long estimateNeed(final long outputBytes, final boolean withIntermediate, final long copyBytes) {
+		return Math.round((outputBytes * (withIntermediate ? 2 : 1) + copyBytes) * ESTIMATE_MARGIN);
+	}
+
+	public synchronized Reservation reserve(final long bytes) throws InterruptedException {
+		while (true) {
+			final long available = available();
+			if (bytes <= available || reservations.isEmpty()) {
+				if (bytes > available) {
+					LOG.warn("Admitting job needing [{}] bytes although only [{}] are available.", bytes, available);
+				}
+				final Reservation reservation = new Reservation(bytes);
+				reservations.add(reservation);
+				LOG.debug("Reserved [{}] bytes of scratch space.", bytes);
+				return reservation;
+			}
+
+			LOG.info("Waiting for scratch space: need [{}] bytes, [{}] available.", bytes, available);
+			wait(10000);
+		}
+	}
+
+	synchronized void release(final Reservation reservation) {
+		if (reservations.remove(reservation)) {
+			LOG.debug("Released [{}] bytes of scratch space.", reservation.getBytes());
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Usable space minus what the running jobs are still going to write.
+	 */
+	synchronized long available() {
+		long outstanding = 0;
+		for (final Reservation reservation : reservations) {
+			outstanding += Math.max(0, reservation.getBytes() - reservation.getWritten());
+		}
+		return usableSpace() - outstanding - minFree;
+	}
+
+	long usableSpace() {
+		return directory.getUsableSpace();
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Space reserved for one job. Files registered with {@link #track(File)} count as already written.
+	 */
+	public class Reservation {
+
+		private final long bytes;
+		private final List<File> files = new ArrayList<>();
+
+		private Reservation(final long bytes) {
+			this.bytes = bytes;
+		}
+
+		public synchronized void track(final File file) {
+			files.add(file);
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		synchronized long getWritten() {
+			long written = 0;
+			for (final File file : files) {
+				written += file.length();
+			}
+			return written;
+		}
+
+		public void release() {
+			ScratchSpace.this.release(this);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package de.linesofcode.jonas.videoconverter;
+
+import java.io.File;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.OUTPUT_MODE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.SEGMENT_DURATION;
+
+/**
+ * Builds the commands of the segmented output modes. Instead of one monolithic file the encode writes fMP4
+ * segments plus a playlist that is rewritten after every finished segment, so consumers can start while the
+ * encode is still running. The segments go to a directory named like the output file without its extension.
+ */
+public class SegmentedOutput {
+
+	public enum Mode {
+		FILE, HLS, DASH
+	}
+
+	private static final int DEFAULT_SEGMENT_DURATION = 6;
+
+	private final BooleanAwareProperties properties;
+	private final Mode mode;
+	private final int segmentDuration;
+
+	public SegmentedOutput(final BooleanAwareProperties properties) {
+		this.properties = properties;
+		this.mode = Mode.valueOf(properties.getProperty(OUTPUT_MODE, Mode.FILE.name()).trim().toUpperCase());
+		this.segmentDuration = properties.getIntegerProperty(SEGMENT_DURATION, DEFAULT_SEGMENT_DURATION);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public boolean isSegmented() {
+		return mode != Mode.FILE;
+	}
+
+	public File getSegmentDirectory(final File output) {
+		final String name = output.getName();
+		final int extension = name.lastIndexOf('.');
+		return new File(output.getParentFile(), extension < 0 ? name : name.substring(0, extension));
+	}
+
+	public File getPlaylist(final File output) {
+		return new File(getSegmentDirectory(output), mode == Mode.DASH ? "manifest.mpd" : "playlist.m3u8");
+	}
+
+	/**
+	 * @param videoFilter filter chain for the video stream, may be empty.
+	 * @param mixAudio mix both audio tracks into one like the fading pipeline does.
+	 */
+	public String buildEncodeCommand(final File input, final File output, final String videoFilter, final boolean mixAudio) {
+		final File directory = getSegmentDirectory(output);
+
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -i ");
+		builder.append("\"").append(input.getAbsolutePath()).append("\"");   // input file
+		if (mixAudio) {
+			builder.append(" -map 0:0 -filter_complex \"[0:1][0:2]amix[a]\" -map \"[a]\"");
+		} else {
+			builder.append(" -map 0:0 -map 0:1 -map 0:2"); // mapping
+		}
+		if (!videoFilter.isEmpty()) {
+			builder.append(" -vf \"").append(videoFilter).append("\"");
+		}
+		builder.append(" -c:v libx264 -crf 19 -preset " + FfmpegController.PRESET);       // video encoding
+		// a key frame at every segment boundary keeps the segments independently decodable.
+		builder.append(" -force_key_frames \"expr:gte(t,n_forced*" + segmentDuration + ")\"");
+		builder.append(" -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
+		builder.append(" -threads " + FfmpegController.THREADS); // optimization
+
+		if (mode == Mode.DASH) {
+			builder.append(" -f dash -seg_duration " + segmentDuration + " -use_template 1 -use_timeline 1");
+			builder.append(" -init_seg_name \"init-$RepresentationID$.m4s\"");
+			builder.append(" -media_seg_name \"chunk-$RepresentationID$-$Number%05d$.m4s\"");
+		} else {
+			builder.append(" -f hls -hls_time " + segmentDuration + " -hls_playlist_type event");
+			builder.append(" -hls_segment_type fmp4 -hls_fmp4_init_filename init.mp4");
+			builder.append(" -hls_segment_filename \"").append(new File(directory, "segment_%05d.m4s").getAbsolutePath()).append("\"");
+		}
+
+		builder.append(" \"").append(getPlaylist(output).getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	/**
+	 * Stream copies the finished segments into a single mp4 file.
+	 */
+	public String buildRemuxCommand(final File output) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -i ");
+		builder.append("\"").append(getPlaylist(output).getAbsolutePath()).append("\"");
+		builder.append(" -map 0 -c copy -movflags +faststart");
+		builder.append(" \"").append(output.getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,34 @@
+package de.linesofcode.jonas.videoconverter;
+
+import java.util.Set;
+
+/**
+ * One step of processing a job, like probing, encoding or uploading.
+ * <p>
+ * A stage declares the named artifacts it consumes and produces. {@link StageExecutor} derives the order from that:
+ * a stage runs once the producers of all its inputs finished, and stages that do not depend on each other run at the
+ * same time, limited per {@link Resource}.
+ */
+public interface Stage {
+
+	/**
+	 * The resource a stage mostly uses. Each has its own concurrency limit so CPU heavy and I/O heavy stages overlap.
+	 */
+	enum Resource {
+		CPU, DISK, NETWORK
+	}
+
+	String getName();
+
+	Set<String> getInputs();
+
+	Set<String> getOutputs();
+
+	Resource getResource();
+
+	/**
+	 * Runs the stage. Results are published with {@link JobContext#put(String, Object)} under the declared outputs.
+	 * A failure is signalled by throwing a {@link RuntimeException}.
+	 */
+	void run(JobContext job);
+}
@@ -0,0 +1,246 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.STAGES_LIMIT_DISK;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.STAGES_LIMIT_NETWORK;
+
+/**
+ * Runs the stages of a job as a DAG. A stage depends on the stages producing its inputs and is started as soon as
+ * all of them succeeded, so independent stages run concurrently. How many stages of one {@link Stage.Resource} run
+ * at the same time is limited across all jobs using this executor: a run of the command line converts all its files
+ * with one executor and a {@link JobQueue} runs all its jobs with one, so the limits hold for the whole run or
+ * server. Separate processes do not share their limits. CPU stages take their slot from the
+ * {@link ResourcePolicy}, so its time windows and load limits apply to them.
+ * <p>
+ * If a stage fails, the stages depending on it are skipped and the job fails once the running stages finished.
+ */
+public class StageExecutor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StageExecutor.class);
+
+	private final Map<Stage.Resource, Semaphore> limits = new EnumMap<>(Stage.Resource.class);
+	private final ResourcePolicy resources;
+
+	public StageExecutor(final int cpu, final int disk, final int network) {
+		this(ResourcePolicy.unrestricted(cpu), disk, network);
+	}
+
+	public StageExecutor(final ResourcePolicy resources, final int disk, final int network) {
+		this.resources = resources;
+		limits.put(Stage.Resource.DISK, new Semaphore(disk, true));
+		limits.put(Stage.Resource.NETWORK, new Semaphore(network, true));
+	}
+
+	public ResourcePolicy getResources() {
+		return resources;
+	}
+
+	/**
+	 * The CPU limit <code>stages.limit.cpu</code> is read by the policy.
+	 */
+	public static StageExecutor fromProperties(final BooleanAwareProperties properties, final ResourcePolicy resources) {
+		return new StageExecutor(resources,
+				properties.getIntegerProperty(STAGES_LIMIT_DISK, 2),
+				properties.getIntegerProperty(STAGES_LIMIT_NETWORK, 2));
+	}
+
+	public void execute(final List<Stage> stages, final JobContext job) {
+		final Map<Stage, Set<Stage>> dependencies = dependencies(stages, job.getArtifactNames());
+		// stages log with the job tag of the calling thread.
+		final String jobTag = MDC.get(JobLogs.JOB);
+
+		final ExecutorService executor = Executors.newCachedThreadPool();
+		final CompletionService<Stage> completion = new ExecutorCompletionService<>(executor);
+
+		final Set<Stage> pending = new LinkedHashSet<>(stages);
+		final Set<Stage> succeeded = new HashSet<>();
+		final Set<Stage> failed = new HashSet<>();
+		RuntimeException firstFailure = null;
+		int running = 0;
+
+		try {
+			while (!pending.isEmpty() || running > 0) {
+				for (final Stage stage : new ArrayList<>(pending)) {
+					final Set<Stage> required = dependencies.get(stage);
+					if (!Collections.disjoint(required, failed)) {
+						LOG.warn("Skipping stage [{}] of [{}] because a stage it depends on failed.", stage.getName(),
+								job.getInput().getName());
+						pending.remove(stage);
+						failed.add(stage);
+					} else if (succeeded.containsAll(required)) {
+						pending.remove(stage);
+						completion.submit(task(stage, job, jobTag));
+						running++;
+					}
+				}
+
+				if (running == 0) {
+					continue;
+				}
+
+				final Future<Stage> done = completion.take();
+				running--;
+				try {
+					succeeded.add(done.get());
+				} catch (ExecutionException e) {
+					final StageFailure failure = (StageFailure) e.getCause();
+					LOG.error("Stage [{}] of [{}] failed.", failure.stage.getName(), job.getInput().getName(), failure.getCause());
+					failed.add(failure.stage);
+					if (firstFailure == null) {
+						firstFailure = failure.getCause();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if (firstFailure != null) {
+			throw new RuntimeException("Processing [" + job.getInput().getName() + "] failed.", firstFailure);
+		}
+	}
+
+	private Callable<Stage> task(final Stage stage, final JobContext job, final String jobTag) {
+		return new Callable<Stage>() {
+			@Override
+			public Stage call() throws StageFailure {
+				if (jobTag != null) {
+					JobLogs.tag(jobTag);
+				}
+				try {
+					acquire(stage.getResource());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new StageFailure(stage, new RuntimeException(e));
+				}
+
+				try {
+					LOG.info("Running stage [{}] of [{}].", stage.getName(), job.getInput().getName());
+					final long start = System.nanoTime();
+					stage.run(job);
+					LOG.info("Stage [{}] of [{}] finished in [{}] seconds.", stage.getName(), job.getInput().getName(),
+							(System.nanoTime() - start) / 1000000000);
+					return stage;
+				} catch (RuntimeException e) {
+					throw new StageFailure(stage, e);
+				} finally {
+					release(stage.getResource());
+				}
+			}
+		};
+	}
+
+	private void acquire(final Stage.Resource resource) throws InterruptedException {
+		if (resource == Stage.Resource.CPU) {
+			resources.acquireEncodeSlot();
+		} else {
+			limits.get(resource).acquire();
+		}
+	}
+
+	private void release(final Stage.Resource resource) {
+		if (resource == Stage.Resource.CPU) {
+			resources.releaseEncodeSlot();
+		} else {
+			limits.get(resource).release();
+		}
+	}
+
+	/**
+	 * Maps every stage to the stages producing its inputs.
+	 *
+	 * @param provided artifacts that exist before any stage ran.
+	 * @throws IllegalArgumentException if an input has no producer, an artifact has two producers or the stages
+	 * contain a cycle.
+	 */
+	static Map<Stage, Set<Stage>> dependencies(final List<Stage> stages, final Set<String> provided) {
+		final Map<String, Stage> producers = new HashMap<>();
+		for (final Stage stage : stages) {
+			for (final String output : stage.getOutputs()) {
+				final Stage previous = producers.put(output, stage);
+				if (previous != null || provided.contains(output)) {
+					throw new IllegalArgumentException("Artifact [" + output + "] is produced more than once.");
+				}
+			}
+		}
+
+		final Map<Stage, Set<Stage>> dependencies = new LinkedHashMap<>();
+		for (final Stage stage : stages) {
+			final Set<Stage> required = new HashSet<>();
+			for (final String input : stage.getInputs()) {
+				if (producers.containsKey(input)) {
+					required.add(producers.get(input));
+				} else if (!provided.contains(input)) {
+					throw new IllegalArgumentException("Stage [" + stage.getName() + "] needs [" + input
+							+ "] but no stage produces it.");
+				}
+			}
+			dependencies.put(stage, required);
+		}
+
+		verifyAcyclic(dependencies);
+		return dependencies;
+	}
+
+	private static void verifyAcyclic(final Map<Stage, Set<Stage>> dependencies) {
+		final Set<Stage> resolved = new HashSet<>();
+		boolean progress = true;
+		while (progress) {
+			progress = false;
+			for (final Map.Entry<Stage, Set<Stage>> entry : dependencies.entrySet()) {
+				if (!resolved.contains(entry.getKey()) && resolved.containsAll(entry.getValue())) {
+					resolved.add(entry.getKey());
+					progress = true;
+				}
+			}
+		}
+
+		if (resolved.size() != dependencies.size()) {
+			final Set<Stage> cyclic = new LinkedHashSet<>(dependencies.keySet());
+			cyclic.removeAll(resolved);
+			throw new IllegalArgumentException("Stages " + cyclic + " depend on each other.");
+		}
+	}
+
+	private static class StageFailure extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Stage stage;
+
+		StageFailure(final Stage stage, final RuntimeException cause) {
+			super(cause);
+			this.stage = stage;
+		}
+
+		@Override
+		public synchronized RuntimeException getCause() {
+			return (RuntimeException) super.getCause();
+		}
+	}
+}
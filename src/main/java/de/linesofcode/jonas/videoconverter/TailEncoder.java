@@ -0,0 +1,253 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FADING_DURATION;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TAIL_IDLE_SECONDS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TAIL_POLL_MILLIS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TAIL_SEGMENT_SECONDS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TAIL_STABLE_CHECKS;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_FADING;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.USE_INTRO;
+import static java.nio.file.Files.move;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Encodes a recording while it is still being written.
+ * <p>
+ * The growing input is piped into ffmpeg, which encodes it into short MPEG-TS segments with a fade-in at the start.
+ * Once the recording has finished, only the segments covering the last {@code fading.duration} seconds are encoded
+ * again with the fade-out, and all segments are joined by stream copy. The intro is attached the same way as in
+ * the regular fading pipeline.
+ */
+public class TailEncoder {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TailEncoder.class);
+
+	private static final String SEGMENT_LIST = "parts.csv";
+
+	private final BooleanAwareProperties properties;
+	private final FfmpegController controller;
+	private final int segmentSeconds;
+
+	public TailEncoder(final BooleanAwareProperties properties, final FfmpegController controller) {
+		this.properties = properties;
+		this.controller = controller;
+		this.segmentSeconds = properties.getIntegerProperty(TAIL_SEGMENT_SECONDS, 10);
+	}
+
+	public void process(final File input, final File output) {
+		LOG.info("Following growing input [{}].", input.getName());
+
+		final File workDirectory = new File(output.getParentFile(), output.getName() + ".tail");
+		if (!workDirectory.exists() && !workDirectory.mkdirs()) {
+			throw new RuntimeException("Could not create directory [" + workDirectory.getAbsolutePath() + "].");
+		}
+
+		final GrowingFileFeeder feeder = new GrowingFileFeeder(input,
+				properties.getLongProperty(TAIL_IDLE_SECONDS, 60) * 1000,
+				properties.getIntegerProperty(TAIL_STABLE_CHECKS, 3),
+				properties.getLongProperty(TAIL_POLL_MILLIS, 1000),
+				controller.getResources().getDiskLimiter());
+
+		final Process process = controller.startCommand(buildStreamCommand(workDirectory));
+		try (final OutputStream stdin = process.getOutputStream()) {
+			feeder.feed(stdin);
+		} catch (IOException e) {
+			process.destroy();
+			throw new RuntimeException("Feeding [" + input.getName() + "] to ffmpeg failed.", e);
+		} catch (InterruptedException e) {
+			process.destroy();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		controller.awaitCommand(process);
+
+		try {
+			final List<Segment> segments = parseSegmentList(
+					Files.readAllLines(new File(workDirectory, SEGMENT_LIST).toPath(), StandardCharsets.UTF_8));
+			if (segments.isEmpty()) {
+				throw new RuntimeException("ffmpeg did not write any segment for [" + input.getName() + "].");
+			}
+
+			final File joined = new File(workDirectory, "joined.mp4");
+			finalizeSegments(workDirectory, segments, joined);
+
+			if (properties.getBooleanProperty(USE_FADING) && properties.getBooleanProperty(USE_INTRO)) {
+				controller.executeCommand(controller.buildAddIntroCommand(output, joined), true, true);
+			} else {
+				move(joined.toPath(), output.toPath(), REPLACE_EXISTING);
+			}
+
+			deleteRecursively(workDirectory);
+		} catch (IOException e) {
+			throw new RuntimeException("Finalizing [" + input.getName() + "] failed.", e);
+		}
+	}
+
+	private void finalizeSegments(final File workDirectory, final List<Segment> segments, final File joined)
+			throws IOException {
+		final double total = segments.get(segments.size() - 1).getEnd();
+		LOG.info("Recording is [{}] seconds long in [{}] segments.", total, segments.size());
+
+		final List<File> parts = new ArrayList<>();
+
+		if (properties.getBooleanProperty(USE_FADING)) {
+			final int fadeDuration = Integer.valueOf(properties.getProperty(FADING_DURATION));
+			final double fadeStart = Math.max(0, total - fadeDuration);
+			final int first = firstSegmentEndingAfter(segments, fadeStart);
+
+			LOG.info("Re-encoding [{}] trailing segments with fade-out.", segments.size() - first);
+			final List<File> trailing = new ArrayList<>();
+			for (int i = first; i < segments.size(); i++) {
+				trailing.add(new File(workDirectory, segments.get(i).getName()));
+			}
+
+			final File tailList = writeConcatList(new File(workDirectory, "tail.txt"), trailing);
+			final File faded = new File(workDirectory, "faded.ts");
+			controller.executeCommand(buildFadeOutCommand(tailList, fadeStart - segments.get(first).getStart(),
+					fadeDuration, faded), true, true);
+
+			for (int i = 0; i < first; i++) {
+				parts.add(new File(workDirectory, segments.get(i).getName()));
+			}
+			parts.add(faded);
+		} else {
+			for (final Segment segment : segments) {
+				parts.add(new File(workDirectory, segment.getName()));
+			}
+		}
+
+		final File joinList = writeConcatList(new File(workDirectory, "join.txt"), parts);
+		controller.executeCommand(buildJoinCommand(joinList, joined), true, true);
+	}
+
+	String buildStreamCommand(final File workDirectory) {
+		final boolean fading = properties.getBooleanProperty(USE_FADING);
+
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -f avi -i pipe:0");
+		if (fading) {
+			// mixed audio first like the regular fading encode, the segments keep it up to the intro concat.
+			builder.append(" -filter_complex \"[0:1][0:2]amix[a]\" -map \"[a]\" -map 0:0"); // merging of audio streams
+			builder.append(" -vf \"fade=in:st=0:d=").append(properties.getProperty(FADING_DURATION)).append("\"");
+		} else {
+			builder.append(" -map 0:0 -map 0:1 -map 0:2"); // mapping
+		}
+		builder.append(" -c:v libx264 -crf 19 -preset " + FfmpegController.PRESET);       // video encoding
+		if (fading) {
+			builder.append(" -r 30");
+		}
+		builder.append(" -force_key_frames \"expr:gte(t,n_forced*" + segmentSeconds + ")\"");
+		builder.append(" -c:a aac -strict experimental -b:a 192k -ac 2"); // audio encoding
+		builder.append(" -threads " + FfmpegController.THREADS); // optimization
+		builder.append(" -f segment -segment_time " + segmentSeconds + " -segment_format mpegts");
+		builder.append(" -segment_list \"").append(new File(workDirectory, SEGMENT_LIST).getAbsolutePath()).append("\"");
+		builder.append(" -segment_list_type csv");
+		builder.append(" \"").append(new File(workDirectory, "part_%05d.ts").getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	private String buildFadeOutCommand(final File concatList, final double fadeStart, final int fadeDuration,
+			final File target) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -f concat -safe 0 -i \"").append(concatList.getAbsolutePath()).append("\"");
+		builder.append(" -map 0 -c:v libx264 -crf 19 -preset " + FfmpegController.PRESET);
+		builder.append(String.format(Locale.ROOT, " -vf \"fade=out:st=%.3f:d=%d\"", fadeStart, fadeDuration));
+		builder.append(" -c:a copy -threads " + FfmpegController.THREADS);
+		builder.append(" -f mpegts \"").append(target.getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	private String buildJoinCommand(final File concatList, final File target) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(" -y -f concat -safe 0 -i \"").append(concatList.getAbsolutePath()).append("\"");
+		builder.append(" -map 0 -c copy -bsf:a aac_adtstoasc");
+		builder.append(" \"").append(target.getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	static File writeConcatList(final File list, final List<File> files) throws IOException {
+		final List<String> lines = new ArrayList<>();
+		for (final File file : files) {
+			lines.add("file '" + file.getAbsolutePath().replace("'", "'\\''") + "'");
+		}
+		Files.write(list.toPath(), lines, StandardCharsets.UTF_8);
+		return list;
+	}
+
+	/**
+	 * Parses the csv segment list of ffmpeg's segment muxer: <code>name,start,end</code> per line.
+	 */
+	static List<Segment> parseSegmentList(final List<String> lines) {
+		final List<Segment> segments = new ArrayList<>();
+		for (final String line : lines) {
+			final String[] fields = line.trim().split(",");
+			if (fields.length < 3) {
+				continue;
+			}
+			segments.add(new Segment(fields[0], Double.parseDouble(fields[1]), Double.parseDouble(fields[2])));
+		}
+		return segments;
+	}
+
+	static int firstSegmentEndingAfter(final List<Segment> segments, final double time) {
+		for (int i = 0; i < segments.size(); i++) {
+			if (segments.get(i).getEnd() > time) {
+				return i;
+			}
+		}
+		return segments.size() - 1;
+	}
+
+	private static void deleteRecursively(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				deleteRecursively(child);
+			}
+		}
+		if (!file.delete()) {
+			LOG.warn("Could not delete [{}].", file.getAbsolutePath());
+		}
+	}
+
+	static class Segment {
+
+		private final String name;
+		private final double start;
+		private final double end;
+
+		Segment(final String name, final double start, final double end) {
+			this.name = name;
+			this.start = start;
+			this.end = end;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		double getStart() {
+			return start;
+		}
+
+		double getEnd() {
+			return end;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Optional.of;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TRIM_ACCURATE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TRIM_END;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TRIM_START;
+
+/**
+ * Cuts the start and end off an input without encoding it.
+ * <p>
+ * The kept range is copied from keyframe to keyframe using the input's {@link KeyframeIndex}. By default the cut
+ * points move to the nearest keyframes. With trim.accurate the copy starts at the first keyframe after the cut and
+ * ends at the last one before it, and only the partial GOPs in between are encoded. The result is a Matroska file
+ * that the regular pipeline processes like the original input, so fades are applied at the new edges.
+ */
+public class Trimmer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Trimmer.class);
+
+	private static final Pattern MARKER = Pattern.compile("\\s*\\[trim=(\\d+(?:\\.\\d+)?)-(\\d+(?:\\.\\d+)?)\\]");
+
+	private final BooleanAwareProperties properties;
+	private final FfmpegController controller;
+
+	public Trimmer(final BooleanAwareProperties properties, final FfmpegController controller) {
+		this.properties = properties;
+		this.controller = controller;
+	}
+
+	/**
+	 * Writes the trimmed input to the target.
+	 */
+	public void cut(final File input, final File target, final Trim trim, final MediaInfo info) {
+		final KeyframeIndex index = KeyframeIndex.load(input, properties, controller);
+		final List<Part> parts = plan(trim, info.getDuration(), index);
+		LOG.info("Trimming [{}] by [{}] seconds at the start and [{}] at the end in {}.", input.getName(), trim.getStart(),
+				trim.getEnd(), parts);
+
+		if (parts.size() == 1) {
+			controller.executeCommand(buildPartCommand(input, parts.get(0), info, target), true, true);
+			return;
+		}
+
+		final List<File> files = new ArrayList<>();
+		final File list = new File(target.getParentFile(), target.getName() + ".concat.txt");
+		try {
+			for (int i = 0; i < parts.size(); i++) {
+				final File file = new File(target.getParentFile(), target.getName() + ".part" + i + ".mkv");
+				files.add(file);
+				controller.executeCommand(buildPartCommand(input, parts.get(i), info, file), true, true);
+			}
+
+			try {
+				TailEncoder.writeConcatList(list, files);
+			} catch (IOException e) {
+				throw new RuntimeException("Writing concat list [" + list.getAbsolutePath() + "] failed.", e);
+			}
+			controller.executeCommand(controller.buildConcatCopyCommand(list, target), true, true);
+		} finally {
+			list.delete();
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Splits the kept range into parts that are copied and parts that are encoded.
+	 */
+	static List<Part> plan(final Trim trim, final double duration, final KeyframeIndex index) {
+		final double from = trim.getStart();
+		final double to = duration - trim.getEnd();
+		if (to <= from) {
+			throw new RuntimeException("Trimming " + trim + " leaves nothing of [" + duration + "] seconds.");
+		}
+
+		final List<Part> parts = new ArrayList<>();
+		if (!trim.isAccurate()) {
+			final double start = from > 0 ? index.nearest(from).or(from) : 0;
+			final double end = trim.getEnd() > 0 ? index.nearest(to).or(to) : duration;
+			parts.add(end > start ? new Part(start, end, true) : new Part(from, to, false));
+			return parts;
+		}
+
+		final Optional<Double> firstKeyframe = index.ceiling(from);
+		final Optional<Double> lastKeyframe = trim.getEnd() > 0 ? index.floor(to) : Optional.of(to);
+		if (!firstKeyframe.isPresent() || !lastKeyframe.isPresent() || lastKeyframe.get() <= firstKeyframe.get()) {
+			// no complete GOP within the range, so there is nothing to copy.
+			parts.add(new Part(from, to, false));
+			return parts;
+		}
+
+		if (firstKeyframe.get() > from) {
+			parts.add(new Part(from, firstKeyframe.get(), false));
+		}
+		parts.add(new Part(firstKeyframe.get(), lastKeyframe.get(), true));
+		if (to > lastKeyframe.get()) {
+			parts.add(new Part(lastKeyframe.get(), to, false));
+		}
+		return parts;
+	}
+
+	String buildPartCommand(final File input, final Part part, final MediaInfo info, final File output) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("\"").append(properties.getProperty(FFMPEG)).append("ffmpeg.exe\"");
+		builder.append(String.format(Locale.ROOT, " -y -ss %.3f -i \"%s\" -t %.3f -map 0", part.getStart(),
+				input.getAbsolutePath(), part.getEnd() - part.getStart()));
+		if (part.isCopy()) {
+			builder.append(" -c copy -avoid_negative_ts make_zero");
+		} else {
+			// encoded with the input's codec, so the parts can be joined by stream copy.
+			final Optional<MediaInfo.StreamInfo> video = info.getVideoStream();
+			builder.append(" -c:v ").append(video.isPresent() ? video.get().getCodecName() : "libx264");
+			if (info.getBitRate() > 0) {
+				builder.append(" -b:v ").append(info.getBitRate());
+			}
+			builder.append(" -c:a copy");
+		}
+		builder.append(" \"").append(output.getAbsolutePath()).append("\"");
+		return builder.toString();
+	}
+
+	public static File trimmedFile(final File output) {
+		return new File(output.getParentFile(), output.getName() + ".trimmed.mkv");
+	}
+
+	/**
+	 * Removes a trim marker like <code>[trim=60-120]</code> from a file name.
+	 */
+	public static String stripMarker(final String name) {
+		return MARKER.matcher(name).replaceAll("");
+	}
+
+	/**
+	 * Seconds to cut off the start and the end of an input.
+	 */
+	public static class Trim {
+
+		private final double start;
+		private final double end;
+		private final boolean accurate;
+
+		Trim(final double start, final double end, final boolean accurate) {
+			this.start = start;
+			this.end = end;
+			this.accurate = accurate;
+		}
+
+		/**
+		 * @return the trim of the input's file name marker, otherwise the one of trim.start and trim.end. Absent if
+		 * nothing is cut.
+		 */
+		public static Optional<Trim> forInput(final BooleanAwareProperties properties, final File input) {
+			final boolean accurate = properties.getBooleanProperty(TRIM_ACCURATE);
+			final Matcher marker = MARKER.matcher(input.getName());
+
+			final Trim trim = marker.find()
+					? new Trim(Double.parseDouble(marker.group(1)), Double.parseDouble(marker.group(2)), accurate)
+					: new Trim(properties.getDoubleProperty(TRIM_START, 0), properties.getDoubleProperty(TRIM_END, 0), accurate);
+			return trim.start > 0 || trim.end > 0 ? of(trim) : Optional.<Trim>absent();
+		}
+
+		public double getStart() {
+			return start;
+		}
+
+		public double getEnd() {
+			return end;
+		}
+
+		public boolean isAccurate() {
+			return accurate;
+		}
+
+		/**
+		 * @return the seconds left of an input of the given duration, ignoring that the cut points may move to
+		 * keyframes.
+		 */
+		public double keptSeconds(final double duration) {
+			return Math.max(0, duration - start - end);
+		}
+
+		@Override
+		public String toString() {
+			return "[" + start + "-" + end + (accurate ? " accurate" : "") + "]";
+		}
+	}
+
+	static class Part {
+
+		private final double start;
+		private final double end;
+		private final boolean copy;
+
+		Part(final double start, final double end, final boolean copy) {
+			this.start = start;
+			this.end = end;
+			this.copy = copy;
+		}
+
+		double getStart() {
+			return start;
+		}
+
+		double getEnd() {
+			return end;
+		}
+
+		boolean isCopy() {
+			return copy;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%s %.3f-%.3f", copy ? "copy" : "encode", start, end);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_BACKOFF;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_BANDWIDTH;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_CHUNK_SIZE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_ENDPOINT;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_PARALLEL;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_QUEUE_SIZE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_RETRIES;
+
+/**
+ * Runs uploads in the background so encoding the next file overlaps with uploading the previous one.
+ * <p>
+ * At most {@code upload.parallel} uploads run at the same time and at most {@code upload.queueSize} more wait for
+ * a free slot. {@link #submit(Path)} blocks once the queue is full, which keeps the encoder from running arbitrarily
+ * far ahead of the uploads. All uploads share one bandwidth limit.
+ */
+public class UploadPipeline {
+
+	private static final Logger LOG = LoggerFactory.getLogger(UploadPipeline.class);
+
+	private static final int DEFAULT_PARALLEL = 2;
+	private static final int DEFAULT_QUEUE_SIZE = 4;
+	private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+	private static final int DEFAULT_RETRIES = 5;
+	private static final long DEFAULT_BACKOFF_MILLIS = 1000;
+
+	private final ChunkedUploader uploader;
+	private final ExecutorService executor;
+	private final Semaphore slots;
+	private final List<Path> failed = Collections.synchronizedList(new ArrayList<Path>());
+
+	public UploadPipeline(final BooleanAwareProperties properties) {
+		this(new ChunkedUploader(properties.getProperty(UPLOAD_ENDPOINT),
+						properties.getIntegerProperty(UPLOAD_CHUNK_SIZE, DEFAULT_CHUNK_SIZE),
+						properties.getIntegerProperty(UPLOAD_RETRIES, DEFAULT_RETRIES),
+						properties.getLongProperty(UPLOAD_BACKOFF, DEFAULT_BACKOFF_MILLIS),
+						bandwidthLimiter(properties.getLongProperty(UPLOAD_BANDWIDTH, 0))),
+				properties.getIntegerProperty(UPLOAD_PARALLEL, DEFAULT_PARALLEL),
+				properties.getIntegerProperty(UPLOAD_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+	}
+
+	public UploadPipeline(final ChunkedUploader uploader, final int parallel, final int queueSize) {
+		this.uploader = uploader;
+		this.executor = Executors.newFixedThreadPool(parallel);
+		this.slots = new Semaphore(parallel + queueSize);
+	}
+
+	private static Optional<RateLimiter> bandwidthLimiter(final long bytesPerSecond) {
+		if (bytesPerSecond <= 0) {
+			return absent();
+		}
+		return of(RateLimiter.create(bytesPerSecond));
+	}
+
+	/**
+	 * Queues the file for upload. Blocks while the queue is full.
+	 */
+	public void submit(final Path file) {
+		try {
+			slots.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a free upload slot.", e);
+		}
+
+		LOG.info("Queued [{}] for upload.", file.getFileName());
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					uploader.upload(file);
+				} catch (IOException e) {
+					LOG.error("Upload of [{}] failed. It will resume on the next run.", file.getFileName(), e);
+					failed.add(file);
+				} catch (InterruptedException e) {
+					LOG.warn("Upload of [{}] interrupted. It will resume on the next run.", file.getFileName());
+					failed.add(file);
+					Thread.currentThread().interrupt();
+				} finally {
+					slots.release();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Waits for all queued uploads and shuts the pipeline down.
+	 *
+	 * @return the files whose upload failed.
+	 */
+	public List<Path> awaitCompletion() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOG.info("Waiting for uploads to finish...");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+		}
+
+		synchronized (failed) {
+			return new ArrayList<>(failed);
+		}
+	}
+}
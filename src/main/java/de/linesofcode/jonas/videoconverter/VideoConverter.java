@@ -1,250 +1,826 @@
-package de.linesofcode.jonas.videoconverter;
-
-import com.google.common.base.Optional;
-import com.google.common.io.PatternFilenameFilter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.file.Paths;
-import java.util.List;
-
-import static com.google.common.base.Optional.absent;
-import static com.google.common.base.Optional.of;
-import static com.google.common.collect.Lists.newArrayList;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.COPY_ONLY;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.DELETE_INPUT_FILE;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.DRY_RUN;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FILE_PROJECT_DELIMITER;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.INPUT_DIRECTORY;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.ORIGINAL_FILE_SUFFIX;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.OUTPUT_FILE_SUFFIX;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.OUTPUT_DIRECTORY;
-import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_TO_YOUTUBE;
-import static java.nio.file.Paths.get;
-
-
-public final class VideoConverter {
-
-	private static final Logger LOG = LoggerFactory.getLogger(VideoConverter.class);
-	private static final String FILE_NAME = "VideoConverter.properties";
-
-	private final BooleanAwareProperties PROPERTIES;
-	private final YoutubeController youtubeController;
-
-	public VideoConverter() {
-		LOG.trace("Setting up video converter...");
-		PROPERTIES = new BooleanAwareProperties(FILE_NAME);
-		youtubeController = new YoutubeController(PROPERTIES);
-		LOG.trace("Finished.");
-	}
-
-	public VideoConverter(final String profileName) {
-		LOG.trace("Setting up video converter...");
-		PROPERTIES = new BooleanAwareProperties(FILE_NAME, profileName);
-		youtubeController = new YoutubeController(PROPERTIES);
-		LOG.trace("Finished.");
-	}
-
-	public VideoConverter(final BooleanAwareProperties properties, final YoutubeController youtubeController) {
-		PROPERTIES = properties;
-		this.youtubeController = youtubeController;
-	}
-
-	public void convert() {
-		verifyInputDirectoryExistsOrFail();
-
-		LOG.info("Starting conversion process...");
-
-		final String inputPath = PROPERTIES.getProperty(INPUT_DIRECTORY);
-		final File inputDirectory = new File(inputPath);
-
-		final PatternFilenameFilter filter = new PatternFilenameFilter(".*\\.avi");
-		final List<File> inputFiles = newArrayList(inputDirectory.listFiles(filter));
-
-		for (final File file : inputFiles) {
-			final String fileName = file.getName();
-			LOG.info("Converting file [{}]", fileName);
-
-			final Optional<String> projectName = extractProjectNameFromFileName(fileName);
-
-			if (!projectName.isPresent()) {
-				LOG.warn("Project name not found. Ignoring file.");
-				continue;
-			}
-
-			LOG.info("Identified project name [{}].", projectName.get());
-
-			final Optional<File> projectDirectory = createProjectDirectoryOrFail(projectName.get());
-
-			if (!projectDirectory.isPresent()) {
-				LOG.warn("Could not create project directory. Ignoring file.");
-				continue;
-			}
-
-			final File outputFile = generateOutputFile(file, projectDirectory);
-			LOG.info("Output file will be [{}]", outputFile.getAbsolutePath());
-
-			final boolean onlyCopy = PROPERTIES.getBooleanProperty(COPY_ONLY);
-
-			if (!onlyCopy) {
-				runFFMPEG(file, outputFile);
-
-				if (PROPERTIES.getBooleanProperty(UPLOAD_TO_YOUTUBE)) {
-					youtubeController.upload(get(outputFile.getAbsolutePath()));
-				}
-			}
-
-			if (onlyCopy) {
-				final String destinationName = generateDestinationFileName(file);
-				final File destination = new File(projectDirectory.get(), destinationName);
-				LOG.info("Moving original file [{}] to project directory [{}].", file.getAbsolutePath(), destination.getAbsolutePath());
-				file.renameTo(destination);
-			} else {
-				final boolean shouldDeleteSourceFile = PROPERTIES.getBooleanProperty(DELETE_INPUT_FILE);
-				if (shouldDeleteSourceFile) {
-					LOG.info("Deleting source file [{}].", file.getAbsolutePath());
-					file.delete();
-				} else {
-					final String destinationName = generateDestinationFileName(file);
-					final File destination = new File(projectDirectory.get(), destinationName);
-					LOG.info("Moving original file [{}] to project directory [{}].", file.getAbsolutePath(), destination.getAbsolutePath());
-					file.renameTo(destination);
-				}
-			}
-		}
-	}
-
-	private String generateDestinationFileName(final File input) {
-		LOG.trace("Generating output file name for original file.");
-
-		final String rawName = extractRawName(input);
-
-		LOG.debug("Raw filename is [{}].", rawName);
-
-		final String fileName;
-		String suffix = null;
-		try {
-			suffix = PROPERTIES.getProperty(ORIGINAL_FILE_SUFFIX);
-			LOG.info("Original file suffix is [{}].", suffix);
-		} catch (NullPointerException e) {
-			LOG.info("Original file suffix not provided.");
-		}
-
-		if (suffix == null ||suffix.isEmpty()) {
-			fileName = rawName + ".avi";
-		} else {
-			fileName = rawName + " " + suffix + ".avi";
-		}
-
-		LOG.debug("Generated filename is [{}]", fileName);
-
-		return fileName;
-	}
-
-	private String extractRawName(final File input) {
-		final String delimiter = PROPERTIES.getProperty(FILE_PROJECT_DELIMITER);
-		LOG.debug("Found delimiter [{}].", delimiter);
-
-		final String source = input.getName();
-		final String nameWithoutExtension = source.substring(0, source.lastIndexOf('.'));
-		return nameWithoutExtension.substring(nameWithoutExtension.indexOf(delimiter) + 1).trim();
-	}
-
-	private void runFFMPEG(final File file, final File outputFile) {
-		final boolean isDryRun = PROPERTIES.getBooleanProperty(DRY_RUN);
-
-		if (isDryRun) {
-			LOG.info("Dry run. Skipping ffmpeg.");
-			return;
-		}
-
-		final FfmpegController controller = new FfmpegController(PROPERTIES);
-
-		controller.process(file, outputFile);
-	}
-
-	private File generateOutputFile(final File file, Optional<File> projectDirectory) {
-		LOG.trace("Generating output file name for input [{}]...", file.getAbsolutePath());
-
-		final String rawName = extractRawName(file);
-
-		LOG.debug("Raw filename is [{}].", rawName);
-
-		final String fileName;
-		String suffix = null;
-		try {
-			suffix = PROPERTIES.getProperty(OUTPUT_FILE_SUFFIX);
-			LOG.debug("Output file suffix is [{}].", suffix);
-		} catch (NullPointerException e) {
-			LOG.info("Output file suffix not configured.");
-		}
-
-		if (suffix == null || suffix.isEmpty()) {
-			fileName = rawName + ".mp4";
-		} else {
-			fileName = rawName + suffix + ".mp4";
-		}
-
-		LOG.debug("Generated filename is [{}]", fileName);
-
-		LOG.trace("Finished.");
-		return new File(projectDirectory.get(), fileName);
-	}
-
-	private Optional<File> createProjectDirectoryOrFail(final String projectName){
-		LOG.trace("Creating project directory...");
-
-		final String path = PROPERTIES.getProperty(OUTPUT_DIRECTORY);
-		final File directory = new File(path, projectName);
-
-		if (directory.exists()) {
-			LOG.info("Project directory [{}] exists.", directory.getAbsolutePath());
-		} else {
-			LOG.info("Project directory [{}] does not exist. Creating it now.", directory.getAbsolutePath());
-			directory.mkdirs();
-		}
-
-		if (!directory.exists()) {
-			absent();
-		}
-
-		LOG.trace("Finished.");
-		return of(directory);
-	}
-
-	private Optional<String> extractProjectNameFromFileName(final String name) {
-		LOG.trace("Extracting project name.");
-
-		final String delimiter = PROPERTIES.getProperty(FILE_PROJECT_DELIMITER);
-		LOG.debug("Using configured delimiter [{}].", delimiter);
-
-		final String[] parts = name.split(delimiter);
-
-		if (parts.length < 2) {
-			return absent();
-		}
-
-		return of(parts[0].trim());
-	}
-
-	private void verifyInputDirectoryExistsOrFail() {
-		LOG.debug("Verifying source directory...");
-		final String path = PROPERTIES.getProperty(INPUT_DIRECTORY);
-		final File directory = new File(path);
-
-		if (!directory.exists()) {
-			throw new RuntimeException("Source directory [" + path + "] does not exist!");
-		}
-
-		if (!directory.isDirectory()) {
-			throw new RuntimeException("Source directory [" + path + "] exists but is no directory!");
-		}
-
-		LOG.info("Source directory [{}] found.", path);
-	}
-}
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.io.PatternFilenameFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+import static com.google.common.collect.Lists.newArrayList;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.BATCH_MAX_DURATION;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.BATCH_SIZE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.COMPILATION;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.COMPILATION_ORDER;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.COPY_ONLY;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.DELETE_INPUT_FILE;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.DRY_RUN;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FFMPEG;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.FILE_PROJECT_DELIMITER;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.INPUT_DIRECTORY;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.ORIGINAL_FILE_SUFFIX;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.OUTPUT_FILE_SUFFIX;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.OUTPUT_DIRECTORY;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.PROXY_ENABLED;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.STAGES;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.TRANSFER_PARALLEL;
+import static de.linesofcode.jonas.videoconverter.BooleanAwareProperties.Properties.UPLOAD_TO_YOUTUBE;
+import static java.nio.file.Paths.get;
+
+
+public final class VideoConverter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(VideoConverter.class);
+	static final String FILE_NAME = "VideoConverter.properties";
+
+	private static final String MEDIA = "media";
+	private static final String OUTPUT = "output";
+	private static final String VERIFIED = "verified";
+	private static final String UPLOADED = "uploaded";
+	private static final String ORIGINAL = "original";
+
+	private final BooleanAwareProperties PROPERTIES;
+	private final YoutubeController youtubeController;
+
+	/** Shared by all jobs of a {@link JobQueue}, otherwise created for every run. */
+	private final Optional<StageExecutor> sharedStageExecutor;
+	private final Optional<PerformanceStore> sharedPerformanceStore;
+
+	public VideoConverter() {
+		LOG.trace("Setting up video converter...");
+		PROPERTIES = new BooleanAwareProperties(FILE_NAME);
+		youtubeController = new YoutubeController(PROPERTIES);
+		sharedStageExecutor = absent();
+		sharedPerformanceStore = absent();
+		LOG.trace("Finished.");
+	}
+
+	public VideoConverter(final String profileName) {
+		LOG.trace("Setting up video converter...");
+		PROPERTIES = new BooleanAwareProperties(FILE_NAME, profileName);
+		youtubeController = new YoutubeController(PROPERTIES);
+		sharedStageExecutor = absent();
+		sharedPerformanceStore = absent();
+		LOG.trace("Finished.");
+	}
+
+	public VideoConverter(final BooleanAwareProperties properties, final YoutubeController youtubeController) {
+		PROPERTIES = properties;
+		this.youtubeController = youtubeController;
+		sharedStageExecutor = absent();
+		sharedPerformanceStore = absent();
+	}
+
+	/**
+	 * Creates a converter that shares the stage and encode limits and the performance store with other converters.
+	 */
+	public VideoConverter(final BooleanAwareProperties properties, final StageExecutor stageExecutor,
+			final PerformanceStore performanceStore) {
+		PROPERTIES = properties;
+		youtubeController = new YoutubeController(PROPERTIES);
+		sharedStageExecutor = of(stageExecutor);
+		sharedPerformanceStore = of(performanceStore);
+	}
+
+	public void convert() {
+		verifyInputDirectoryExistsOrFail();
+
+		LOG.info("Starting conversion process...");
+
+		final String inputPath = PROPERTIES.getProperty(INPUT_DIRECTORY);
+		final File inputDirectory = new File(inputPath);
+
+		final PatternFilenameFilter filter = new PatternFilenameFilter(".*\\.avi");
+		convert(newArrayList(inputDirectory.listFiles(filter)));
+	}
+
+	/**
+	 * Converts the given files like the files found in the input directory.
+	 */
+	public void convert(final List<File> inputFiles) {
+		final PerformanceStore performanceStore = sharedPerformanceStore.or(new PerformanceStore(PROPERTIES));
+		final StageExecutor stageExecutor = sharedStageExecutor.isPresent() ? sharedStageExecutor.get()
+				: StageExecutor.fromProperties(PROPERTIES, ResourcePolicy.fromProperties(PROPERTIES));
+		final ResourcePolicy resources = stageExecutor.getResources();
+		final FfmpegController controller = new FfmpegController(PROPERTIES, performanceStore, resources);
+		final EtaPredictor predictor = new EtaPredictor(performanceStore);
+
+		if (PROPERTIES.getBooleanProperty(DRY_RUN)) {
+			planDryRun(inputFiles, controller, predictor);
+			return;
+		}
+
+		if (PROPERTIES.getBooleanProperty(COMPILATION) && !PROPERTIES.getBooleanProperty(COPY_ONLY)) {
+			compileProjects(inputFiles, controller);
+			youtubeController.awaitUploads();
+			return;
+		}
+
+		final Map<File, Double> estimates = estimateBacklog(inputFiles, controller, predictor);
+		double remaining = 0;
+		for (final Double estimate : estimates.values()) {
+			remaining += estimate;
+		}
+		if (!estimates.isEmpty()) {
+			LOG.info("Estimated backlog encode time is [{}] for [{}] of [{}] files.", EtaPredictor.format(remaining),
+					estimates.size(), inputFiles.size());
+		}
+
+		if (PROPERTIES.getBooleanProperty(PROXY_ENABLED) && !PROPERTIES.getBooleanProperty(COPY_ONLY)) {
+			createProxies(inputFiles, controller);
+		}
+
+		final ScratchSpace scratchSpace = ScratchSpace.fromProperties(PROPERTIES);
+		final OutputTransfer transfer = scratchSpace == null ? null
+				: new OutputTransfer(PROPERTIES.getIntegerProperty(TRANSFER_PARALLEL, 1), resources.getDiskLimiter());
+
+		final List<Stage> stages = configuredStages(controller);
+
+		final Set<File> batched = scratchSpace == null ? convertShortClipsInBatches(inputFiles, controller)
+				: Collections.<File>emptySet();
+
+		final List<Runnable> conversions = newArrayList();
+		for (final File file : inputFiles) {
+			if (batched.contains(file)) {
+				continue;
+			}
+
+			final String fileName = file.getName();
+			LOG.info("Converting file [{}]", fileName);
+
+			if (estimates.containsKey(file)) {
+				LOG.info("Estimated encode time [{}]. Remaining backlog [{}].", EtaPredictor.format(estimates.get(file)),
+						EtaPredictor.format(remaining));
+				remaining -= estimates.get(file);
+			}
+
+			final Optional<String> projectName = extractProjectNameFromFileName(fileName);
+
+			if (!projectName.isPresent()) {
+				LOG.warn("Project name not found. Ignoring file.");
+				continue;
+			}
+
+			LOG.info("Identified project name [{}].", projectName.get());
+
+			final Optional<File> projectDirectory = createProjectDirectoryOrFail(projectName.get());
+
+			if (!projectDirectory.isPresent()) {
+				LOG.warn("Could not create project directory. Ignoring file.");
+				continue;
+			}
+
+			final File outputFile = generateOutputFile(file, projectDirectory);
+			LOG.info("Output file will be [{}]", outputFile.getAbsolutePath());
+
+			final boolean onlyCopy = PROPERTIES.getBooleanProperty(COPY_ONLY);
+
+			if (onlyCopy) {
+				moveOriginal(file, projectDirectory.get());
+				continue;
+			}
+
+			conversions.add(new Runnable() {
+				@Override
+				public void run() {
+					resources.awaitAdmission();
+					JobLogs.tag(fileName);
+					try {
+						if (scratchSpace == null) {
+							stageExecutor.execute(stages, new JobContext(file, outputFile, projectDirectory.get()));
+						} else {
+							convertOnScratch(controller, predictor, scratchSpace, transfer, file, outputFile,
+									projectDirectory.get());
+						}
+					} finally {
+						controller.getJobLogs().finish(fileName);
+					}
+				}
+			});
+		}
+		runConversions(conversions, resources.getMaxConcurrency());
+
+		if (transfer != null) {
+			final List<File> failed = transfer.awaitCompletion();
+			if (!failed.isEmpty()) {
+				throw new RuntimeException("Transferring " + failed + " to the output directory failed.");
+			}
+		}
+
+		youtubeController.awaitUploads();
+	}
+
+	/**
+	 * Works on up to the given number of files at once, so the time windows of the resource policy can run several
+	 * encodes. Each encode still waits for a slot of the policy. After a failure no further file is started and the
+	 * failure is rethrown once the running files finished.
+	 */
+	private static void runConversions(final List<Runnable> conversions, final int parallel) {
+		if (parallel <= 1 || conversions.size() <= 1) {
+			for (final Runnable conversion : conversions) {
+				conversion.run();
+			}
+			return;
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallel, conversions.size()));
+		final CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+		final List<Future<Void>> futures = newArrayList();
+		for (final Runnable conversion : conversions) {
+			futures.add(completion.submit(conversion, null));
+		}
+		executor.shutdown();
+
+		RuntimeException failure = null;
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					completion.take().get();
+				} catch (CancellationException e) {
+					LOG.debug("Conversion was not started after an earlier failure.");
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+								: new RuntimeException(e.getCause());
+						for (final Future<Void> future : futures) {
+							future.cancel(false);
+						}
+					} else {
+						LOG.error("Conversion failed as well.", e.getCause());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while converting.", e);
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private String generateDestinationFileName(final File input) {
+		LOG.trace("Generating output file name for original file.");
+
+		final String rawName = extractRawName(input);
+
+		LOG.debug("Raw filename is [{}].", rawName);
+
+		final String fileName;
+		String suffix = null;
+		try {
+			suffix = PROPERTIES.getProperty(ORIGINAL_FILE_SUFFIX);
+			LOG.info("Original file suffix is [{}].", suffix);
+		} catch (NullPointerException e) {
+			LOG.info("Original file suffix not provided.");
+		}
+
+		if (suffix == null ||suffix.isEmpty()) {
+			fileName = rawName + ".avi";
+		} else {
+			fileName = rawName + " " + suffix + ".avi";
+		}
+
+		LOG.debug("Generated filename is [{}]", fileName);
+
+		return fileName;
+	}
+
+	private String extractRawName(final File input) {
+		final String delimiter = PROPERTIES.getProperty(FILE_PROJECT_DELIMITER);
+		LOG.debug("Found delimiter [{}].", delimiter);
+
+		final String source = Trimmer.stripMarker(input.getName());
+		final String nameWithoutExtension = source.substring(0, source.lastIndexOf('.'));
+		return nameWithoutExtension.substring(nameWithoutExtension.indexOf(delimiter) + 1).trim();
+	}
+
+	private void runFFMPEG(final FfmpegController controller, final File file, final File outputFile) {
+		controller.process(file, outputFile);
+	}
+
+	/**
+	 * Creates a low resolution proxy for every input before any full quality encode starts, so editors can look at
+	 * all recordings within minutes. A proxy is removed once its final output landed.
+	 */
+	private void createProxies(final List<File> inputFiles, final FfmpegController controller) {
+		LOG.info("Creating proxies for [{}] files before the full quality encodes.", inputFiles.size());
+
+		for (final File file : inputFiles) {
+			final Optional<String> projectName = extractProjectNameFromFileName(file.getName());
+			if (!projectName.isPresent()) {
+				continue;
+			}
+			final Optional<File> projectDirectory = createProjectDirectoryOrFail(projectName.get());
+			if (!projectDirectory.isPresent()) {
+				continue;
+			}
+
+			final File proxy = FfmpegController.proxyFile(generateOutputFile(file, projectDirectory));
+			if (proxy.exists()) {
+				LOG.info("Proxy [{}] exists already.", proxy.getName());
+				continue;
+			}
+
+			controller.getResources().awaitAdmission();
+			JobLogs.tag(proxy.getName());
+			try {
+				controller.processProxy(file, proxy);
+			} catch (RuntimeException e) {
+				// the proxy is a convenience only and must not keep the file from being converted.
+				LOG.warn("Creating proxy for [{}] failed.", file.getName(), e);
+				proxy.delete();
+			} finally {
+				controller.getJobLogs().finish(proxy.getName());
+			}
+		}
+	}
+
+	private void removeProxy(final File outputFile) {
+		final File proxy = FfmpegController.proxyFile(outputFile);
+		if (proxy.exists()) {
+			LOG.info("Final output landed. Removing proxy [{}].", proxy.getName());
+			if (!proxy.delete()) {
+				LOG.warn("Could not delete proxy [{}].", proxy.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * Joins all inputs of a project into one output named after the project. The output is uploaded once and every
+	 * original is deleted or moved as usual.
+	 */
+	private void compileProjects(final List<File> inputFiles, final FfmpegController controller) {
+		final Map<String, List<File>> projects = new LinkedHashMap<>();
+		for (final File file : inputFiles) {
+			final Optional<String> projectName = extractProjectNameFromFileName(file.getName());
+			if (!projectName.isPresent()) {
+				LOG.warn("Project name not found for [{}]. Ignoring file.", file.getName());
+				continue;
+			}
+			if (!projects.containsKey(projectName.get())) {
+				projects.put(projectName.get(), new ArrayList<File>());
+			}
+			projects.get(projectName.get()).add(file);
+		}
+
+		final Compilation.Order order = Compilation.Order.valueOf(
+				PROPERTIES.getProperty(COMPILATION_ORDER, "name").trim().toUpperCase(Locale.ROOT));
+
+		for (final Map.Entry<String, List<File>> project : projects.entrySet()) {
+			final Optional<File> projectDirectory = createProjectDirectoryOrFail(project.getKey());
+			if (!projectDirectory.isPresent()) {
+				LOG.warn("Could not create project directory. Ignoring project [{}].", project.getKey());
+				continue;
+			}
+
+			final List<File> parts = Compilation.order(project.getValue(), order);
+			final File outputFile = new File(projectDirectory.get(), project.getKey()
+					+ PROPERTIES.getProperty(OUTPUT_FILE_SUFFIX, "") + ".mp4");
+			LOG.info("Compiling project [{}] from {} into [{}].", project.getKey(), parts, outputFile.getAbsolutePath());
+
+			controller.getResources().awaitAdmission();
+			JobLogs.tag(outputFile.getName());
+			try {
+				controller.processCompilation(parts, outputFile);
+			} finally {
+				controller.getJobLogs().finish(outputFile.getName());
+			}
+
+			new OutputVerifier(PROPERTIES, controller).verify(parts, outputFile);
+			upload(outputFile);
+			for (final File part : parts) {
+				handleOriginal(part, projectDirectory.get());
+			}
+		}
+	}
+
+	/**
+	 * Encodes inputs shorter than batch.maxDuration seconds in groups of batch.size with one ffmpeg process per group
+	 * and finishes them. The files of a failed batch are left to the regular per file processing, which attributes
+	 * the error to the right file.
+	 *
+	 * @return the inputs that were processed completely.
+	 */
+	private Set<File> convertShortClipsInBatches(final List<File> inputFiles, final FfmpegController controller) {
+		final Set<File> processed = new HashSet<>();
+
+		final long maxDuration = PROPERTIES.getLongProperty(BATCH_MAX_DURATION, 0);
+		if (maxDuration <= 0 || PROPERTIES.getBooleanProperty(COPY_ONLY)) {
+			return processed;
+		}
+		if (!controller.supportsBatching()) {
+			LOG.info("Batching is not supported for tail mode, segmented output, renditions, previews, trimming and loudness normalisation. Processing files one by one.");
+			return processed;
+		}
+
+		final Map<File, File> clips = new LinkedHashMap<>();
+		final Map<File, File> projectDirectories = new LinkedHashMap<>();
+		for (final File file : inputFiles) {
+			final Optional<String> projectName = extractProjectNameFromFileName(file.getName());
+			if (!projectName.isPresent() || Trimmer.Trim.forInput(PROPERTIES, file).isPresent()) {
+				continue;
+			}
+			try {
+				if (controller.probe(file).getDuration() >= maxDuration) {
+					continue;
+				}
+			} catch (RuntimeException e) {
+				LOG.warn("Could not probe [{}]. It will not be batched.", file.getName(), e);
+				continue;
+			}
+
+			final Optional<File> projectDirectory = createProjectDirectoryOrFail(projectName.get());
+			if (projectDirectory.isPresent()) {
+				clips.put(file, generateOutputFile(file, projectDirectory));
+				projectDirectories.put(file, projectDirectory.get());
+			}
+		}
+
+		for (final List<File> batch : Iterables.partition(clips.keySet(), PROPERTIES.getIntegerProperty(BATCH_SIZE, 8))) {
+			if (batch.size() < 2) {
+				continue;
+			}
+
+			final List<File> outputs = newArrayList();
+			for (final File file : batch) {
+				outputs.add(clips.get(file));
+			}
+
+			final String job = "batch-" + batch.get(0).getName();
+			controller.getResources().awaitAdmission();
+			JobLogs.tag(job);
+			try {
+				controller.processBatch(batch, outputs);
+			} catch (RuntimeException e) {
+				LOG.warn("Batch of [{}] clips failed. Processing them one by one.", batch.size(), e);
+				continue;
+			} finally {
+				controller.getJobLogs().finish(job);
+			}
+
+			for (final File file : batch) {
+				try {
+					finishJob(controller, file, clips.get(file), projectDirectories.get(file));
+				} catch (RuntimeException e) {
+					LOG.warn("Finishing [{}] after its batch failed. Processing it on its own.", file.getName(), e);
+					continue;
+				}
+				removeProxy(clips.get(file));
+				processed.add(file);
+			}
+		}
+
+		return processed;
+	}
+
+	/**
+	 * Encodes into the scratch directory after reserving the estimated disk space and hands the result to the
+	 * background transfer. Upload and handling of the original happen once the output arrived verified.
+	 */
+	private void convertOnScratch(final FfmpegController controller, final EtaPredictor predictor,
+			final ScratchSpace scratchSpace, final OutputTransfer transfer, final File file, final File outputFile,
+			final File projectDirectory) {
+		if (new SegmentedOutput(PROPERTIES).isSegmented()) {
+			LOG.info("Segmented output is written to the output directory directly to stay available while encoding.");
+			runFFMPEG(controller, file, outputFile);
+			finishJob(controller, file, outputFile, projectDirectory);
+			removeProxy(outputFile);
+			return;
+		}
+
+		final MediaInfo info = controller.probe(file);
+		final Optional<Long> predicted = predictor.predictOutputBytes(info, controller.getPipelineName(),
+				FfmpegController.PRESET, FfmpegController.THREADS);
+		final long outputBytes = predicted.isPresent() ? predicted.get() : info.getBitRate() / 8 * Math.round(info.getDuration());
+		final List<Rendition> renditions = controller.getRenditions();
+		// a trimmed input is copied next to the output before it is encoded.
+		final Optional<Trimmer.Trim> trim = controller.getTrim(file);
+		final long trimmedBytes = trim.isPresent() && info.getDuration() > 0
+				? Math.round(info.getSize() * trim.get().keptSeconds(info.getDuration()) / info.getDuration()) : 0;
+		final long need = ScratchSpace.estimateNeed(outputBytes * Math.max(1, renditions.size()),
+				controller.writesIntermediate(), trimmedBytes);
+
+		final ScratchSpace.Reservation reservation;
+		try {
+			reservation = scratchSpace.reserve(need);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for scratch space.", e);
+		}
+
+		final Map<File, File> files = new LinkedHashMap<>();
+		final File scratchOutput = scratchSpace.fileFor(outputFile);
+		for (int i = 0; i < Math.max(1, renditions.size()); i++) {
+			final File scratchFile = renditions.isEmpty() ? scratchOutput : Rendition.outputFile(scratchOutput, renditions, i);
+			files.put(scratchFile, renditions.isEmpty() ? outputFile : Rendition.outputFile(outputFile, renditions, i));
+			reservation.track(scratchFile);
+			reservation.track(FfmpegController.intermediateFile(scratchFile));
+		}
+		reservation.track(Trimmer.trimmedFile(scratchOutput));
+
+		try {
+			runFFMPEG(controller, file, scratchOutput);
+		} catch (RuntimeException e) {
+			reservation.release();
+			throw e;
+		}
+
+		final PreviewImages previews = new PreviewImages(PROPERTIES);
+		if (previews.isEnabled()) {
+			final File thumbnailDirectory = previews.getThumbnailDirectory(outputFile);
+			if (!thumbnailDirectory.exists() && !thumbnailDirectory.mkdirs()) {
+				LOG.warn("Could not create thumbnail directory [{}].", thumbnailDirectory.getAbsolutePath());
+			}
+			for (final File preview : previews.getFiles(scratchOutput)) {
+				final boolean thumbnail = preview.getParentFile().equals(previews.getThumbnailDirectory(scratchOutput));
+				files.put(preview, new File(thumbnail ? thumbnailDirectory : projectDirectory, preview.getName()));
+			}
+		}
+
+		transfer.submit(files, reservation, new Runnable() {
+			@Override
+			public void run() {
+				finishJob(controller, file, outputFile, projectDirectory);
+				removeProxy(outputFile);
+			}
+		});
+	}
+
+	/**
+	 * @return the stages listed in the stages property, by default probe, encode, verify, upload and original. Upload
+	 * and handling the original only depend on the verified output and run concurrently.
+	 */
+	private List<Stage> configuredStages(final FfmpegController controller) {
+		final Map<String, Stage> available = new LinkedHashMap<>();
+
+		available.put("probe", new AbstractStage("probe", Stage.Resource.DISK, ImmutableSet.of(JobContext.SOURCE),
+				ImmutableSet.of(MEDIA)) {
+			@Override
+			public void run(final JobContext job) {
+				job.put(MEDIA, controller.probe(job.getInput()));
+			}
+		});
+		available.put("encode", new AbstractStage("encode", Stage.Resource.CPU, ImmutableSet.of(JobContext.SOURCE, MEDIA),
+				ImmutableSet.of(OUTPUT)) {
+			@Override
+			public void run(final JobContext job) {
+				runFFMPEG(controller, job.getInput(), job.getOutput());
+				removeProxy(job.getOutput());
+				job.put(OUTPUT, job.getOutput());
+			}
+		});
+		available.put("verify", new AbstractStage("verify", Stage.Resource.DISK, ImmutableSet.of(OUTPUT),
+				ImmutableSet.of(VERIFIED)) {
+			@Override
+			public void run(final JobContext job) {
+				new OutputVerifier(PROPERTIES, controller).verify(job.getInput(), job.getOutput());
+				job.put(VERIFIED, job.getOutput());
+			}
+		});
+		available.put("upload", new AbstractStage("upload", Stage.Resource.NETWORK, ImmutableSet.of(VERIFIED),
+				ImmutableSet.of(UPLOADED)) {
+			@Override
+			public void run(final JobContext job) {
+				upload(job.getOutput());
+				job.put(UPLOADED, job.getOutput());
+			}
+		});
+		available.put("original", new AbstractStage("original", Stage.Resource.DISK, ImmutableSet.of(VERIFIED),
+				ImmutableSet.of(ORIGINAL)) {
+			@Override
+			public void run(final JobContext job) {
+				handleOriginal(job.getInput(), job.getProjectDirectory());
+				job.put(ORIGINAL, job.getInput());
+			}
+		});
+
+		final List<Stage> stages = newArrayList();
+		for (final String name : Splitter.on(',').trimResults().omitEmptyStrings()
+				.split(PROPERTIES.getProperty(STAGES, Joiner.on(',').join(available.keySet())))) {
+			if (!available.containsKey(name)) {
+				throw new RuntimeException("Unknown stage [" + name + "]. Available stages are " + available.keySet() + ".");
+			}
+			stages.add(available.get(name));
+		}
+		LOG.info("Processing stages are {}.", stages);
+		return stages;
+	}
+
+	/**
+	 * Verifies the output, uploads it if configured and deletes or moves the original. A failed verification keeps
+	 * the original where it is.
+	 */
+	private void finishJob(final FfmpegController controller, final File file, final File outputFile,
+			final File projectDirectory) {
+		new OutputVerifier(PROPERTIES, controller).verify(file, outputFile);
+		upload(outputFile);
+		handleOriginal(file, projectDirectory);
+	}
+
+	private void upload(final File outputFile) {
+		if (PROPERTIES.getBooleanProperty(UPLOAD_TO_YOUTUBE)) {
+			if (outputFile.exists()) {
+				youtubeController.upload(get(outputFile.getAbsolutePath()));
+			} else {
+				LOG.warn("No single file output [{}] to upload. Enable segments.remux to upload segmented output.", outputFile.getName());
+			}
+		}
+	}
+
+	private void handleOriginal(final File file, final File projectDirectory) {
+		final boolean shouldDeleteSourceFile = PROPERTIES.getBooleanProperty(DELETE_INPUT_FILE);
+		if (shouldDeleteSourceFile) {
+			LOG.info("Deleting source file [{}].", file.getAbsolutePath());
+			file.delete();
+		} else {
+			moveOriginal(file, projectDirectory);
+		}
+		// the keyframe index of a trimmed input is not needed once the input is gone.
+		KeyframeIndex.sidecar(file).delete();
+	}
+
+	private void moveOriginal(final File file, final File projectDirectory) {
+		final String destinationName = generateDestinationFileName(file);
+		final File destination = new File(projectDirectory, destinationName);
+		LOG.info("Moving original file [{}] to project directory [{}].", file.getAbsolutePath(), destination.getAbsolutePath());
+		file.renameTo(destination);
+	}
+
+	private void planDryRun(final List<File> inputFiles, final FfmpegController controller, final EtaPredictor predictor) {
+		LOG.info("Dry run. Simulating conversion without running ffmpeg or touching any file.");
+
+		final List<File> plannable = newArrayList();
+		for (final File file : inputFiles) {
+			if (extractProjectNameFromFileName(file.getName()).isPresent()) {
+				plannable.add(file);
+			} else {
+				LOG.warn("Project name not found for [{}]. Ignoring file.", file.getName());
+			}
+		}
+
+		final DryRunPlanner planner = new DryRunPlanner(PROPERTIES, controller, predictor);
+		if (!PROPERTIES.getBooleanProperty(COMPILATION) || PROPERTIES.getBooleanProperty(COPY_ONLY)) {
+			planner.plan(plannable).log(LOG);
+			return;
+		}
+
+		// every project is compiled in one job, like compileProjects does.
+		final Map<String, List<File>> projects = new LinkedHashMap<>();
+		for (final File file : plannable) {
+			final String projectName = extractProjectNameFromFileName(file.getName()).get();
+			if (!projects.containsKey(projectName)) {
+				projects.put(projectName, new ArrayList<File>());
+			}
+			projects.get(projectName).add(file);
+		}
+		final Compilation.Order order = Compilation.Order.valueOf(
+				PROPERTIES.getProperty(COMPILATION_ORDER, "name").trim().toUpperCase(Locale.ROOT));
+		final List<List<File>> compilations = newArrayList();
+		for (final List<File> parts : projects.values()) {
+			compilations.add(Compilation.order(parts, order));
+		}
+		planner.planCompilations(compilations).log(LOG);
+	}
+
+	/**
+	 * @return the predicted encode time of the file in seconds, absent if there is not enough history.
+	 */
+	public Optional<Double> estimate(final File file) {
+		final PerformanceStore performanceStore = sharedPerformanceStore.or(new PerformanceStore(PROPERTIES));
+		return Optional.fromNullable(estimateBacklog(Collections.singletonList(file),
+				new FfmpegController(PROPERTIES, performanceStore), new EtaPredictor(performanceStore)).get(file));
+	}
+
+	private Map<File, Double> estimateBacklog(final List<File> inputFiles, final FfmpegController controller,
+			final EtaPredictor predictor) {
+		final Map<File, Double> estimates = new LinkedHashMap<>();
+
+		if (PROPERTIES.getBooleanProperty(COPY_ONLY)) {
+			return estimates;
+		}
+
+		for (final File file : inputFiles) {
+			try {
+				final MediaInfo info = controller.probe(file);
+				final Optional<Double> estimate = predictor.predictWallSeconds(info, controller.getPipelineName(),
+						FfmpegController.PRESET, FfmpegController.THREADS);
+				if (estimate.isPresent()) {
+					estimates.put(file, estimate.get());
+				}
+			} catch (RuntimeException e) {
+				// an estimate is informational only and must not keep the file from being converted.
+				LOG.warn("Could not estimate encode time for [{}].", file.getName(), e);
+			}
+		}
+
+		return estimates;
+	}
+
+	private File generateOutputFile(final File file, Optional<File> projectDirectory) {
+		LOG.trace("Generating output file name for input [{}]...", file.getAbsolutePath());
+
+		final String rawName = extractRawName(file);
+
+		LOG.debug("Raw filename is [{}].", rawName);
+
+		final String fileName;
+		String suffix = null;
+		try {
+			suffix = PROPERTIES.getProperty(OUTPUT_FILE_SUFFIX);
+			LOG.debug("Output file suffix is [{}].", suffix);
+		} catch (NullPointerException e) {
+			LOG.info("Output file suffix not configured.");
+		}
+
+		if (suffix == null || suffix.isEmpty()) {
+			fileName = rawName + ".mp4";
+		} else {
+			fileName = rawName + suffix + ".mp4";
+		}
+
+		LOG.debug("Generated filename is [{}]", fileName);
+
+		LOG.trace("Finished.");
+		return new File(projectDirectory.get(), fileName);
+	}
+
+	private Optional<File> createProjectDirectoryOrFail(final String projectName){
+		LOG.trace("Creating project directory...");
+
+		final String path = PROPERTIES.getProperty(OUTPUT_DIRECTORY);
+		final File directory = new File(path, projectName);
+
+		if (directory.exists()) {
+			LOG.info("Project directory [{}] exists.", directory.getAbsolutePath());
+		} else {
+			LOG.info("Project directory [{}] does not exist. Creating it now.", directory.getAbsolutePath());
+			directory.mkdirs();
+		}
+
+		if (!directory.exists()) {
+			absent();
+		}
+
+		LOG.trace("Finished.");
+		return of(directory);
+	}
+
+	private Optional<String> extractProjectNameFromFileName(final String name) {
+		LOG.trace("Extracting project name.");
+
+		final String delimiter = PROPERTIES.getProperty(FILE_PROJECT_DELIMITER);
+		LOG.debug("Using configured delimiter [{}].", delimiter);
+
+		final String[] parts = name.split(delimiter);
+
+		if (parts.length < 2) {
+			return absent();
+		}
+
+		return of(parts[0].trim());
+	}
+
+	private void verifyInputDirectoryExistsOrFail() {
+		LOG.debug("Verifying source directory...");
+		final String path = PROPERTIES.getProperty(INPUT_DIRECTORY);
+		final File directory = new File(path);
+
+		if (!directory.exists()) {
+			throw new RuntimeException("Source directory [" + path + "] does not exist!");
+		}
+
+		if (!directory.isDirectory()) {
+			throw new RuntimeException("Source directory [" + path + "] exists but is no directory!");
+		}
+
+		LOG.info("Source directory [{}] found.", path);
+	}
+}
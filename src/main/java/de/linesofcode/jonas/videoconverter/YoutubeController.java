@@ -1,17 +1,54 @@
 package de.linesofcode.jonas.videoconverter;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.nio.file.Path;
+import java.util.List;
 
 public class YoutubeController {
 
+	private static final Logger LOG = LoggerFactory.getLogger(YoutubeController.class);
+
 	private final BooleanAwareProperties properties;
 
+	private UploadPipeline pipeline;
+
 	public YoutubeController(final BooleanAwareProperties properties) {
 
 		this.properties = properties;
 	}
 
+	/**
+	 * Queues the file for upload and returns immediately unless the upload queue is full.
+	 */
 	public void upload(final Path file) {
+		synchronized (this) {
+			if (pipeline == null) {
+				pipeline = new UploadPipeline(properties);
+			}
+		}
+		pipeline.submit(file);
+	}
+
+	/**
+	 * Blocks until all queued uploads are done.
+	 */
+	public void awaitUploads() {
+		final UploadPipeline current;
+		synchronized (this) {
+			current = pipeline;
+			pipeline = null;
+		}
+
+		if (current == null) {
+			return;
+		}
 
+		final List<Path> failed = current.awaitCompletion();
+		if (!failed.isEmpty()) {
+			throw new RuntimeException("Uploading " + failed + " failed.");
+		}
+		LOG.info("All uploads finished.");
 	}
 }
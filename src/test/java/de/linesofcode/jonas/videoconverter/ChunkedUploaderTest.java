@@ -0,0 +1,195 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.RateLimiter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.Files.exists;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ChunkedUploaderTest {
+
+	private static final int CHUNK_SIZE = 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private StubEndpoint endpoint;
+	private String url;
+
+	@Before
+	public void startServer() throws IOException {
+		endpoint = new StubEndpoint();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/upload", endpoint);
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/upload";
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void uploadsInChunks() throws Exception {
+		final Path file = createFile(3500);
+
+		uploader(0).upload(file);
+
+		assertThat(endpoint.received(file.getFileName().toString()).toByteArray(), is(Files.readAllBytes(file)));
+		assertThat(endpoint.chunks.get(), is(4));
+		assertThat(exists(ChunkedUploader.sidecar(file)), is(false));
+	}
+
+	@Test
+	public void retriesServerErrors() throws Exception {
+		final Path file = createFile(2500);
+		endpoint.failures.set(2);
+
+		uploader(2).upload(file);
+
+		assertThat(endpoint.received(file.getFileName().toString()).toByteArray(), is(Files.readAllBytes(file)));
+	}
+
+	@Test(expected = IOException.class)
+	public void givesUpAfterRetries() throws Exception {
+		final Path file = createFile(2500);
+		endpoint.failures.set(5);
+
+		uploader(1).upload(file);
+	}
+
+	@Test
+	public void failedUploadKeepsResumeOffset() throws Exception {
+		final Path file = createFile(2500);
+		endpoint.failAfterChunks = 2;
+
+		try {
+			uploader(0).upload(file);
+		} catch (IOException e) {
+			// expected
+		}
+
+		assertThat(ChunkedUploader.loadOffset(file), is(2000L));
+	}
+
+	@Test
+	public void resumesAtPersistedOffset() throws Exception {
+		final Path file = createFile(2500);
+		final byte[] content = Files.readAllBytes(file);
+		endpoint.received(file.getFileName().toString()).write(content, 0, 2000);
+		ChunkedUploader.storeOffset(file, 2000);
+
+		uploader(0).upload(file);
+
+		assertThat(endpoint.received(file.getFileName().toString()).toByteArray(), is(content));
+		assertThat(endpoint.chunks.get(), is(1));
+	}
+
+	@Test
+	public void pipelineUploadsInBackground() throws Exception {
+		final Path first = createFile(1500);
+		final Path second = createFile(1500);
+
+		final UploadPipeline pipeline = new UploadPipeline(uploader(0), 1, 1);
+		pipeline.submit(first);
+		pipeline.submit(second);
+
+		assertThat(pipeline.awaitCompletion().isEmpty(), is(true));
+		assertThat(endpoint.totalReceived(), is(3000));
+	}
+
+	private ChunkedUploader uploader(final int retries) {
+		return new ChunkedUploader(url, CHUNK_SIZE, retries, 1, Optional.of(RateLimiter.create(1e9)));
+	}
+
+	private Path createFile(final int size) throws IOException {
+		final byte[] content = new byte[size];
+		new Random(size).nextBytes(content);
+		final Path file = folder.newFile().toPath();
+		Files.write(file, content);
+		return file;
+	}
+
+	/**
+	 * Minimal resumable upload endpoint that keeps everything it receives in memory.
+	 */
+	private static class StubEndpoint implements HttpHandler {
+
+		private final Map<String, ByteArrayOutputStream> files = new HashMap<>();
+		private final AtomicInteger failures = new AtomicInteger();
+		private final AtomicInteger chunks = new AtomicInteger();
+		private int failAfterChunks = Integer.MAX_VALUE;
+
+		@Override
+		public synchronized void handle(final HttpExchange exchange) throws IOException {
+			final byte[] body = ByteStreams.toByteArray(exchange.getRequestBody());
+			final ByteArrayOutputStream received = received(exchange.getRequestURI().getPath());
+			final String range = exchange.getRequestHeaders().getFirst("Content-Range");
+			final long total = Long.parseLong(range.substring(range.indexOf('/') + 1));
+
+			if (range.startsWith("bytes */")) {
+				exchange.getResponseHeaders().add("Range", "bytes=0-" + (received.size() - 1));
+				respond(exchange, received.size() == total ? 200 : ChunkedUploader.RESUME_INCOMPLETE);
+				return;
+			}
+
+			if (failures.getAndDecrement() > 0 || chunks.get() >= failAfterChunks) {
+				respond(exchange, 503);
+				return;
+			}
+
+			final long start = Long.parseLong(range.substring("bytes ".length(), range.indexOf('-')));
+			if (start != received.size()) {
+				respond(exchange, 400);
+				return;
+			}
+
+			received.write(body);
+			chunks.incrementAndGet();
+			respond(exchange, received.size() == total ? 201 : ChunkedUploader.RESUME_INCOMPLETE);
+		}
+
+		private synchronized ByteArrayOutputStream received(final String path) {
+			final String name = path.substring(path.lastIndexOf('/') + 1);
+			if (!files.containsKey(name)) {
+				files.put(name, new ByteArrayOutputStream());
+			}
+			return files.get(name);
+		}
+
+		private synchronized int totalReceived() {
+			int total = 0;
+			for (final ByteArrayOutputStream file : files.values()) {
+				total += file.size();
+			}
+			return total;
+		}
+
+		private void respond(final HttpExchange exchange, final int status) throws IOException {
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class CompilationTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void orderByName() throws IOException {
+		final File second = folder.newFile("Project - part2.avi");
+		final File first = folder.newFile("Project - part1.avi");
+
+		assertThat(Compilation.order(Arrays.asList(second, first), Compilation.Order.NAME), contains(first, second));
+	}
+
+	@Test
+	public void orderByTimestamp() throws IOException {
+		final File older = folder.newFile("Project - b.avi");
+		final File newer = folder.newFile("Project - a.avi");
+		older.setLastModified(1000000000000L);
+		newer.setLastModified(1000000060000L);
+
+		assertThat(Compilation.order(Arrays.asList(newer, older), Compilation.Order.TIMESTAMP), contains(older, newer));
+	}
+
+	@Test
+	public void matchingH264PartsAreStreamCopied() {
+		assertThat(Compilation.canStreamCopy(Arrays.asList(part("h264", 1920), part("h264", 1920))), is(true));
+	}
+
+	@Test
+	public void differentResolutionsAreEncoded() {
+		assertThat(Compilation.canStreamCopy(Arrays.asList(part("h264", 1920), part("h264", 1280))), is(false));
+	}
+
+	@Test
+	public void recorderCodecsAreEncoded() {
+		assertThat(Compilation.canStreamCopy(Arrays.asList(part("mjpeg", 1920), part("mjpeg", 1920))), is(false));
+	}
+
+	private static MediaInfo part(final String videoCodec, final int width) {
+		final List<String> lines = Arrays.asList(
+				"[STREAM]", "index=0", "codec_name=" + videoCodec, "codec_type=video", "width=" + width, "height=1080", "[/STREAM]",
+				"[STREAM]", "index=1", "codec_name=aac", "codec_type=audio", "[/STREAM]",
+				"[FORMAT]", "duration=60.0", "[/FORMAT]");
+		return MediaInfo.parse(lines);
+	}
+}
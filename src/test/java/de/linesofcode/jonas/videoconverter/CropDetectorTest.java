@@ -0,0 +1,49 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CropDetectorTest {
+
+	@Test
+	public void lastReportedRectangleWins() {
+		final Optional<CropDetector.Crop> crop = CropDetector.parse(Arrays.asList(
+				"[Parsed_cropdetect_0 @ 0x1] x1:0 x2:1919 y1:0 y2:1079 w:1920 h:1080 x:0 y:0 pts:1 t:0.03 crop=1920:1080:0:0",
+				"[Parsed_cropdetect_0 @ 0x1] x1:240 x2:1679 y1:0 y2:1079 w:1440 h:1080 x:240 y:0 pts:2 t:0.07 crop=1440:1080:240:0",
+				"frame=   60 fps=0.0 q=-0.0 Lsize=N/A time=00:00:02.00"));
+
+		assertThat(crop.get().toFilter(), is("crop=1440:1080:240:0"));
+	}
+
+	@Test
+	public void blackFramesAreIgnored() {
+		final Optional<CropDetector.Crop> crop = CropDetector.parse(Collections.singletonList(
+				"[Parsed_cropdetect_0 @ 0x1] x1:1919 x2:0 y1:1079 y2:0 w:-1904 h:-1064 x:1912 y:1072 crop=-1904:-1064:1912:1072"));
+
+		assertThat(crop.isPresent(), is(false));
+	}
+
+	@Test
+	public void unionOfAllSamplesIsKept() {
+		final Optional<CropDetector.Crop> crop = CropDetector.choose(Arrays.asList(
+				new CropDetector.Crop(1440, 1080, 240, 0),
+				new CropDetector.Crop(1400, 1080, 280, 0),
+				new CropDetector.Crop(1440, 1000, 240, 40)), 1920, 1080);
+
+		assertThat(crop.get().toFilter(), is("crop=1440:1080:240:0"));
+	}
+
+	@Test
+	public void smallBordersAreNotCropped() {
+		final Optional<CropDetector.Crop> crop = CropDetector.choose(Collections.singletonList(
+				new CropDetector.Crop(1904, 1072, 8, 4)), 1920, 1080);
+
+		assertThat(crop.isPresent(), is(false));
+	}
+}
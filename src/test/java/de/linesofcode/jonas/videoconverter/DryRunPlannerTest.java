@@ -0,0 +1,136 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+
+public class DryRunPlannerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void makespanOnOneSlotIsTheSum() {
+		final double makespan = DryRunPlanner.makespan(Arrays.asList(10.0, 20.0, 30.0), 1, 1);
+
+		assertThat(makespan, is(closeTo(60, 0.001)));
+	}
+
+	@Test
+	public void makespanSchedulesLongestJobFirst() {
+		final double makespan = DryRunPlanner.makespan(Arrays.asList(10.0, 10.0, 20.0), 2, 1);
+
+		assertThat(makespan, is(closeTo(20, 0.001)));
+	}
+
+	@Test
+	public void makespanIsStretchedByContention() {
+		final double makespan = DryRunPlanner.makespan(Arrays.asList(10.0, 10.0), 2, 2);
+
+		assertThat(makespan, is(closeTo(20, 0.001)));
+	}
+
+	@Test
+	public void peakIntermediateSumsTheLargestConcurrentJobs() {
+		final long peak = DryRunPlanner.peakIntermediate(Arrays.asList(1L, 5L, 3L), 2);
+
+		assertThat(peak, is(8L));
+	}
+
+	@Test
+	public void pipedIntroNeedsNoIntermediate() throws IOException {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		properties.setProperty(BooleanAwareProperties.Properties.USE_FADING.keyName(), "true");
+		properties.setProperty(BooleanAwareProperties.Properties.USE_INTRO.keyName(), "true");
+
+		assertThat(intermediateBytes(properties), is(0L));
+
+		properties.setProperty(BooleanAwareProperties.Properties.PIPELINE_USE_FILES.keyName(), "true");
+		assertThat(intermediateBytes(properties), is(1000L));
+
+		// the loudness is measured while the faded video is written to a file instead of in front of the encode.
+		properties.setProperty(BooleanAwareProperties.Properties.PIPELINE_USE_FILES.keyName(), "false");
+		properties.setProperty(BooleanAwareProperties.Properties.LOUDNESS_ENABLED.keyName(), "true");
+		assertThat(intermediateBytes(properties), is(1000L));
+		properties.setProperty(BooleanAwareProperties.Properties.LOUDNESS_ENABLED.keyName(), "false");
+
+		properties.setProperty(BooleanAwareProperties.Properties.USE_INTRO.keyName(), "false");
+		properties.setProperty(BooleanAwareProperties.Properties.PIPELINE_USE_FILES.keyName(), "false");
+		assertThat(intermediateBytes(properties), is(1000L));
+	}
+
+	@Test
+	public void everyRenditionWritesItsOwnOutput() throws IOException {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		properties.setProperty(BooleanAwareProperties.Properties.RENDITIONS.keyName(), "1080p:1920x1080:6000k,720p:1280x720:3000k");
+
+		final CapacityPlan.JobEstimate job = estimate(properties, "input.avi");
+
+		assertThat(job.getOutputBytes(), is(2000L));
+		assertThat(job.getIntermediateBytes(), is(0L));
+
+		properties.setProperty(BooleanAwareProperties.Properties.USE_FADING.keyName(), "true");
+		properties.setProperty(BooleanAwareProperties.Properties.USE_INTRO.keyName(), "true");
+		assertThat(estimate(properties, "input.avi").getIntermediateBytes(), is(2000L));
+	}
+
+	@Test
+	public void onlyTheKeptRangeOfATrimmedInputIsEncoded() throws IOException {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+
+		final CapacityPlan.JobEstimate job = estimate(properties, "input [trim=10-20].avi");
+
+		assertThat(job.getMediaSeconds(), is(closeTo(30, 0.001)));
+		assertThat(job.getWallSeconds(), is(closeTo(30, 0.001)));
+		assertThat(job.getOutputBytes(), is(500L));
+		// the trimmed copy is written before the encode.
+		assertThat(job.getIntermediateBytes(), is(500L));
+	}
+
+	private long intermediateBytes(final BooleanAwareProperties properties) throws IOException {
+		return estimate(properties, "input.avi").getIntermediateBytes();
+	}
+
+	/**
+	 * Plans one input of 60 seconds and 1000 bytes without history.
+	 */
+	private CapacityPlan.JobEstimate estimate(final BooleanAwareProperties properties, final String name) throws IOException {
+		final FfmpegController controller = new FfmpegController(properties) {
+			@Override
+			public MediaInfo probe(final File input) {
+				return MediaInfo.parse(Arrays.asList("[FORMAT]", "duration=60.0", "size=1000", "[/FORMAT]"));
+			}
+		};
+		final PerformanceStore store = new PerformanceStore(folder.newFile().toPath(), 10);
+
+		final CapacityPlan plan = new DryRunPlanner(properties, controller, new EtaPredictor(store, "host"))
+				.plan(Collections.singletonList(new File(name)));
+
+		return plan.getJobs().get(0);
+	}
+
+	@Test
+	public void recommendsSmallestConcurrencyCloseToTheBest() {
+		final int recommended = DryRunPlanner.recommend(Arrays.asList(
+				new CapacityPlan.Level(1, 100, 0),
+				new CapacityPlan.Level(2, 52, 0),
+				new CapacityPlan.Level(3, 50, 0)));
+
+		assertThat(recommended, is(2));
+	}
+
+	@Test
+	public void formatBytes() {
+		assertThat(CapacityPlan.formatBytes(512), is("512 B"));
+		assertThat(CapacityPlan.formatBytes(1536), is("1.5 KiB"));
+	}
+}
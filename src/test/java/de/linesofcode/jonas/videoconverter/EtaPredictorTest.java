@@ -0,0 +1,103 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+
+public class EtaPredictorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path storeFile;
+	private PerformanceStore store;
+	private EtaPredictor predictor;
+
+	@Before
+	public void setUp() throws IOException {
+		storeFile = folder.newFile("performance").toPath();
+		store = new PerformanceStore(storeFile, 10);
+		predictor = new EtaPredictor(store, "host");
+	}
+
+	@Test
+	public void noHistoryMeansNoPrediction() {
+		final Optional<Double> prediction = predictor.predictWallSeconds(media(1920, 1080, 30, 60), "simple", "slow", 4);
+
+		assertThat(prediction.isPresent(), is(false));
+	}
+
+	@Test
+	public void predictionScalesWithPixelCount() {
+		// 60 seconds of 1080p30 took 120 seconds three times.
+		for (int i = 0; i < EtaPredictor.MIN_SAMPLES; i++) {
+			store.add(record("host", 1920, 1080, 60, 120, 6000));
+		}
+
+		final Optional<Double> sameSize = predictor.predictWallSeconds(media(1920, 1080, 30, 30), "simple", "slow", 4);
+		final Optional<Double> quarterSize = predictor.predictWallSeconds(media(960, 540, 30, 60), "simple", "slow", 4);
+
+		assertThat(sameSize.get(), is(closeTo(60, 0.001)));
+		assertThat(quarterSize.get(), is(closeTo(30, 0.001)));
+	}
+
+	@Test
+	public void prefersRecordsOfTheSameHost() {
+		for (int i = 0; i < EtaPredictor.MIN_SAMPLES; i++) {
+			store.add(record("host", 1920, 1080, 60, 120, 6000));
+			store.add(record("otherHost", 1920, 1080, 60, 30, 6000));
+		}
+
+		final Optional<Double> prediction = predictor.predictWallSeconds(media(1920, 1080, 30, 60), "simple", "slow", 4);
+
+		assertThat(prediction.get(), is(closeTo(120, 0.001)));
+	}
+
+	@Test
+	public void predictsOutputSize() {
+		store.add(record("host", 1920, 1080, 60, 120, 6000));
+
+		final Optional<Long> prediction = predictor.predictOutputBytes(media(1920, 1080, 30, 30), "simple", "slow", 4);
+
+		assertThat(prediction.get(), is(3000L));
+	}
+
+	@Test
+	public void storeSurvivesReloadAndCompacts() {
+		for (int i = 0; i < 15; i++) {
+			store.add(record("host", 1920, 1080, i + 1, 10, 100));
+		}
+
+		final PerformanceStore reloaded = new PerformanceStore(storeFile, 10);
+
+		assertThat(reloaded.getRecords().size(), is(10));
+		assertThat(reloaded.getRecords().get(0).getMediaDuration(), is(6.0));
+	}
+
+	@Test
+	public void median() {
+		assertThat(EtaPredictor.median(Arrays.asList(3.0, 1.0, 2.0)), is(2.0));
+		assertThat(EtaPredictor.median(Arrays.asList(4.0, 1.0, 2.0, 3.0)), is(2.5));
+	}
+
+	private static PerformanceRecord record(final String host, final int width, final int height,
+			final double mediaDuration, final double wallSeconds, final long outputBytes) {
+		return new PerformanceRecord(0, host, "simple", "slow", width, height, 30, 4, mediaDuration, wallSeconds,
+				outputBytes);
+	}
+
+	private static MediaInfo media(final int width, final int height, final int fps, final double duration) {
+		return MediaInfo.parse(Arrays.asList("[STREAM]", "codec_type=video", "width=" + width, "height=" + height,
+				"avg_frame_rate=" + fps + "/1", "[/STREAM]", "[FORMAT]", "duration=" + duration, "[/FORMAT]"));
+	}
+}
@@ -1,28 +1,171 @@
-package de.linesofcode.jonas.videoconverter;
-
-import org.hamcrest.MatcherAssert;
-import org.hamcrest.Matchers;
-import org.junit.Before;
-import org.junit.Test;
-
-import java.io.File;
-import java.math.BigDecimal;
-
-public class FfmpegControllerTest {
-
-	private FfmpegController controller;
-
-	@Before
-	public void createController() {
-		controller = new FfmpegController(new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties"));
-	}
-
-	@Test
-	public void getDuration() {
-		final File input = new File("src/test/resources/test.mp4");
-
-		final BigDecimal duration = controller.getDuration(input);
-
-		MatcherAssert.assertThat(duration, Matchers.closeTo(new BigDecimal(5.0), new BigDecimal(0.01)));
-	}
-}
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+public class FfmpegControllerTest {
+
+	private FfmpegController controller;
+
+	@Before
+	public void createController() {
+		controller = new FfmpegController(new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties"));
+	}
+
+	@Test
+	public void getDuration() {
+		final File input = new File("src/test/resources/test.mp4");
+
+		final BigDecimal duration = controller.getDuration(input);
+
+		MatcherAssert.assertThat(duration, Matchers.closeTo(new BigDecimal(5.0), new BigDecimal(0.01)));
+	}
+
+	@Test
+	public void renditionsShareOneDecode() {
+		final List<Rendition> renditions = Rendition.parseList("1080p:1920x1080:6000k,720p:1280x720:3000k");
+		final List<File> targets = Arrays.asList(new File("a.mp4"), new File("b.mp4"));
+
+		final String command = controller.buildRenditionCommand(new File("input.avi"), renditions, targets,
+				Optional.<String>absent());
+
+		MatcherAssert.assertThat(command, Matchers.containsString("[0:0]split=2[s0][s1];[s0]scale=1920:1080:force_original_aspect_ratio=decrease,"
+				+ "pad=1920:1080:(ow-iw)/2:(oh-ih)/2,setsar=1[v0];[s1]scale=1280:720:force_original_aspect_ratio=decrease,"
+				+ "pad=1280:720:(ow-iw)/2:(oh-ih)/2,setsar=1[v1]"));
+		MatcherAssert.assertThat(command, Matchers.containsString("-map \"[v1]\" -map 0:1 -map 0:2"));
+		MatcherAssert.assertThat(command, Matchers.containsString("-b:v 3000k -maxrate 3000k -bufsize 6000k"));
+		MatcherAssert.assertThat(command, Matchers.endsWith("\"" + targets.get(1).getAbsolutePath() + "\""));
+	}
+
+	@Test
+	public void renditionIntermediatesKeepMixedAudioFirstForTheIntro() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		properties.setProperty(BooleanAwareProperties.Properties.USE_FADING.keyName(), "true");
+		properties.setProperty(BooleanAwareProperties.Properties.USE_INTRO.keyName(), "true");
+		properties.setProperty(BooleanAwareProperties.Properties.FADING_DURATION.keyName(), "2");
+		properties.setProperty(BooleanAwareProperties.Properties.INTRO_PATH.keyName(), "intro.mp4");
+		final FfmpegController controller = new FfmpegController(properties) {
+			@Override
+			public BigDecimal getDuration(final File input) {
+				return new BigDecimal(60);
+			}
+		};
+		final List<Rendition> renditions = Rendition.parseList("1080p:1920x1080:6000k,720p:1280x720:3000k");
+
+		final File output = new File("video.mp4");
+		final List<File> targets = controller.renditionTargets(output, renditions);
+
+		final String encode = controller.buildRenditionCommand(new File("input.avi"), renditions, targets,
+				Optional.of("fade"));
+		final String intro = controller.buildFinishCommand(targets.get(1), Rendition.outputFile(output, renditions, 1),
+				Optional.<String>absent(), Optional.of(renditions.get(1))).get();
+
+		// the intro concat reads the audio from stream 0 and the video from stream 1 of every intermediate.
+		MatcherAssert.assertThat(encode, Matchers.containsString("-map \"[a1]\" -map \"[v1]\" "));
+		final String intermediate = encode.substring(encode.lastIndexOf(" \"") + 1);
+		MatcherAssert.assertThat(intermediate, Matchers.is("\"" + new File("video 720p.mp4.intermediate.mp4").getAbsolutePath() + "\""));
+		MatcherAssert.assertThat(intro, Matchers.containsString(" -i " + intermediate + " -filter_complex"));
+		MatcherAssert.assertThat(intro, Matchers.containsString("[0:1] scale=1280:720:force_original_aspect_ratio=decrease,"
+				+ "pad=1280:720:(ow-iw)/2:(oh-ih)/2,setsar=1 [iv]; [iv] [0:0] [1:1] [1:0] concat=n=2:v=1:a=1"));
+		MatcherAssert.assertThat(intro, Matchers.endsWith("\"" + new File("video 720p.mp4").getAbsolutePath() + "\""));
+	}
+
+	@Test
+	public void fadedRenditionsAreNormalisedAfterTheEncode() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		properties.setProperty(BooleanAwareProperties.Properties.USE_FADING.keyName(), "true");
+		properties.setProperty(BooleanAwareProperties.Properties.LOUDNESS_ENABLED.keyName(), "true");
+		final FfmpegController controller = new FfmpegController(properties);
+		final List<Rendition> renditions = Rendition.parseList("1080p:1920x1080:6000k,720p:1280x720:3000k");
+		final File output = new File("video.mp4");
+
+		final List<File> targets = controller.renditionTargets(output, renditions);
+		final String normalize = controller.buildFinishCommand(targets.get(0), output, Optional.of("loudnorm=I=-16"),
+				Optional.of(renditions.get(0))).get();
+
+		MatcherAssert.assertThat(targets.get(0), Matchers.is(FfmpegController.intermediateFile(output)));
+		MatcherAssert.assertThat(normalize, Matchers.containsString("[0:0]loudnorm=I=-16[a]"));
+		MatcherAssert.assertThat(normalize, Matchers.containsString("-c:v copy"));
+		MatcherAssert.assertThat(controller.buildFinishCommand(targets.get(0), output, Optional.<String>absent(),
+				Optional.of(renditions.get(0))).isPresent(), Matchers.is(false));
+	}
+
+	@Test
+	public void introStageReadsFadedVideoFromPipe() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		properties.setProperty("intro.path", "intro.mp4");
+
+		final String command = new FfmpegController(properties)
+				.buildAddIntroCommand(new File("output.mp4"), FfmpegController.PIPE_INPUT, Optional.<String>absent());
+
+		MatcherAssert.assertThat(command, Matchers.containsString(" -f nut -i pipe:0 -filter_complex"));
+		MatcherAssert.assertThat(command, Matchers.endsWith("\"" + new File("output.mp4").getAbsolutePath() + "\""));
+	}
+
+	@Test
+	public void batchMapsEveryInputToItsOwnOutput() {
+		final List<File> inputs = Arrays.asList(new File("a.avi"), new File("b.avi"));
+		final List<File> targets = Arrays.asList(new File("a.mp4"), new File("b.mp4"));
+
+		final String command = controller.buildBatchCommand(inputs, targets);
+
+		MatcherAssert.assertThat(command, Matchers.containsString(" -i \"" + inputs.get(0).getAbsolutePath() + "\" -i \""
+				+ inputs.get(1).getAbsolutePath() + "\" -map 0:0 -map 0:1 -map 0:2 "));
+		MatcherAssert.assertThat(command, Matchers.containsString(" -map 1:0 -map 1:1 -map 1:2 "));
+		MatcherAssert.assertThat(command, Matchers.endsWith("\"" + targets.get(1).getAbsolutePath() + "\""));
+	}
+
+	@Test
+	public void fadedBatchTargetsKeepMixedAudioFirstForTheIntro() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		properties.setProperty(BooleanAwareProperties.Properties.USE_FADING.keyName(), "true");
+		properties.setProperty(BooleanAwareProperties.Properties.FADING_DURATION.keyName(), "2");
+		final FfmpegController controller = new FfmpegController(properties) {
+			@Override
+			public BigDecimal getDuration(final File input) {
+				return new BigDecimal(60);
+			}
+		};
+		final List<File> inputs = Arrays.asList(new File("a.avi"), new File("b.avi"));
+		final List<File> targets = Arrays.asList(new File("a.mp4"), new File("b.mp4"));
+
+		final String command = controller.buildBatchCommand(inputs, targets);
+
+		// the intro concat reads the audio from stream 0 and the video from stream 1 of every target.
+		MatcherAssert.assertThat(command, Matchers.containsString(" -map \"[a0]\" -map \"[v0]\" "));
+		MatcherAssert.assertThat(command, Matchers.containsString(" -map \"[a1]\" -map \"[v1]\" "));
+	}
+
+	@Test
+	public void compilationConcatenatesAllPartsInOneEncode() {
+		final List<File> parts = Arrays.asList(new File("part1.avi"), new File("part2.avi"));
+		final List<MediaInfo> infos = Arrays.asList(
+				MediaInfo.parse(Arrays.asList("[FORMAT]", "duration=60.0", "[/FORMAT]")),
+				MediaInfo.parse(Arrays.asList("[FORMAT]", "duration=30.0", "[/FORMAT]")));
+
+		final String command = controller.buildCompilationCommand(parts, infos, new File("project.mp4"));
+
+		MatcherAssert.assertThat(command, Matchers.containsString("[0:0][0:1][0:2][1:0][1:1][1:2]concat=n=2:v=1:a=2[v][a1][a2]"));
+		MatcherAssert.assertThat(command, Matchers.containsString("-map \"[v]\" -map \"[a1]\" -map \"[a2]\""));
+	}
+
+	@Test
+	public void proxyIsSmallAndFast() {
+		final File output = new File("project", "video.mp4");
+		final File proxy = FfmpegController.proxyFile(output);
+
+		final String command = controller.buildProxyCommand(new File("input.avi"), proxy);
+
+		MatcherAssert.assertThat(proxy.getName(), Matchers.is("video.proxy.mp4"));
+		MatcherAssert.assertThat(command, Matchers.containsString("[0:0]scale=-2:540[v]"));
+		MatcherAssert.assertThat(command, Matchers.containsString("-preset ultrafast"));
+	}
+}
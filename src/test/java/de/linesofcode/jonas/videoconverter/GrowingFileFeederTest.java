@@ -0,0 +1,93 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class GrowingFileFeederTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void feedsFinishedFile() throws Exception {
+		final File file = folder.newFile();
+		Files.write(file.toPath(), new byte[]{1, 2, 3});
+		final ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+		final long fed = new GrowingFileFeeder(file, 0, 2, 1).feed(target);
+
+		assertThat(fed, is(3L));
+		assertThat(target.toByteArray(), is(new byte[]{1, 2, 3}));
+	}
+
+	@Test
+	public void followsGrowingFile() throws Exception {
+		final File file = folder.newFile();
+		final ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+		final Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try (final FileOutputStream output = new FileOutputStream(file, true)) {
+					for (int i = 0; i < 5; i++) {
+						output.write(new byte[100]);
+						output.flush();
+						Thread.sleep(20);
+					}
+				} catch (IOException | InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		writer.start();
+
+		new GrowingFileFeeder(file, 300, 3, 10).feed(target);
+		writer.join();
+
+		assertThat(target.size(), is(500));
+	}
+
+	@Test
+	public void finishedRequiresIdleTimeAndStableSize() {
+		final GrowingFileFeeder feeder = new GrowingFileFeeder(new File("unused"), 1000, 3, 1);
+
+		assertThat(feeder.isFinished(1500, 1000, 3), is(false));
+		assertThat(feeder.isFinished(2000, 1000, 2), is(false));
+		assertThat(feeder.isFinished(2000, 1000, 3), is(true));
+	}
+
+	@Test
+	public void fadedSegmentsKeepMixedAudioFirstForTheIntro() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		properties.setProperty(BooleanAwareProperties.Properties.USE_FADING.keyName(), "true");
+		properties.setProperty(BooleanAwareProperties.Properties.FADING_DURATION.keyName(), "2");
+
+		final String command = new TailEncoder(properties, new FfmpegController(properties))
+				.buildStreamCommand(folder.getRoot());
+
+		// the intro concat reads the audio from stream 0 and the video from stream 1 of the joined segments.
+		assertThat(command.contains(" -map \"[a]\" -map 0:0 "), is(true));
+	}
+
+	@Test
+	public void parsesSegmentListAndFindsFadedSegments() {
+		final List<TailEncoder.Segment> segments = TailEncoder.parseSegmentList(Arrays.asList(
+				"part_00000.ts,0.000000,10.000000", "part_00001.ts,10.000000,20.000000", "part_00002.ts,20.000000,23.500000"));
+
+		assertThat(segments.size(), is(3));
+		assertThat(TailEncoder.firstSegmentEndingAfter(segments, 18.5), is(1));
+		assertThat(TailEncoder.firstSegmentEndingAfter(segments, 21), is(2));
+	}
+}
@@ -0,0 +1,80 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class JobLogsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void untag() {
+		JobLogs.untag();
+	}
+
+	@Test
+	public void outputOfTheTaggedJobIsCompressedWhenFinished() throws IOException {
+		final JobLogs logs = new JobLogs(folder.getRoot(), 2, 10);
+
+		JobLogs.tag("input.avi");
+		final JobLogs.JobLog log = logs.current();
+		assertThat(logs.current(), is(sameInstance(log)));
+
+		log.append("first");
+		log.append("second");
+		log.append("third");
+		assertThat(log.getTail(), contains("second", "third"));
+
+		logs.finish("input.avi");
+
+		final File compressed = new File(folder.getRoot(), log.getFile().getName() + ".gz");
+		assertThat(log.getFile().exists(), is(false));
+		assertThat(read(compressed), contains("first", "second", "third"));
+	}
+
+	@Test
+	public void untaggedOutputGoesToTheMainJob() {
+		final JobLogs logs = new JobLogs(folder.getRoot(), 2, 10);
+		logs.current().append("untagged");
+
+		assertThat(logs.current().getJob(), is(JobLogs.NO_JOB));
+		assertThat(logs.current().getTail(), contains("untagged"));
+		assertThat(folder.getRoot().list().length, is(0));
+	}
+
+	@Test
+	public void progressLinesAreRecognised() {
+		assertThat(JobLogs.JobLog.isProgress("frame=  250 fps= 50 q=28.0 size=    1024kB time=00:00:10.00 bitrate= 838.9kbits/s"), is(true));
+		assertThat(JobLogs.JobLog.isProgress("Stream #0:0: Video: h264"), is(false));
+	}
+
+	private static List<String> read(final File file) throws IOException {
+		final List<String> lines = new ArrayList<>();
+		try (final BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+}
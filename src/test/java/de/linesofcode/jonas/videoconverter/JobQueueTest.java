@@ -0,0 +1,140 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class JobQueueTest {
+
+	private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+
+	@Test
+	public void higherPriorityRunsFirst() {
+		final JobQueue queue = new JobQueue(recordingRunner(), 1);
+		queue.submit(new File("low.avi"), Optional.<String>absent(), 0);
+		queue.submit(new File("high.avi"), Optional.<String>absent(), 5);
+		queue.submit(new File("low2.avi"), Optional.<String>absent(), 0);
+
+		queue.start();
+		awaitState(queue, "3", ConversionJob.State.DONE);
+
+		assertThat(ran, contains("high.avi", "low.avi", "low2.avi"));
+	}
+
+	@Test
+	public void queuedJobIsCancelled() {
+		final JobQueue queue = new JobQueue(recordingRunner(), 1);
+		final ConversionJob job = queue.submit(new File("input.avi"), Optional.<String>absent(), 0);
+
+		assertThat(queue.cancel(job.getId()), is(true));
+		queue.process(job);
+
+		assertThat(job.getState(), is(ConversionJob.State.CANCELLED));
+		assertThat(ran.isEmpty(), is(true));
+		assertThat(queue.cancel(job.getId()), is(false));
+	}
+
+	@Test
+	public void runningJobIsInterrupted() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final JobQueue queue = new JobQueue(new JobQueue.Runner() {
+			@Override
+			public Optional<Double> estimate(final ConversionJob job) {
+				return Optional.of(60.0);
+			}
+
+			@Override
+			public void run(final ConversionJob job) {
+				started.countDown();
+				try {
+					Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}, 1);
+		final ConversionJob job = queue.submit(new File("input.avi"), Optional.<String>absent(), 0);
+		queue.start();
+
+		assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(job.remainingSeconds(System.currentTimeMillis()).isPresent(), is(true));
+		assertThat(queue.cancel(job.getId()), is(true));
+
+		awaitState(queue, job.getId(), ConversionJob.State.CANCELLED);
+	}
+
+	@Test
+	public void cancelAfterTheWorkCompletedKeepsTheJobDone() {
+		final JobQueue queue = new JobQueue(new JobQueue.Runner() {
+			@Override
+			public Optional<Double> estimate(final ConversionJob job) {
+				return Optional.absent();
+			}
+
+			@Override
+			public void run(final ConversionJob job) {
+				// the cancel arrives after the conversion finished but before the job is marked done.
+				assertThat(job.cancel(), is(true));
+			}
+		}, 1);
+		final ConversionJob job = queue.submit(new File("input.avi"), Optional.<String>absent(), 0);
+		queue.process(job);
+
+		assertThat(job.getState(), is(ConversionJob.State.DONE));
+	}
+
+	@Test
+	public void failureIsReported() {
+		final JobQueue queue = new JobQueue(new JobQueue.Runner() {
+			@Override
+			public Optional<Double> estimate(final ConversionJob job) {
+				return Optional.absent();
+			}
+
+			@Override
+			public void run(final ConversionJob job) {
+				throw new RuntimeException("FFMPEG process failed.");
+			}
+		}, 1);
+		final ConversionJob job = queue.submit(new File("input.avi"), Optional.of("web"), 0);
+		queue.process(job);
+
+		assertThat(job.getState(), is(ConversionJob.State.FAILED));
+		assertThat(job.toJson().contains("\"error\":\"FFMPEG process failed.\""), is(true));
+		assertThat(job.toJson().contains("\"profile\":\"web\""), is(true));
+	}
+
+	private JobQueue.Runner recordingRunner() {
+		return new JobQueue.Runner() {
+			@Override
+			public Optional<Double> estimate(final ConversionJob job) {
+				return Optional.absent();
+			}
+
+			@Override
+			public void run(final ConversionJob job) {
+				ran.add(job.getInput().getName());
+			}
+		};
+	}
+
+	private static void awaitState(final JobQueue queue, final String id, final ConversionJob.State state) {
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (queue.get(id).get().getState() != state) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new AssertionError("Job " + id + " did not reach " + state + ".");
+			}
+			Thread.yield();
+		}
+	}
+}
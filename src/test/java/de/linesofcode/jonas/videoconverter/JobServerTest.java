@@ -0,0 +1,118 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+public class JobServerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private JobQueue queue;
+	private JobServer server;
+
+	@Before
+	public void startServer() throws IOException {
+		// without workers submitted jobs stay queued.
+		queue = new JobQueue(new JobQueue.Runner() {
+			@Override
+			public Optional<Double> estimate(final ConversionJob job) {
+				return Optional.absent();
+			}
+
+			@Override
+			public void run(final ConversionJob job) {
+			}
+		}, 0);
+		server = new JobServer(new InetSocketAddress("127.0.0.1", 0), queue);
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+
+	@Test
+	public void submittedJobsCanBeQueriedAndCancelled() throws IOException {
+		final File first = folder.newFile("project-first.avi");
+		final File second = folder.newFile("project-second.avi");
+
+		final String submitted = request("POST", "/jobs?priority=3",
+				first.getAbsolutePath() + "\n" + second.getAbsolutePath() + ";web;7\n", 202);
+		assertThat(submitted, containsString("\"priority\":3"));
+		assertThat(submitted, containsString("\"profile\":\"web\",\"priority\":7"));
+
+		assertThat(request("GET", "/jobs/2", null, 200), containsString("\"state\":\"QUEUED\""));
+		assertThat(request("DELETE", "/jobs/2", null, 200), containsString("\"state\":\"CANCELLED\""));
+		assertThat(request("DELETE", "/jobs/2", null, 409), containsString("already finished"));
+		assertThat(request("GET", "/jobs/9", null, 404), containsString("No job 9."));
+	}
+
+	@Test
+	public void batchWithMissingFileIsRejected() throws IOException {
+		final File existing = folder.newFile("project-existing.avi");
+
+		request("POST", "/jobs", existing.getAbsolutePath() + "\n/does/not/exist.avi\n", 400);
+
+		assertThat(queue.list().isEmpty(), is(true));
+	}
+
+	@Test
+	public void submissionLinesOverrideTheDefaults() throws IOException {
+		final File input = folder.newFile("project-input.avi");
+
+		final List<JobServer.Submission> submissions = JobServer.parseSubmissions(
+				Arrays.asList(input.getAbsolutePath(), input.getAbsolutePath() + ";;9"), Optional.of("web"), 1);
+
+		assertThat(submissions.get(0).getProfile(), is(Optional.of("web")));
+		assertThat(submissions.get(0).getPriority(), is(1));
+		assertThat(submissions.get(1).getProfile(), is(Optional.of("web")));
+		assertThat(submissions.get(1).getPriority(), is(9));
+	}
+
+	private String request(final String method, final String path, final String body, final int expectedStatus)
+			throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:"
+				+ server.getAddress().getPort() + path).openConnection();
+		connection.setRequestMethod(method);
+		if (body != null) {
+			connection.setDoOutput(true);
+			try (final OutputStream output = connection.getOutputStream()) {
+				output.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		assertThat(connection.getResponseCode(), is(expectedStatus));
+		final ByteArrayOutputStream response = new ByteArrayOutputStream();
+		try (final InputStream input = connection.getResponseCode() < 400 ? connection.getInputStream()
+				: connection.getErrorStream()) {
+			final byte[] buffer = new byte[4096];
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				response.write(buffer, 0, read);
+			}
+		}
+		return new String(response.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,63 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class KeyframeIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void keyframesAreParsed() {
+		assertThat(KeyframeIndex.parse(Arrays.asList("10.010000", "N/A", "0.000000,", "")), contains(10.01, 0.0));
+	}
+
+	@Test
+	public void keyframesAroundATimeAreFound() {
+		final KeyframeIndex index = new KeyframeIndex(Arrays.asList(20.0, 0.0, 10.0));
+
+		assertThat(index.floor(15), is(Optional.of(10.0)));
+		assertThat(index.ceiling(15), is(Optional.of(20.0)));
+		assertThat(index.nearest(16), is(Optional.of(20.0)));
+		assertThat(index.ceiling(21), is(Optional.<Double>absent()));
+	}
+
+	@Test
+	public void sidecarIsReusedUntilTheInputChanges() throws IOException {
+		final File input = folder.newFile("Project - Talk.avi");
+		final BooleanAwareProperties properties = new BooleanAwareProperties();
+		properties.setProperty(BooleanAwareProperties.Properties.FFMPEG.keyName(), "ffmpeg/");
+		final AtomicInteger probes = new AtomicInteger();
+		final FfmpegController controller = new FfmpegController(properties) {
+			@Override
+			List<String> readOutput(final String command) {
+				probes.incrementAndGet();
+				return Arrays.asList("0.000000", "4.000000");
+			}
+		};
+
+		KeyframeIndex.load(input, properties, controller);
+		final KeyframeIndex reused = KeyframeIndex.load(input, properties, controller);
+
+		assertThat(KeyframeIndex.sidecar(input).isFile(), is(true));
+		assertThat(reused.floor(5), is(Optional.of(4.0)));
+		assertThat(probes.get(), is(1));
+
+		assertThat(input.setLastModified(input.lastModified() - 60000), is(true));
+		KeyframeIndex.load(input, properties, controller);
+		assertThat(probes.get(), is(2));
+	}
+}
@@ -0,0 +1,64 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+public class LoudnessAnalyzerTest {
+
+	private static final List<String> MEASUREMENT = Arrays.asList(
+			"[Parsed_loudnorm_1 @ 0x1] ",
+			"{",
+			"\t\"input_i\" : \"-27.61\",",
+			"\t\"input_tp\" : \"-4.47\",",
+			"\t\"input_lra\" : \"18.06\",",
+			"\t\"input_thresh\" : \"-39.20\",",
+			"\t\"output_i\" : \"-16.58\",",
+			"\t\"normalization_type\" : \"dynamic\",",
+			"\t\"target_offset\" : \"0.58\"",
+			"}");
+
+	private LoudnessAnalyzer analyzer;
+
+	@Before
+	public void createAnalyzer() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		analyzer = new LoudnessAnalyzer(properties, new FfmpegController(properties));
+	}
+
+	@Test
+	public void measuringDecodesAudioOnly() {
+		final String command = analyzer.buildAnalysisCommand(new File("input.avi"));
+
+		assertThat(command, containsString(" -vn -filter_complex \"[0:1][0:2]amix,loudnorm=I=-16:TP=-1.5:LRA=11:print_format=json\""));
+		assertThat(command, containsString(" -f null -"));
+	}
+
+	@Test
+	public void measuredValuesConfigureLinearNormalization() {
+		final Map<String, String> measured = LoudnessAnalyzer.parse(MEASUREMENT);
+
+		final Optional<String> filter = analyzer.buildNormalizationFilter(measured);
+
+		assertThat(filter.get(), is("loudnorm=I=-16:TP=-1.5:LRA=11:measured_I=-27.61:measured_TP=-4.47"
+				+ ":measured_LRA=18.06:measured_thresh=-39.20:offset=0.58:linear=true,aresample=48000"));
+	}
+
+	@Test
+	public void silenceIsNotNormalized() {
+		final Map<String, String> measured = LoudnessAnalyzer.parse(Arrays.asList(
+				"\"input_i\" : \"-inf\",", "\"input_tp\" : \"-inf\",", "\"input_lra\" : \"0.00\",",
+				"\"input_thresh\" : \"-70.00\",", "\"target_offset\" : \"inf\""));
+
+		assertThat(analyzer.buildNormalizationFilter(measured).isPresent(), is(false));
+	}
+}
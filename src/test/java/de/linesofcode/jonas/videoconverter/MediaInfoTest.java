@@ -0,0 +1,69 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+
+public class MediaInfoTest {
+
+	private static final List<String> PROBE_OUTPUT = Arrays.asList(
+			"[STREAM]",
+			"index=0",
+			"codec_name=h264",
+			"codec_type=video",
+			"width=1920",
+			"height=1080",
+			"avg_frame_rate=30000/1001",
+			"[/STREAM]",
+			"[STREAM]",
+			"index=1",
+			"codec_name=aac",
+			"codec_type=audio",
+			"[/STREAM]",
+			"[FORMAT]",
+			"format_name=avi",
+			"duration=125.500000",
+			"size=1000000",
+			"bit_rate=N/A",
+			"[/FORMAT]");
+
+	@Test
+	public void parseFormat() {
+		final MediaInfo info = MediaInfo.parse(PROBE_OUTPUT);
+
+		assertThat(info.getFormatName(), is("avi"));
+		assertThat(info.getDuration(), is(125.5));
+		assertThat(info.getSize(), is(1000000L));
+	}
+
+	@Test
+	public void bitRateFallsBackToSizeAndDuration() {
+		final MediaInfo info = MediaInfo.parse(PROBE_OUTPUT);
+
+		assertThat(info.getBitRate(), is(Math.round(1000000 * 8 / 125.5)));
+	}
+
+	@Test
+	public void parseStreams() {
+		final MediaInfo info = MediaInfo.parse(PROBE_OUTPUT);
+
+		assertThat(info.getStreams().size(), is(2));
+		assertThat(info.getStreams().get(1).isAudio(), is(true));
+		assertThat(info.getWidth(), is(1920));
+		assertThat(info.getHeight(), is(1080));
+		assertThat(info.getFps(), is(closeTo(29.97, 0.01)));
+	}
+
+	@Test
+	public void ignoresNoise() {
+		final MediaInfo info = MediaInfo.parse(Arrays.asList("ffprobe version 2.1", "duration=1", "[FORMAT]", "duration=3", "[/FORMAT]"));
+
+		assertThat(info.getDuration(), is(3.0));
+		assertThat(info.getVideoStream().isPresent(), is(false));
+	}
+}
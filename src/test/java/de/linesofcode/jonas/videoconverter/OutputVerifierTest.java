@@ -0,0 +1,118 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+
+public class OutputVerifierTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static MediaInfo info(final String videoCodec, final String audioCodec, final double duration) {
+		return MediaInfo.parse(Arrays.asList(
+				"[STREAM]", "codec_type=video", "codec_name=" + videoCodec, "[/STREAM]",
+				"[STREAM]", "codec_type=audio", "codec_name=" + audioCodec, "[/STREAM]",
+				"[FORMAT]", "duration=" + duration, "[/FORMAT]"));
+	}
+
+	@Test
+	public void matchingOutputPasses() {
+		assertThat(OutputVerifier.compare("out.mp4", info("h264", "aac", 120.4), 1, 1, 120.0, 1.0), is(empty()));
+	}
+
+	@Test
+	public void missingStreamsWrongCodecsAndTruncationAreReported() {
+		final MediaInfo videoOnly = MediaInfo.parse(Arrays.asList(
+				"[STREAM]", "codec_type=video", "codec_name=mpeg4", "[/STREAM]",
+				"[FORMAT]", "duration=61.0", "[/FORMAT]"));
+
+		final List<String> problems = OutputVerifier.compare("out.mp4", videoOnly, 1, 1, 120.0, 1.0);
+
+		assertThat(problems, hasSize(3));
+		assertThat(problems.get(0), containsString("video codec [mpeg4]"));
+		assertThat(problems.get(1), containsString("no audio stream"));
+		assertThat(problems.get(2), containsString("lasts 61.000 seconds instead of 120.000"));
+	}
+
+	@Test
+	public void lostAudioTrackIsReported() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		final FfmpegController controller = new FfmpegController(properties);
+		final MediaInfo oneTrack = MediaInfo.parse(Arrays.asList(
+				"[STREAM]", "codec_type=video", "codec_name=h264", "[/STREAM]",
+				"[STREAM]", "codec_type=audio", "codec_name=aac", "[/STREAM]",
+				"[FORMAT]", "duration=120.0", "[/FORMAT]"));
+
+		// the simple pipeline keeps both tracks of the input.
+		final int simple = controller.getExpectedAudioStreams(2, false);
+		// fading writes the mixed track in front of both.
+		properties.setProperty(BooleanAwareProperties.Properties.USE_FADING.keyName(), "true");
+		final int fading = controller.getExpectedAudioStreams(2, false);
+
+		assertThat(OutputVerifier.compare("out.mp4", oneTrack, 1, simple, 120.0, 1.0),
+				contains("[out.mp4] has 1 audio streams instead of 2."));
+		assertThat(OutputVerifier.compare("out.mp4", oneTrack, 1, fading, 120.0, 1.0),
+				contains("[out.mp4] has 1 audio streams instead of 3."));
+	}
+
+	@Test
+	public void mp4NeedsCompleteBoxesAndMoov() throws IOException {
+		final File finalized = write("finalized.mp4", box("ftyp", 16), box("mdat", 100), box("moov", 40));
+		final File withoutMoov = write("unfinished.mp4", box("ftyp", 16), box("mdat", 100));
+		final byte[] mdat = box("mdat", 100);
+		final File truncated = write("truncated.mp4", box("ftyp", 16), Arrays.copyOf(mdat, 60));
+
+		assertThat(OutputVerifier.checkMp4Boxes(finalized), is(Optional.<String>absent()));
+		assertThat(OutputVerifier.checkMp4Boxes(withoutMoov).get(), containsString("no moov box"));
+		assertThat(OutputVerifier.checkMp4Boxes(truncated).get(), containsString("truncated within its [mdat] box"));
+	}
+
+	@Test
+	public void playlistMustBeClosedAndComplete() throws IOException {
+		Files.write(folder.newFile("segment0.m4s").toPath(), new byte[]{1});
+		final File playlist = folder.newFile("playlist.m3u8");
+		Files.write(playlist.toPath(), Arrays.asList("#EXTM3U", "#EXTINF:6.000000,", "segment0.m4s",
+				"#EXTINF:4.000000,", "segment1.m4s"), StandardCharsets.UTF_8);
+
+		assertThat(OutputVerifier.checkPlaylist(playlist, 10.0, 1.0), contains(
+				"Segment [segment1.m4s] is missing or empty.",
+				"Playlist [playlist.m3u8] has no end, the encode was not finalized."));
+	}
+
+	private static byte[] box(final String type, final int size) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(size);
+		output.write(type.getBytes(StandardCharsets.US_ASCII));
+		output.write(new byte[size - 8]);
+		return bytes.toByteArray();
+	}
+
+	private File write(final String name, final byte[]... boxes) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (final byte[] box : boxes) {
+			bytes.write(box);
+		}
+		final File file = folder.newFile(name);
+		Files.write(file.toPath(), bytes.toByteArray());
+		return file;
+	}
+}
@@ -0,0 +1,47 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+
+public class PipelineExecutorTest {
+
+	private static final String SHELL = "/bin/sh";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void requireShell() {
+		assumeTrue(new File(SHELL).canExecute());
+	}
+
+	@Test
+	public void outputOfOneStageIsInputOfTheNext() throws IOException {
+		final File target = new File(folder.getRoot(), "result.txt");
+
+		new PipelineExecutor().run(Arrays.asList(
+				new ProcessBuilder(SHELL, "-c", "seq 1 100000"),
+				new ProcessBuilder(SHELL, "-c", "wc -l > '" + target.getAbsolutePath() + "'")));
+
+		assertThat(new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8).trim(), is("100000"));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void failingConsumerFailsThePipeline() {
+		new PipelineExecutor().run(Arrays.asList(
+				new ProcessBuilder(SHELL, "-c", "yes"),
+				new ProcessBuilder(SHELL, "-c", "exit 1")));
+	}
+}
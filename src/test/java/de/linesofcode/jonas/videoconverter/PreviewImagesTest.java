@@ -0,0 +1,86 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+public class PreviewImagesTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final PreviewImages previews = new PreviewImages(true, 10, 160, 2, 2, 5);
+
+	private final MediaInfo info = MediaInfo.parse(Arrays.asList(
+			"[STREAM]", "index=0", "codec_type=video", "width=1920", "height=1080", "[/STREAM]",
+			"[FORMAT]", "duration=60.0", "[/FORMAT]"));
+
+	@Test
+	public void heightFollowsAspectRatio() {
+		assertThat(previews.height(info), is(90));
+	}
+
+	@Test
+	public void allImagesBranchOffTheSameInput() {
+		final String graph = previews.buildFilterGraph("pv", info);
+
+		assertThat(graph, containsString("[pv]split=3[pp][pt][ps]"));
+		assertThat(graph, containsString("[pp]trim=start=5.000,setpts=PTS-STARTPTS,scale=160:90[poster]"));
+		assertThat(graph, containsString("[ps]fps=1/10,scale=160:90,tile=2x2[sprite]"));
+	}
+
+	@Test
+	public void outputsAreWrittenNextToTheVideo() {
+		final File output = new File("project", "video.mp4");
+
+		final String outputs = previews.buildOutputs(output);
+
+		assertThat(outputs, containsString("-frames:v 1 \"" + new File("project", "video.poster.jpg").getAbsolutePath() + "\""));
+		assertThat(outputs, containsString(new File("project", "video.sprite%03d.jpg").getAbsolutePath()));
+	}
+
+	@Test
+	public void indexPointsToTilesOfTheSpriteSheets() {
+		final List<String> index = previews.buildIndex("video", 5, 90);
+
+		assertThat(index.get(0), is("WEBVTT"));
+		assertThat(index.get(2), is("00:00:00.000 --> 00:00:10.000"));
+		assertThat(index.get(3), is("video.sprite001.jpg#xywh=0,0,160,90"));
+		assertThat(index.get(12), is("video.sprite001.jpg#xywh=160,90,160,90"));
+		assertThat(index.get(14), is("00:00:40.000 --> 00:00:50.000"));
+		assertThat(index.get(15), is("video.sprite002.jpg#xywh=0,0,160,90"));
+	}
+
+	@Test
+	public void fadingEncodeKeepsMixedAudioFirstForTheIntro() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties("src/test/resources/ffmpegControllerTest.properties");
+		properties.setProperty(BooleanAwareProperties.Properties.THUMBNAILS_ENABLED.keyName(), "true");
+		properties.setProperty(BooleanAwareProperties.Properties.FADING_DURATION.keyName(), "2");
+		final FfmpegController controller = new FfmpegController(properties) {
+			@Override
+			public MediaInfo probe(final File input) {
+				return info;
+			}
+
+			@Override
+			public BigDecimal getDuration(final File input) {
+				return new BigDecimal(60);
+			}
+		};
+
+		final String command = controller.buildFadingCommand(new File("input.avi"), "\"intermediate.mp4\"",
+				new File(folder.getRoot(), "video.mp4"));
+
+		// the intro concat reads the audio from stream 0 and the video from stream 1 of the faded encode.
+		assertThat(command, containsString(" -map \"[a]\" -map \"[v]\" "));
+	}
+}
@@ -0,0 +1,42 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class RenditionTest {
+
+	@Test
+	public void parseList() {
+		final List<Rendition> renditions = Rendition.parseList("1080p:1920x1080:6000k, 720p:1280x720:3M");
+
+		assertThat(renditions.size(), is(2));
+		assertThat(renditions.get(0).getName(), is("1080p"));
+		assertThat(renditions.get(1).getWidth(), is(1280));
+		assertThat(renditions.get(1).getHeight(), is(720));
+		assertThat(renditions.get(1).getBitsPerSecond(), is(3000000L));
+	}
+
+	@Test
+	public void emptyListMeansNoRenditions() {
+		assertThat(Rendition.parseList("").isEmpty(), is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void malformedRenditionFails() {
+		Rendition.parseList("720p:1280:3000k");
+	}
+
+	@Test
+	public void firstRenditionUsesPrimaryOutput() {
+		final List<Rendition> renditions = Rendition.parseList("1080p:1920x1080:6000k,720p:1280x720:3000k");
+		final File primary = new File("project", "video - source.mp4");
+
+		assertThat(Rendition.outputFile(primary, renditions, 0), is(primary));
+		assertThat(Rendition.outputFile(primary, renditions, 1), is(new File("project", "video - source 720p.mp4")));
+	}
+}
@@ -0,0 +1,93 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ResourcePolicyTest {
+
+	@Test
+	public void windowsSetTheConcurrencyByTimeOfDay() {
+		final ResourcePolicy policy = new ResourcePolicy(2, ResourcePolicy.parseWindows("08:00-18:00=0, 22:00-06:00=4"),
+				0, -1, 0, 0, 0, 1000);
+
+		assertThat(policy.concurrencyAt(7 * 60 + 59), is(2));
+		assertThat(policy.concurrencyAt(8 * 60), is(0));
+		assertThat(policy.concurrencyAt(18 * 60), is(2));
+		assertThat(policy.concurrencyAt(23 * 60), is(4));
+		assertThat(policy.concurrencyAt(3 * 60), is(4));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void malformedWindowIsRejected() {
+		ResourcePolicy.parseWindows("evening=2");
+	}
+
+	@Test
+	public void commandIsPrefixedWithPriorities() {
+		final ResourcePolicy policy = new ResourcePolicy(1, Collections.<ResourcePolicy.Window>emptyList(), 10, 7, 0, 0,
+				0, 1000);
+
+		assertThat(policy.wrap("ffmpeg -i a.avi b.mp4", false),
+				contains("nice", "-n", "10", "ionice", "-c", "2", "-n", "7", "ffmpeg", "-i", "a.avi", "b.mp4"));
+		// Windows gets the command line as it is, the priority class is inherited from the converter.
+		assertThat(policy.wrap("\"ffmpeg.exe\" -i a.avi b.mp4", true), contains("\"ffmpeg.exe\" -i a.avi b.mp4"));
+	}
+
+	@Test
+	public void quotedArgumentsStayTogether() {
+		assertThat(ResourcePolicy.split("\"/opt/ffmpeg/ffmpeg.exe\" -y -i \"my talk.avi\" -filter_complex \"[0:1][0:2]amix[a]\" -metadata title=\"\""),
+				contains("/opt/ffmpeg/ffmpeg.exe", "-y", "-i", "my talk.avi", "-filter_complex", "[0:1][0:2]amix[a]", "-metadata", "title="));
+	}
+
+	@Test
+	public void maxConcurrencyIsTheLargestWindow() {
+		assertThat(new ResourcePolicy(2, ResourcePolicy.parseWindows("22:00-06:00=4"), 0, -1, 0, 0, 0, 1000)
+				.getMaxConcurrency(), is(4));
+		assertThat(ResourcePolicy.unrestricted(1).getMaxConcurrency(), is(1));
+	}
+
+	@Test
+	public void unrestrictedPolicyKeepsTheCommand() {
+		assertThat(ResourcePolicy.unrestricted(1).wrap("ffmpeg -version", false), contains("ffmpeg", "-version"));
+		assertThat(ResourcePolicy.unrestricted(1).getDiskLimiter().isPresent(), is(false));
+	}
+
+	@Test
+	public void cpuPressureIsParsed() {
+		assertThat(ResourcePolicy.parseCpuPressure(Arrays.asList(
+				"some avg10=12.50 avg60=3.10 avg300=0.80 total=123456",
+				"full avg10=0.00 avg60=0.00 avg300=0.00 total=0")), is(Optional.of(12.5)));
+		assertThat(ResourcePolicy.parseCpuPressure(Collections.<String>emptyList()), is(Optional.<Double>absent()));
+	}
+
+	@Test
+	public void encodeSlotsAreLimited() throws InterruptedException {
+		final ResourcePolicy policy = ResourcePolicy.unrestricted(1);
+		policy.acquireEncodeSlot();
+
+		final Thread second = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					policy.acquireEncodeSlot();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		second.start();
+		second.join(200);
+		assertThat(second.isAlive(), is(true));
+
+		policy.releaseEncodeSlot();
+		second.join(5000);
+		assertThat(second.isAlive(), is(false));
+	}
+}
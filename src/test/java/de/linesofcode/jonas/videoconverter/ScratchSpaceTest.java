@@ -0,0 +1,99 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ScratchSpaceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ScratchSpace scratchSpace;
+
+	@Before
+	public void setUp() {
+		scratchSpace = new ScratchSpace(folder.getRoot(), 100) {
+			@Override
+			long usableSpace() {
+				return 1100;
+			}
+		};
+	}
+
+	@Test
+	public void reservationsReduceAvailableSpace() throws Exception {
+		scratchSpace.reserve(600);
+
+		assertThat(scratchSpace.available(), is(400L));
+	}
+
+	@Test
+	public void writtenBytesAreNotCountedTwice() throws Exception {
+		final ScratchSpace.Reservation reservation = scratchSpace.reserve(600);
+		final File output = folder.newFile();
+		Files.write(output.toPath(), new byte[200]);
+		reservation.track(output);
+
+		assertThat(scratchSpace.available(), is(600L));
+	}
+
+	@Test
+	public void aloneJobIsAlwaysAdmitted() throws Exception {
+		final ScratchSpace.Reservation reservation = scratchSpace.reserve(5000);
+
+		assertThat(reservation.getBytes(), is(5000L));
+	}
+
+	@Test
+	public void waitsUntilSpaceIsReleased() throws Exception {
+		final ScratchSpace.Reservation first = scratchSpace.reserve(800);
+		final CountDownLatch admitted = new CountDownLatch(1);
+
+		final Thread second = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					scratchSpace.reserve(800);
+					admitted.countDown();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		second.start();
+
+		assertThat(admitted.await(100, TimeUnit.MILLISECONDS), is(false));
+		first.release();
+		assertThat(admitted.await(5, TimeUnit.SECONDS), is(true));
+	}
+
+	@Test
+	public void transferVerifiesAndRemovesScratchFile() throws Exception {
+		final File source = folder.newFile("source.mp4");
+		Files.write(source.toPath(), new byte[]{1, 2, 3, 4});
+		final File destination = new File(folder.newFolder("output"), "video.mp4");
+
+		OutputTransfer.transfer(source, destination);
+
+		assertThat(Files.readAllBytes(destination.toPath()), is(new byte[]{1, 2, 3, 4}));
+		assertThat(source.exists(), is(false));
+		assertThat(new File(destination.getParentFile(), "video.mp4.part").exists(), is(false));
+	}
+
+	@Test
+	public void estimateAccountsForIntermediate() {
+		assertThat(ScratchSpace.estimateNeed(1000, false), is(1100L));
+		assertThat(ScratchSpace.estimateNeed(1000, true), is(2200L));
+		assertThat(ScratchSpace.estimateNeed(1000, false, 500), is(1650L));
+	}
+}
@@ -0,0 +1,70 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+
+public class SegmentedOutputTest {
+
+	private static final File OUTPUT = new File("project", "video - source.mp4");
+
+	private BooleanAwareProperties properties;
+
+	@Before
+	public void setUp() {
+		properties = new BooleanAwareProperties("src/test/resources/CommandBuilderTest.properties");
+	}
+
+	@Test
+	public void defaultsToSingleFile() {
+		assertThat(new SegmentedOutput(properties).isSegmented(), is(false));
+	}
+
+	@Test
+	public void segmentsGoIntoDirectoryNamedLikeTheOutput() {
+		properties.setProperty("output.mode", "hls");
+		final SegmentedOutput output = new SegmentedOutput(properties);
+
+		assertThat(output.getSegmentDirectory(OUTPUT), is(new File("project", "video - source")));
+		assertThat(output.getPlaylist(OUTPUT).getName(), is("playlist.m3u8"));
+	}
+
+	@Test
+	public void hlsWritesEventPlaylist() {
+		properties.setProperty("output.mode", "hls");
+		properties.setProperty("segments.duration", "4");
+
+		final String command = new SegmentedOutput(properties).buildEncodeCommand(new File("input.avi"), OUTPUT, "", false);
+
+		assertThat(command, containsString("-f hls -hls_time 4 -hls_playlist_type event -hls_segment_type fmp4"));
+		assertThat(command, containsString("-force_key_frames \"expr:gte(t,n_forced*4)\""));
+		assertThat(command, containsString("-map 0:0 -map 0:1 -map 0:2"));
+	}
+
+	@Test
+	public void dashWritesManifest() {
+		properties.setProperty("output.mode", "dash");
+
+		final SegmentedOutput output = new SegmentedOutput(properties);
+		final String command = output.buildEncodeCommand(new File("input.avi"), OUTPUT, "fade=in:st=0:d=1", true);
+
+		assertThat(command, containsString("-f dash -seg_duration 6"));
+		assertThat(command, containsString("-vf \"fade=in:st=0:d=1\""));
+		assertThat(command, containsString("amix[a]"));
+		assertThat(output.getPlaylist(OUTPUT).getName(), is("manifest.mpd"));
+	}
+
+	@Test
+	public void remuxIsStreamCopy() {
+		properties.setProperty("output.mode", "hls");
+
+		final String command = new SegmentedOutput(properties).buildRemuxCommand(OUTPUT);
+
+		assertThat(command, containsString("playlist.m3u8\" -map 0 -c copy"));
+	}
+}
@@ -0,0 +1,114 @@
+package de.linesofcode.jonas.videoconverter;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class StageExecutorTest {
+
+	private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+
+	private final JobContext job = new JobContext(new File("input.avi"), new File("output.mp4"), new File("."));
+
+	@Test
+	public void stagesRunAfterTheirInputsAreProduced() {
+		final List<Stage> stages = Arrays.<Stage>asList(
+				stage("upload", Stage.Resource.NETWORK, ImmutableSet.of("output"), ImmutableSet.<String>of()),
+				stage("encode", Stage.Resource.CPU, ImmutableSet.of("media"), ImmutableSet.of("output")),
+				stage("probe", Stage.Resource.DISK, ImmutableSet.of(JobContext.SOURCE), ImmutableSet.of("media")));
+
+		new StageExecutor(1, 1, 1).execute(stages, job);
+
+		assertThat(ran, contains("probe", "encode", "upload"));
+	}
+
+	@Test
+	public void independentStagesRunConcurrently() {
+		final CountDownLatch bothStarted = new CountDownLatch(2);
+		final List<Stage> stages = Arrays.<Stage>asList(
+				waitingStage("encode", Stage.Resource.CPU, bothStarted),
+				waitingStage("thumbnail", Stage.Resource.DISK, bothStarted));
+
+		new StageExecutor(1, 1, 1).execute(stages, job);
+
+		assertThat(ran.size(), is(2));
+	}
+
+	@Test
+	public void dependentsOfAFailedStageAreSkipped() {
+		final List<Stage> stages = Arrays.<Stage>asList(
+				new AbstractStage("encode", Stage.Resource.CPU, ImmutableSet.of(JobContext.SOURCE), ImmutableSet.of("output")) {
+					@Override
+					public void run(final JobContext job) {
+						throw new RuntimeException("FFMPEG process failed.");
+					}
+				},
+				stage("upload", Stage.Resource.NETWORK, ImmutableSet.of("output"), ImmutableSet.<String>of()));
+
+		try {
+			new StageExecutor(1, 1, 1).execute(stages, job);
+			throw new AssertionError("Expected the job to fail.");
+		} catch (RuntimeException e) {
+			assertThat(e.getCause().getMessage(), is("FFMPEG process failed."));
+		}
+		assertThat(ran, is(empty()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void missingProducerIsRejected() {
+		StageExecutor.dependencies(Arrays.<Stage>asList(
+				stage("upload", Stage.Resource.NETWORK, ImmutableSet.of("output"), ImmutableSet.<String>of())),
+				job.getArtifactNames());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void cycleIsRejected() {
+		StageExecutor.dependencies(Arrays.<Stage>asList(
+				stage("a", Stage.Resource.CPU, ImmutableSet.of("y"), ImmutableSet.of("x")),
+				stage("b", Stage.Resource.CPU, ImmutableSet.of("x"), ImmutableSet.of("y"))),
+				job.getArtifactNames());
+	}
+
+	private Stage stage(final String name, final Stage.Resource resource, final Set<String> inputs,
+			final Set<String> outputs) {
+		return new AbstractStage(name, resource, inputs, outputs) {
+			@Override
+			public void run(final JobContext job) {
+				ran.add(getName());
+				for (final String output : getOutputs()) {
+					job.put(output, getName());
+				}
+			}
+		};
+	}
+
+	private Stage waitingStage(final String name, final Stage.Resource resource, final CountDownLatch latch) {
+		return new AbstractStage(name, resource, ImmutableSet.of(JobContext.SOURCE), ImmutableSet.of(name)) {
+			@Override
+			public void run(final JobContext job) {
+				latch.countDown();
+				try {
+					if (!latch.await(5, TimeUnit.SECONDS)) {
+						throw new RuntimeException("Stages did not run concurrently.");
+					}
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				ran.add(getName());
+			}
+		};
+	}
+}
@@ -0,0 +1,63 @@
+package de.linesofcode.jonas.videoconverter;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TrimmerTest {
+
+	private final KeyframeIndex index = new KeyframeIndex(Arrays.asList(0.0, 10.0, 20.0, 30.0, 40.0, 50.0, 60.0));
+
+	@Test
+	public void fastTrimCopiesBetweenTheNearestKeyframes() {
+		final List<Trimmer.Part> parts = Trimmer.plan(new Trimmer.Trim(12, 14, false), 65, index);
+
+		assertThat(parts.size(), is(1));
+		assertThat(parts.get(0).toString(), is("copy 10.000-50.000"));
+	}
+
+	@Test
+	public void accurateTrimEncodesOnlyThePartialGops() {
+		final List<Trimmer.Part> parts = Trimmer.plan(new Trimmer.Trim(12, 14, true), 65, index);
+
+		assertThat(parts.toString(), is("[encode 12.000-20.000, copy 20.000-50.000, encode 50.000-51.000]"));
+	}
+
+	@Test
+	public void accurateTrimAtKeyframesOnlyCopies() {
+		final List<Trimmer.Part> parts = Trimmer.plan(new Trimmer.Trim(20, 0, true), 65, index);
+
+		assertThat(parts.toString(), is("[copy 20.000-65.000]"));
+	}
+
+	@Test
+	public void rangeWithoutCompleteGopIsEncoded() {
+		final List<Trimmer.Part> parts = Trimmer.plan(new Trimmer.Trim(22, 36, true), 65, index);
+
+		assertThat(parts.toString(), is("[encode 22.000-29.000]"));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void trimLongerThanTheInputFails() {
+		Trimmer.plan(new Trimmer.Trim(40, 30, false), 65, index);
+	}
+
+	@Test
+	public void markerOverridesTheProfile() {
+		final BooleanAwareProperties properties = new BooleanAwareProperties();
+		properties.setProperty(BooleanAwareProperties.Properties.TRIM_START.keyName(), "5");
+
+		final Trimmer.Trim marked = Trimmer.Trim.forInput(properties, new File("Project - Talk [trim=90-120].avi")).get();
+		assertThat(marked.getStart(), is(90.0));
+		assertThat(marked.getEnd(), is(120.0));
+
+		assertThat(Trimmer.Trim.forInput(properties, new File("Project - Talk.avi")).get().getStart(), is(5.0));
+		assertThat(Trimmer.Trim.forInput(new BooleanAwareProperties(), new File("Project - Talk.avi")).isPresent(), is(false));
+		assertThat(Trimmer.stripMarker("Project - Talk [trim=90-120].avi"), is("Project - Talk.avi"));
+	}
+}